@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Used in {@link RateLimited} to limit number of executions of the same key running at the same time, on all nodes.
+ * <p/>
+ * Execution holds lease on one of {@link #maxConcurrent()} slots until it completes.
+ * Lease is freed after {@link #lease()} even if it's never released, so slots of crashed nodes are not lost,
+ * lease should be longer then the longest execution.
+ *
+ * @author franjozilic
+ */
+public @interface Concurrency {
+
+  /**
+   * Maximum number of executions running at the same time, not limited if less then 1
+   */
+  long maxConcurrent() default -1;
+
+  /**
+   * Time after which slot is freed if execution never releases it
+   * See {@link Interval}
+   */
+  Interval lease() default @Interval(interval = 1, unit = TimeUnit.MINUTES);
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit;
+
+import com.github.usedrarely.spring.rate.limit.key.KeyGenerator;
+
+/**
+ * Used in {@link RateLimited} to limit the same call in enclosing scope, for example tenant or all users.
+ * <p/>
+ * Key is generated by {@link KeyGenerator} the same way as key of {@link RateLimited}.
+ * @author franjozilic
+ */
+public @interface ParentLimit {
+
+  /**
+   * Rate limiting key of scope.
+   * Will be generated by {@link KeyGenerator} if empty.
+   */
+  String key() default "";
+
+  /**
+   * SpEL expression to generate key of scope.
+   */
+  String keyExpression() default "";
+
+  /**
+   * Maximum number of requests allowed in scope in one {@link #interval()}
+   */
+  long maxRequests();
+
+  /**
+   * Interval of this limit
+   * See {@link Interval}
+   */
+  Interval interval();
+
+}
@@ -17,6 +17,7 @@
 
 package com.github.usedrarely.spring.rate.limit;
 
+import com.github.usedrarely.spring.rate.limit.checker.WindowKeys;
 import com.github.usedrarely.spring.rate.limit.key.KeyGenerator;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -47,6 +48,24 @@ public @interface RateLimited {
    */
   boolean enabled() default true;
 
+  /**
+   * Number of permits each call takes, for example 10 for call that does work of 10 simple calls.
+   * Calls of different cost share the same {@link #maxRequests()}.
+   */
+  long cost() default 1;
+
+  /**
+   * SpEL expression to compute cost of call from its arguments, evaluated in the same context as {@link #keyExpression()}.
+   * Used instead of {@link #cost()} if not empty.
+   */
+  String costExpression() default "";
+
+  /**
+   * Limit of executions running at the same time, on top of rate limit.
+   * See {@link Concurrency}
+   */
+  Concurrency concurrency() default @Concurrency;
+
   /**
    * Interval for rate limiting
    * See {@link Interval}
@@ -64,6 +83,21 @@ public @interface RateLimited {
    */
   String keyExpression() default "";
 
+  /**
+   * Additional limits, for example hourly limit together with burst limit of {@link #maxRequests()} per second.
+   * Execution is allowed only if all limits allow it.
+   */
+  Limit[] limits() default {};
+
+  /**
+   * Limits of enclosing scopes, from innermost to outermost, for example tenant and then all users.
+   * Execution is allowed only if limits of its own key and of all scopes allow it.
+   * <p/>
+   * Keys of chain are moved to slot of outermost scope, see {@link WindowKeys}. Key without hash tag of outermost scope
+   * doesn't share its state with the same key limited without parents, use keys like <code>{tenant}:user</code> to share it.
+   */
+  ParentLimit[] parents() default {};
+
   /**
    * Maximum number of requests allowed in one {@link #interval()}
    */
@@ -17,6 +17,7 @@
 package com.github.usedrarely.spring.rate.limit.analytics;
 
 import com.github.usedrarely.spring.rate.limit.RateLimited;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
 import com.github.usedrarely.spring.rate.limit.options.Options;
 import org.aspectj.lang.JoinPoint;
 
@@ -24,12 +25,14 @@ public interface RateLimitAnalytics {
 
   void blocked(JoinPoint joinPoint, RateLimited rateLimited, String key, Options options);
 
+  void concurrencyExceeded(JoinPoint joinPoint, RateLimited rateLimited, String key, Options options);
+
   void disabled(JoinPoint joinPoint, RateLimited rateLimited, String key, Options options);
 
-  void exceeded(JoinPoint joinPoint, RateLimited rateLimited, String key, Options options, Integer remainingCount);
+  void exceeded(JoinPoint joinPoint, RateLimited rateLimited, String key, Options options, AcquireResult result);
 
   void retryInterrupted(JoinPoint joinPoint, RateLimited rateLimited, String key, Options options);
 
-  void succeeded(JoinPoint joinPoint, RateLimited rateLimited, String key, Options options, Integer remainingCount);
+  void succeeded(JoinPoint joinPoint, RateLimited rateLimited, String key, Options options, AcquireResult result);
 
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Base for {@link PermitRateChecker} implementations.
+ * <p/>
+ * Implements {@link RateChecker#check(String, Long, OptionsInterval)} as acquisition of single permit,
+ * and {@link #tryAcquire(String, long, long, long)} as decision of {@link #acquire(String, long, long, long)}.
+ * Batches are checked one request at a time, checkers that can do better override {@link #checkAll(Collection)}.
+ *
+ * @author franjozilic
+ */
+public abstract class AbstractPermitRateChecker implements BatchRateChecker {
+
+  @Override
+  public boolean check(final String key, final Long maxRequests, final OptionsInterval interval) {
+    return tryAcquire(key, 1L, maxRequests, interval.unit().toNanos(interval.interval()));
+  }
+
+  @Override
+  public boolean tryAcquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    return acquire(key, permits, maxRequests, windowNanos).allowed();
+  }
+
+  @Override
+  public List<AcquireResult> checkAll(final Collection<AcquireRequest> requests) {
+    final List<AcquireResult> results = new ArrayList<>(requests.size());
+    for (final AcquireRequest request : requests) {
+      results.add(acquire(request.key(), request.permits(), request.maxRequests(), request.windowNanos()));
+    }
+    return results;
+  }
+
+  /**
+   * Checks execution taking number of permits with checker that can't take more then one at once
+   *
+   * @param checker     checker counting one execution per check
+   * @param key         rate limiting key
+   * @param permits     number of permits
+   * @param maxRequests maximum number of permits in window
+   * @param windowNanos length of window in nanoseconds
+   * @return see {@link #checkEach(RateChecker, String, long, long, OptionsInterval)}
+   */
+  public static boolean checkEach(final RateChecker checker, final String key, final long permits, final long maxRequests,
+                                  final long windowNanos) {
+    return checkEach(checker, key, permits, maxRequests, NanosInterval.of(windowNanos));
+  }
+
+  /**
+   * Checks execution taking number of permits with checker that can't take more then one at once
+   *
+   * @param checker     checker counting one execution per check
+   * @param key         rate limiting key
+   * @param permits     number of permits
+   * @param maxRequests maximum number of permits in window
+   * @param interval    window passed to checker
+   * @return true if every permit was allowed, false on first rejected one, permits allowed before it are not returned,
+   * false without checking if there are more permits then window allows
+   */
+  public static boolean checkEach(final RateChecker checker, final String key, final long permits, final long maxRequests,
+                                  final OptionsInterval interval) {
+    // could never be allowed, don't take permits it would keep
+    if (permits > maxRequests) {
+      return false;
+    }
+    for (long permit = 0L; permit < permits; permit++) {
+      if (!checker.check(key, maxRequests, interval)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+/**
+ * Single acquisition in batch, see {@link BatchRateChecker}.
+ *
+ * @author franjozilic
+ */
+public final class AcquireRequest {
+
+  private final String key;
+
+  private final long permits;
+
+  private final long maxRequests;
+
+  private final long windowNanos;
+
+  private AcquireRequest(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    this.key = key;
+    this.permits = permits;
+    this.maxRequests = maxRequests;
+    this.windowNanos = windowNanos;
+  }
+
+  /**
+   * @param key         rate limiting key
+   * @param permits     number of permits execution takes, at least 1
+   * @param maxRequests maximum number of permits in window
+   * @param windowNanos window length in nanoseconds
+   * @return request
+   */
+  public static AcquireRequest of(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    return new AcquireRequest(key, permits, maxRequests, windowNanos);
+  }
+
+  public String key() {
+    return key;
+  }
+
+  public long permits() {
+    return permits;
+  }
+
+  public long maxRequests() {
+    return maxRequests;
+  }
+
+  public long windowNanos() {
+    return windowNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "AcquireRequest[key=" + key + ",permits=" + permits + ",maxRequests=" + maxRequests + ",windowNanos=" + windowNanos + "]";
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+import java.util.List;
+
+/**
+ * Result of single rate limit check.
+ * <p/>
+ * Besides decision, carries state of limit after the check, calculated in the same operation as decision,
+ * so it can be used to inform clients (for example as rate limit response headers) without additional calls.
+ * Values that checker can't provide are {@link #UNKNOWN}.
+ *
+ * @author franjozilic
+ */
+public final class AcquireResult {
+
+  /**
+   * Value is not provided by checker
+   */
+  public static final long UNKNOWN = -1L;
+
+  /**
+   * Retry time of execution that can never be allowed, for example when it takes more permits then limit
+   */
+  public static final long NEVER = Long.MAX_VALUE;
+
+  private static final AcquireResult ALLOWED = new AcquireResult(true, UNKNOWN, UNKNOWN, 0L);
+
+  private static final AcquireResult REJECTED = new AcquireResult(false, UNKNOWN, UNKNOWN, UNKNOWN);
+
+  private final boolean allowed;
+
+  private final long remaining;
+
+  private final long resetAt;
+
+  private final long retryAfter;
+
+  private AcquireResult(final boolean allowed, final long remaining, final long resetAt, final long retryAfter) {
+    this.allowed = allowed;
+    this.remaining = remaining;
+    this.resetAt = resetAt;
+    this.retryAfter = retryAfter;
+  }
+
+  /**
+   * Result of checker that provides only decision
+   *
+   * @param allowed decision
+   * @return shared result instance
+   */
+  public static AcquireResult of(final boolean allowed) {
+    return allowed ? ALLOWED : REJECTED;
+  }
+
+  /**
+   * @param remaining        number of permits left after this execution
+   * @param resetAfterMillis milliseconds until limit is fully available again
+   * @return allowed result
+   */
+  public static AcquireResult allowed(final long remaining, final long resetAfterMillis) {
+    return new AcquireResult(true, remaining, resetAt(resetAfterMillis), 0L);
+  }
+
+  /**
+   * @param remaining        number of permits currently available
+   * @param resetAfterMillis milliseconds until limit is fully available again
+   * @param retryAfterMillis milliseconds until the same execution can be allowed, {@link #UNKNOWN} or {@link #NEVER}
+   * @return rejected result
+   */
+  public static AcquireResult rejected(final long remaining, final long resetAfterMillis, final long retryAfterMillis) {
+    return new AcquireResult(false, remaining, resetAt(resetAfterMillis), retryAfterMillis);
+  }
+
+  /**
+   * Combines results of several limits of the same execution, execution is allowed only if all limits allowed it.
+   * <p/>
+   * Combined result has the least remaining permits and the latest reset of all results,
+   * rejected one has the longest retry of rejected results, unless all of them are {@link #UNKNOWN}.
+   *
+   * @param results results of each limit, not empty
+   * @return combined result
+   */
+  public static AcquireResult strictest(final List<AcquireResult> results) {
+    if (results.size() == 1) {
+      return results.get(0);
+    }
+    boolean allowed = true;
+    long remaining = UNKNOWN;
+    long resetAt = UNKNOWN;
+    long retryAfter = UNKNOWN;
+    for (final AcquireResult result : results) {
+      if (result.remaining != UNKNOWN && (remaining == UNKNOWN || result.remaining < remaining)) {
+        remaining = result.remaining;
+      }
+      resetAt = Math.max(resetAt, result.resetAt);
+      if (!result.allowed) {
+        allowed = false;
+        retryAfter = Math.max(retryAfter, result.retryAfter);
+      }
+    }
+    return new AcquireResult(allowed, remaining, resetAt, allowed ? 0L : retryAfter);
+  }
+
+  private static long resetAt(final long resetAfterMillis) {
+    return resetAfterMillis < 0L ? UNKNOWN : System.currentTimeMillis() + resetAfterMillis;
+  }
+
+  /**
+   * @return true if execution can proceed
+   */
+  public boolean allowed() {
+    return allowed;
+  }
+
+  /**
+   * @return number of permits left, or {@link #UNKNOWN}
+   */
+  public long remaining() {
+    return remaining;
+  }
+
+  /**
+   * @return epoch milliseconds when limit is fully available again, or {@link #UNKNOWN}
+   */
+  public long resetAt() {
+    return resetAt;
+  }
+
+  /**
+   * @return milliseconds until execution can be allowed, {@code 0} if allowed, {@link #NEVER} or {@link #UNKNOWN}
+   */
+  public long retryAfter() {
+    return retryAfter;
+  }
+
+  @Override
+  public String toString() {
+    return "AcquireResult[allowed=" + allowed + ",remaining=" + remaining + ",resetAt=" + resetAt + ",retryAfter=" + retryAfter + "]";
+  }
+
+}
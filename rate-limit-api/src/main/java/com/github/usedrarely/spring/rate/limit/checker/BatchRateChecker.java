@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Rate limit checker that checks many limits at once, in single round trip where checker supports it.
+ * <p/>
+ * Requests are independent, each one is acquired or rejected on its own, in iteration order of requests.
+ * See {@link AbstractPermitRateChecker} for sequential implementation.
+ *
+ * @author franjozilic
+ */
+public interface BatchRateChecker extends PermitRateChecker {
+
+  /**
+   * Register executions and check if each of them can proceed according to its limit
+   *
+   * @param requests acquisitions to check
+   * @return results in iteration order of requests, never null
+   */
+  List<AcquireResult> checkAll(Collection<AcquireRequest> requests);
+
+}
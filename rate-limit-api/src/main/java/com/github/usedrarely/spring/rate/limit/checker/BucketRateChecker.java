@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+import com.github.usedrarely.spring.rate.limit.options.OptionsBucket;
+
+/**
+ * Rate limit checker that supports token bucket configuration.
+ * <p/>
+ * Used instead of {@link RateChecker#check(String, Long, com.github.usedrarely.spring.rate.limit.options.OptionsInterval)}
+ * when {@link com.github.usedrarely.spring.rate.limit.options.Options#bucket()} is configured.
+ *
+ * @author franjozilic
+ */
+public interface BucketRateChecker extends RateChecker {
+
+  /**
+   * Register execution and check if execution can proceed according to current bucket state
+   *
+   * @return true if bucket had token for this execution, false otherwise
+   */
+  boolean check(String key, OptionsBucket bucket);
+
+  /**
+   * Register execution and check if execution can proceed according to current bucket state
+   *
+   * @return decision with state of bucket after this execution, never null
+   */
+  AcquireResult acquire(String key, OptionsBucket bucket);
+
+  /**
+   * Register execution that takes number of tokens and check if execution can proceed according to current bucket state.
+   * Tokens are taken all at once or not at all.
+   *
+   * @param key     rate limiting key
+   * @param permits number of tokens execution takes, at least 1
+   * @param bucket  bucket configuration
+   * @return decision with state of bucket after this execution, never null
+   */
+  AcquireResult acquire(String key, long permits, OptionsBucket bucket);
+
+}
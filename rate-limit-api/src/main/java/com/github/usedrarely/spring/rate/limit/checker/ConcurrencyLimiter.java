@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+/**
+ * Limits number of executions of the same key running at the same time.
+ * <p/>
+ * Unlike {@link RateChecker}, permits are returned when execution completes, by releasing {@link ConcurrencyLease}.
+ * Distributed implementations free leases that are not released in time, so slots held by crashed nodes are not lost.
+ *
+ * @author franjozilic
+ */
+public interface ConcurrencyLimiter {
+
+  /**
+   * Takes one of slots of key, if one is free
+   *
+   * @param key           rate limiting key
+   * @param maxConcurrent maximum number of executions running at the same time
+   * @param leaseNanos    time in nanoseconds after which slot is freed if lease is never released
+   * @return lease to release once execution completes, {@code null} if all slots are taken
+   */
+  ConcurrencyLease tryAcquire(String key, long maxConcurrent, long leaseNanos);
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+/**
+ * Rate limit checker that checks chain of keys, for example user within tenant within all users, in single atomic operation.
+ * <p/>
+ * Execution takes permits from all keys or from none of them, so inner key that rejects execution
+ * doesn't leave permits consumed in outer keys, as checking each key on its own would.
+ * Distributed checkers keep all keys of chain together, for example in the same Redis Cluster slot, see {@link WindowKeys#chainKeys(String[])}.
+ *
+ * @author franjozilic
+ */
+public interface KeyChainRateChecker extends MultiWindowRateChecker {
+
+  /**
+   * Register execution and check if execution can proceed according to limits of all keys
+   *
+   * @param keys         keys from innermost to outermost, one for each limit, key with more windows is repeated for each of them
+   * @param permits      number of permits execution takes, at least 1
+   * @param maxRequests  maximum number of permits of each key, the same length as keys
+   * @param windowsNanos window length of each key in nanoseconds, the same length as keys
+   * @return decision with state of strictest limit, see {@link AcquireResult#strictest(java.util.List)}
+   */
+  AcquireResult acquire(String[] keys, long permits, long[] maxRequests, long[] windowsNanos);
+
+}
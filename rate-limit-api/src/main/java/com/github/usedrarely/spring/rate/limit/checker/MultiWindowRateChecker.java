@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+/**
+ * Rate limit checker that checks several windows of the same key in single atomic operation.
+ * <p/>
+ * Execution takes permits from all windows or from none of them, so window that rejects execution
+ * doesn't leave permits consumed in other windows, as checking each window on its own would.
+ * State of each window is stored under key of {@link WindowKeys#key(String, int)}, unless checker keeps all windows in single state.
+ *
+ * @author franjozilic
+ */
+public interface MultiWindowRateChecker extends PermitRateChecker {
+
+  /**
+   * Register execution and check if execution can proceed according to all limits
+   *
+   * @param key          rate limiting key
+   * @param permits      number of permits execution takes, at least 1
+   * @param maxRequests  maximum number of permits in each window
+   * @param windowsNanos length of each window in nanoseconds, the same length as maxRequests
+   * @return decision with state of strictest window, see {@link AcquireResult#strictest(java.util.List)}
+   */
+  AcquireResult acquire(String key, long permits, long[] maxRequests, long[] windowsNanos);
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Window of {@link PermitRateChecker} as {@link OptionsInterval}, so it can be passed to {@link RateChecker#check(String, Long, OptionsInterval)}.
+ *
+ * @author franjozilic
+ */
+public final class NanosInterval implements OptionsInterval {
+
+  private final Long nanos;
+
+  private NanosInterval(final long nanos) {
+    this.nanos = nanos;
+  }
+
+  /**
+   * @param nanos length of window in nanoseconds
+   * @return interval of given length
+   */
+  public static NanosInterval of(final long nanos) {
+    return new NanosInterval(nanos);
+  }
+
+  @Override
+  public Long interval() {
+    return nanos;
+  }
+
+  @Override
+  public TimeUnit unit() {
+    return TimeUnit.NANOSECONDS;
+  }
+
+}
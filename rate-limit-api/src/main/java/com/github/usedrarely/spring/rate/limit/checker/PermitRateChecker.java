@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+/**
+ * Rate limit checker with primitive arguments.
+ * <p/>
+ * Used instead of {@link RateChecker#check(String, Long, com.github.usedrarely.spring.rate.limit.options.OptionsInterval)}
+ * so no boxing or time unit conversion is needed on each call.
+ * See {@link AbstractPermitRateChecker} for adapter to {@link RateChecker}.
+ *
+ * @author franjozilic
+ */
+public interface PermitRateChecker extends RateChecker {
+
+  /**
+   * Register execution and check if execution can proceed according to current limit
+   *
+   * @param key         rate limiting key
+   * @param permits     number of permits execution takes, at least 1
+   * @param maxRequests maximum number of permits in window
+   * @param windowNanos window length in nanoseconds
+   * @return true if permits were acquired, false otherwise
+   */
+  boolean tryAcquire(String key, long permits, long maxRequests, long windowNanos);
+
+  /**
+   * Register execution and check if execution can proceed according to current limit
+   *
+   * @param key         rate limiting key
+   * @param permits     number of permits execution takes, at least 1
+   * @param maxRequests maximum number of permits in window
+   * @param windowNanos window length in nanoseconds
+   * @return decision with state of limit after this execution, never null
+   */
+  AcquireResult acquire(String key, long permits, long maxRequests, long windowNanos);
+
+}
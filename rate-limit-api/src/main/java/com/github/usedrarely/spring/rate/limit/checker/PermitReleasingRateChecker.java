@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+/**
+ * Rate limit checker that takes back permits which were acquired, but never used.
+ * <p/>
+ * Used by checkers that acquire blocks of permits ahead of executions, so permits left in block are available to other nodes.
+ * Permits are returned only to the window they were acquired in, once it passes they stay counted.
+ *
+ * @author franjozilic
+ */
+public interface PermitReleasingRateChecker extends PermitRateChecker {
+
+  /**
+   * Returns unused permits of earlier acquisition
+   *
+   * @param key         rate limiting key
+   * @param permits     number of unused permits, at least 1
+   * @param maxRequests maximum number of permits in window, as when permits were acquired
+   * @param windowNanos window length in nanoseconds, as when permits were acquired
+   * @return state of limit after permits are returned, never null
+   */
+  AcquireResult release(String key, long permits, long maxRequests, long windowNanos);
+
+}
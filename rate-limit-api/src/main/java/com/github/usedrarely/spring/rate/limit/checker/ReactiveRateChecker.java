@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking rate limit checker for Project Reactor.
+ * <p/>
+ * Used by rate limiting advice for methods returning {@code Mono} or {@code Flux}, so check never blocks
+ * calling thread. Requires Reactor on class path.
+ *
+ * @author franjozilic
+ */
+public interface ReactiveRateChecker {
+
+  /**
+   * Register execution and check if execution can proceed according to current limit, when returned mono is subscribed
+   *
+   * @param key         rate limiting key
+   * @param permits     number of permits execution takes, at least 1
+   * @param maxRequests maximum number of permits in window
+   * @param windowNanos window length in nanoseconds
+   * @return decision with state of limit after this execution
+   */
+  Mono<AcquireResult> acquireReactive(String key, long permits, long maxRequests, long windowNanos);
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.checker;
+
+/**
+ * Keys of individual windows when one rate limiting key has more then one limit.
+ * <p/>
+ * First window uses rate limiting key itself, so adding limits doesn't reset state of existing one.
+ * Keys of other windows have the same Redis Cluster hash tag as rate limiting key, so all windows of key are in the same slot.
+ * <p/>
+ * Keys of chain ({@link KeyChainRateChecker}) are all moved to slot of outermost key, so the whole chain can be checked in one script.
+ * Slot of outermost key gets the traffic of all inner keys, which is the cost of checking the chain atomically.
+ * Inner key that doesn't have hash tag of outermost key is renamed to <code>{tag}:key</code>, so its state in chain is
+ * separate from its state when it is checked alone, and adding parents to a limit starts it from scratch.
+ * This is intended, keys that should keep their state in a chain use hash tag of outermost key, for example
+ * <code>{tenant}:user</code> with parent <code>{tenant}</code>.
+ *
+ * @author franjozilic
+ */
+public final class WindowKeys {
+
+  private WindowKeys() {
+  }
+
+  /**
+   * @param key    rate limiting key
+   * @param window index of window, starting with {@code 0}
+   * @return key of window
+   */
+  public static String key(final String key, final int window) {
+    if (window == 0) {
+      return key;
+    }
+    return hasHashTag(key) ? key + ':' + window : '{' + key + "}:" + window;
+  }
+
+  /**
+   * @param key     rate limiting key
+   * @param windows number of windows
+   * @return keys of all windows
+   */
+  public static String[] keys(final String key, final int windows) {
+    final String[] keys = new String[windows];
+    for (int idx = 0; idx < windows; idx++) {
+      keys[idx] = key(key, idx);
+    }
+    return keys;
+  }
+
+  /**
+   * Redis Cluster hash tag of key, part of key between first <code>{</code> and following <code>}</code> if it is not empty
+   *
+   * @param key key
+   * @return part of key used to select cluster slot, whole key if it has no hash tag
+   */
+  public static String hashTag(final String key) {
+    final int start = key.indexOf('{');
+    if (start >= 0) {
+      final int end = key.indexOf('}', start + 1);
+      if (end > start + 1) {
+        return key.substring(start + 1, end);
+      }
+    }
+    return key;
+  }
+
+  /**
+   * Keys of windows of chain, in the same slot as outermost key
+   *
+   * @param keys keys from innermost to outermost, key with more windows is repeated for each of them
+   * @return keys of all windows, see {@link #key(String, int)} and {@link #sameSlot(String[])}
+   */
+  public static String[] chainKeys(final String[] keys) {
+    final String[] windowKeys = new String[keys.length];
+    for (int idx = 0; idx < keys.length; idx++) {
+      int window = 0;
+      for (int previous = 0; previous < idx; previous++) {
+        if (keys[previous].equals(keys[idx])) {
+          window++;
+        }
+      }
+      windowKeys[idx] = key(keys[idx], window);
+    }
+    return sameSlot(windowKeys);
+  }
+
+  /**
+   * Keys prefixed with hash tag of last key, unless they are already in its slot
+   * <p/>
+   * Prefixed key is a different key, counters kept under original key are not used by it.
+   *
+   * @param keys keys from innermost to outermost
+   * @return keys in Redis Cluster slot of last key
+   */
+  public static String[] sameSlot(final String[] keys) {
+    final String tag = hashTag(keys[keys.length - 1]);
+    final String[] slotKeys = new String[keys.length];
+    for (int idx = 0; idx < keys.length; idx++) {
+      slotKeys[idx] = hashTag(keys[idx]).equals(tag) ? keys[idx] : '{' + tag + "}:" + keys[idx];
+    }
+    return slotKeys;
+  }
+
+  private static boolean hasHashTag(final String key) {
+    final int start = key.indexOf('{');
+    return start >= 0 && key.indexOf('}', start + 1) > start + 1;
+  }
+
+}
@@ -17,18 +17,39 @@
 
 package com.github.usedrarely.spring.rate.limit.exception;
 
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+
 /**
+ * Thrown when execution is rejected by rate limit.
+ * <p/>
+ * Carries result of last check, when available, so callers can back off until {@link AcquireResult#retryAfter()}.
+ *
  * @author franjozilic
  */
 @SuppressWarnings("serial")
 public class RateLimitExceededException extends RateLimitException {
 
+  private final transient AcquireResult result;
+
   public RateLimitExceededException(final String message) {
+    this(message, (AcquireResult) null);
+  }
+
+  public RateLimitExceededException(final String message, final AcquireResult result) {
     super(message);
+    this.result = result;
   }
 
   public RateLimitExceededException(final String message, final Throwable cause) {
     super(message, cause);
+    this.result = null;
+  }
+
+  /**
+   * @return result of last rate limit check, {@code null} if not available
+   */
+  public AcquireResult result() {
+    return result;
   }
 
 }
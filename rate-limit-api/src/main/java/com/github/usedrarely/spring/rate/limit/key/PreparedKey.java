@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.key;
+
+import org.aspectj.lang.JoinPoint;
+
+/**
+ * Key generation prepared for single advised method.
+ * <p/>
+ * Created once per method by {@link PreparedKeyGenerator}, so everything that doesn't depend on invocation is resolved only once.
+ *
+ * @author franjozilic
+ */
+public interface PreparedKey {
+
+  /**
+   * Key that is the same for every invocation of method
+   *
+   * @return key, or null when key depends on invocation
+   */
+  String staticKey();
+
+  /**
+   * Generated or resolved key for invocation
+   *
+   * @param joinPoint join point of advised method
+   * @return generated or resolved key, never null or empty
+   */
+  String key(JoinPoint joinPoint);
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.key;
+
+import com.github.usedrarely.spring.rate.limit.RateLimited;
+import java.lang.reflect.Method;
+
+/**
+ * Key generator that can prepare key generation for method ahead of invocation.
+ * <p/>
+ * Used instead of {@link KeyGenerator#key(String, String, org.aspectj.lang.JoinPoint)}
+ * when rate limiting advice caches per method invocation plan.
+ *
+ * @author franjozilic
+ */
+public interface PreparedKeyGenerator extends KeyGenerator {
+
+  /**
+   * Prepare key generation for method
+   *
+   * @param key           key from {@link RateLimited#key()}
+   * @param keyExpression key expression from {@link RateLimited#keyExpression()}
+   * @param type          target class
+   * @param method        most specific advised method
+   * @return prepared key, never null
+   */
+  PreparedKey prepare(String key, String keyExpression, Class<?> type, Method method);
+
+}
@@ -17,6 +17,8 @@
 
 package com.github.usedrarely.spring.rate.limit.options;
 
+import java.util.List;
+
 /**
  * Common interface used to describe {@link com.github.usedrarely.spring.rate.limit.RateLimited} behaviour.
  * <p/>
@@ -35,6 +37,44 @@ public interface Options {
    */
   boolean blocked();
 
+  /**
+   * Token bucket configuration.
+   * See {@link OptionsBucket}
+   * <p/>
+   * Used only by {@link com.github.usedrarely.spring.rate.limit.checker.BucketRateChecker},
+   * when not configured bucket has capacity of {@link #maxRequests()} and is refilled every {@link #interval()}.
+   *
+   * @return bucket configuration, {@code null} if not configured
+   */
+  OptionsBucket bucket();
+
+  /**
+   * Number of permits each call takes.
+   * Not used when {@link #costExpression()} is configured.
+   *
+   * @return number of permits, {@code 1} if not configured
+   */
+  Long cost();
+
+  /**
+   * SpEL expression to compute number of permits from arguments of call,
+   * see {@link com.github.usedrarely.spring.rate.limit.RateLimited#costExpression()}
+   *
+   * @return expression, {@code null} if cost is constant
+   */
+  String costExpression();
+
+  /**
+   * Limit of executions running at the same time.
+   * See {@link OptionsConcurrency}
+   * <p/>
+   * Used only when {@link com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLimiter} is configured,
+   * execution takes a slot only after rate limit allows it.
+   *
+   * @return concurrency limit, {@code null} if not configured
+   */
+  OptionsConcurrency concurrency();
+
   /**
    * Use to enable/disable rate limiting on annotated call.
    * Not used with {@link com.github.usedrarely.spring.rate.limit.RateLimited.Configuration#ANNOTATION}.
@@ -59,6 +99,28 @@ public interface Options {
    */
   Long maxRequests();
 
+  /**
+   * All limits of annotated call, first one is {@link #maxRequests()} in {@link #interval()}.
+   * See {@link OptionsLimit}
+   * <p/>
+   * Execution is allowed only if all limits allow it, checkers that support it check all of them in one operation,
+   * see {@link com.github.usedrarely.spring.rate.limit.checker.MultiWindowRateChecker}.
+   *
+   * @return limits, at least one if rate limiting is enabled
+   */
+  List<OptionsLimit> limits();
+
+  /**
+   * Limits of enclosing scopes, from innermost to outermost, one for each of {@link com.github.usedrarely.spring.rate.limit.RateLimited#parents()}.
+   * <p/>
+   * Keys of scopes are generated together with {@link #resolvedKey()}, scopes without limit are not checked.
+   * Checkers that support it check the whole chain of keys in one operation,
+   * see {@link com.github.usedrarely.spring.rate.limit.checker.KeyChainRateChecker}.
+   *
+   * @return limits of scopes, empty if there are none
+   */
+  List<OptionsLimit> parents();
+
   /**
    * Resolved key for rate limiting.
    * Can be original value, or mapped value.
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.options;
+
+/**
+ * Common interface used to describe token bucket.
+ * <p/>
+ * Bucket holds up to {@link #capacity()} tokens, each execution takes one token.
+ * Bucket is refilled with {@link #refillTokens()} tokens every {@link #refillInterval()},
+ * so capacity limits burst size, while refill sets sustained rate.
+ *
+ * @author franjozilic
+ */
+public interface OptionsBucket {
+
+  /**
+   * Maximum number of tokens in bucket, ie. largest burst of executions
+   *
+   * @return bucket capacity, never {@code null}
+   */
+  Long capacity();
+
+  /**
+   * Number of tokens added to bucket every {@link #refillInterval()}
+   *
+   * @return number of refilled tokens, never {@code null}
+   */
+  Long refillTokens();
+
+  /**
+   * Interval specification for refill.
+   * See {@link OptionsInterval}
+   *
+   * @return refill interval, never {@code null}
+   */
+  OptionsInterval refillInterval();
+
+}
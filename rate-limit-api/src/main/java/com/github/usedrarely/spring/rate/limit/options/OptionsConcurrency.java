@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.options;
+
+/**
+ * Common interface used to describe limit of executions running at the same time.
+ * <p/>
+ * See {@link Options#concurrency()}
+ *
+ * @author franjozilic
+ */
+public interface OptionsConcurrency {
+
+  /**
+   * Maximum number of executions of key running at the same time
+   *
+   * @return maximum number of executions, never {@code null}
+   */
+  Long maxConcurrent();
+
+  /**
+   * Time after which lease of execution is freed even if it's never released.
+   * See {@link OptionsInterval}
+   * <p/>
+   * Leases are not renewed, execution running longer then lease loses its slot and another execution can take it,
+   * lease should be longer then the longest execution.
+   *
+   * @return lease interval, never {@code null}
+   */
+  OptionsInterval lease();
+
+}
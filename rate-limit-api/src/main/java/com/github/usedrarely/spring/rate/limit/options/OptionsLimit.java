@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.options;
+
+/**
+ * Common interface used to describe single limit, ie. maximum number of requests in time interval.
+ * <p/>
+ * See {@link Options#limits()}
+ *
+ * @author franjozilic
+ */
+public interface OptionsLimit {
+
+  /**
+   * Maximum number of requests in time interval defined by {@link #interval()}
+   *
+   * @return maximum number of requests, never {@code null}
+   */
+  Long maxRequests();
+
+  /**
+   * Interval of this limit.
+   * See {@link OptionsInterval}
+   *
+   * @return interval, never {@code null}
+   */
+  OptionsInterval interval();
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.options;
+
+/**
+ * Options with values precomputed as primitives.
+ * <p/>
+ * Used by rate limiting advice with {@link com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker},
+ * so nothing has to be unboxed or converted on each call.
+ * Values are valid only when options are {@link #enabled()}.
+ *
+ * @author franjozilic
+ */
+public interface PrimitiveOptions extends Options {
+
+  /**
+   * @return {@link #maxRequests()} as primitive
+   */
+  long maxRequestCount();
+
+  /**
+   * @return {@link #interval()} in nanoseconds
+   */
+  long intervalNanos();
+
+  /**
+   * @return {@link #cost()} as primitive
+   */
+  long costPermits();
+
+  /**
+   * Shared array, must not be modified
+   *
+   * @return maximum number of requests of each of {@link #limits()}
+   */
+  long[] maxRequestCounts();
+
+  /**
+   * Shared array, must not be modified
+   *
+   * @return interval of each of {@link #limits()} in nanoseconds
+   */
+  long[] intervalsNanos();
+
+  /**
+   * @return {@link OptionsRetry#retryCount()}, {@code 0} when retry is not enabled
+   */
+  int retries();
+
+  /**
+   * @return {@link OptionsRetry#retryInterval()} in milliseconds, {@code 0} when retry is not enabled
+   */
+  long retryIntervalMillis();
+
+}
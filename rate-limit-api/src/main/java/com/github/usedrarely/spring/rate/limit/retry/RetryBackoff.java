@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.retry;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+
+/**
+ * Policy calculating how long rejected execution waits before next attempt.
+ * <p/>
+ * Rate limiting advice doesn't wait longer in total then retry count times retry interval,
+ * attempts that would need longer wait then what is left fail immediately.
+ *
+ * @author franjozilic
+ */
+public interface RetryBackoff {
+
+  /**
+   * @param attempt             number of retry, starting with {@code 1}
+   * @param retryIntervalMillis configured retry interval in milliseconds
+   * @param result              result of rejected check
+   * @return milliseconds to wait before next check, {@link AcquireResult#NEVER} if retry can't succeed
+   */
+  long delay(int attempt, long retryIntervalMillis, AcquireResult result);
+
+}
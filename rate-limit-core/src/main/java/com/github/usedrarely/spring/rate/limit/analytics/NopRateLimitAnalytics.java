@@ -17,6 +17,7 @@
 package com.github.usedrarely.spring.rate.limit.analytics;
 
 import com.github.usedrarely.spring.rate.limit.RateLimited;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
 import com.github.usedrarely.spring.rate.limit.options.Options;
 import org.aspectj.lang.JoinPoint;
 
@@ -26,12 +27,16 @@ public class NopRateLimitAnalytics implements RateLimitAnalytics {
   public void blocked(final JoinPoint joinPoint, final RateLimited rateLimited, final String key, final Options options) {
   }
 
+  @Override
+  public void concurrencyExceeded(final JoinPoint joinPoint, final RateLimited rateLimited, final String key, final Options options) {
+  }
+
   @Override
   public void disabled(final JoinPoint joinPoint, final RateLimited rateLimited, final String key, final Options options) {
   }
 
   @Override
-  public void exceeded(final JoinPoint joinPoint, final RateLimited rateLimited, final String key, final Options options, final Integer remainingCount) {
+  public void exceeded(final JoinPoint joinPoint, final RateLimited rateLimited, final String key, final Options options, final AcquireResult result) {
   }
 
   @Override
@@ -39,7 +44,7 @@ public class NopRateLimitAnalytics implements RateLimitAnalytics {
   }
 
   @Override
-  public void succeeded(final JoinPoint joinPoint, final RateLimited rateLimited, final String key, final Options options, final Integer remainingCount) {
+  public void succeeded(final JoinPoint joinPoint, final RateLimited rateLimited, final String key, final Options options, final AcquireResult result) {
   }
 
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.aspect;
+
+/**
+ * Future returned to caller of asynchronous rate limited method, completed once rate limit is checked and method completes.
+ *
+ * @author franjozilic
+ */
+interface AsyncCompletion {
+
+  /**
+   * @return future of the type rate limited method returns
+   */
+  Object future();
+
+  /**
+   * @return true if future is already completed or cancelled by caller
+   */
+  boolean isDone();
+
+  /**
+   * Completes future with the result of future returned by rate limited method
+   *
+   * @param returned future returned by method, may be null
+   */
+  void complete(Object returned);
+
+  void fail(Throwable throwable);
+
+  /**
+   * Registers callback run once future is completed, failed or cancelled by caller
+   *
+   * @param callback callback, run immediately if future is already done
+   */
+  void onDone(Runnable callback);
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.aspect;
+
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Asynchronous return types rate limited without blocking caller.
+ * <p/>
+ * Java 8 types are matched by name, so they are never loaded on older runtime.
+ *
+ * @author franjozilic
+ */
+enum AsyncReturnType {
+
+  COMPLETABLE_FUTURE {
+    @Override
+    AsyncCompletion completion() {
+      return new CompletableFutureCompletion();
+    }
+  },
+
+  LISTENABLE_FUTURE {
+    @Override
+    AsyncCompletion completion() {
+      return new ListenableFutureCompletion();
+    }
+  };
+
+  abstract AsyncCompletion completion();
+
+  /**
+   * @param returnType return type of rate limited method
+   * @return asynchronous type, or null if method has to be rate limited synchronously
+   */
+  static AsyncReturnType of(final Class<?> returnType) {
+    final String name = returnType.getName();
+    if ("java.util.concurrent.CompletableFuture".equals(name) || "java.util.concurrent.CompletionStage".equals(name)) {
+      return COMPLETABLE_FUTURE;
+    }
+    if (returnType == ListenableFuture.class || returnType == SettableListenableFuture.class) {
+      return LISTENABLE_FUTURE;
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.aspect;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+
+/**
+ * Completion of methods returning {@link CompletableFuture} or {@link CompletionStage}.
+ * <p/>
+ * Loaded only when running on Java 8 or later.
+ *
+ * @author franjozilic
+ */
+final class CompletableFutureCompletion implements AsyncCompletion {
+
+  private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+  @Override
+  public Object future() {
+    return future;
+  }
+
+  @Override
+  public boolean isDone() {
+    return future.isDone();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void complete(final Object returned) {
+    if (returned == null) {
+      future.complete(null);
+      return;
+    }
+    ((CompletionStage<Object>) returned).whenComplete(new BiConsumer<Object, Throwable>() {
+      @Override
+      public void accept(final Object value, final Throwable throwable) {
+        if (throwable != null) {
+          future.completeExceptionally(throwable);
+        }
+        else {
+          future.complete(value);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void fail(final Throwable throwable) {
+    future.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onDone(final Runnable callback) {
+    future.whenComplete(new BiConsumer<Object, Throwable>() {
+      @Override
+      public void accept(final Object value, final Throwable throwable) {
+        callback.run();
+      }
+    });
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.aspect;
+
+import com.github.usedrarely.spring.rate.limit.RateLimited;
+import com.github.usedrarely.spring.rate.limit.key.PreparedKey;
+import com.github.usedrarely.spring.rate.limit.options.Options;
+import java.lang.reflect.Method;
+import org.aspectj.lang.JoinPoint;
+
+/**
+ * Immutable invocation plan of single rate limited method.
+ * <p/>
+ * Created by {@link RateLimitingAdvice} on first invocation of method and reused for all later invocations,
+ * so annotation lookup, key preparation and (for non dynamic resolvers with static key) option resolution happen only once.
+ *
+ * @author franjozilic
+ */
+final class LimiterPlan {
+
+  private final String typeName;
+
+  private final String methodName;
+
+  private final Method method;
+
+  private final RateLimited rateLimited;
+
+  private final PreparedKey preparedKey;
+
+  private final PreparedKey[] parentKeys;
+
+  private final Options staticOptions;
+
+  private final AsyncReturnType asyncType;
+
+  private final ReactiveReturnType reactiveType;
+
+  LimiterPlan(final String typeName, final Method method, final RateLimited rateLimited,
+              final PreparedKey preparedKey, final PreparedKey[] parentKeys, final Options staticOptions,
+              final AsyncReturnType asyncType, final ReactiveReturnType reactiveType) {
+    this.typeName = typeName;
+    this.methodName = method.getName();
+    this.method = method;
+    this.rateLimited = rateLimited;
+    this.preparedKey = preparedKey;
+    this.parentKeys = parentKeys;
+    this.staticOptions = staticOptions;
+    this.asyncType = asyncType;
+    this.reactiveType = reactiveType;
+  }
+
+  String typeName() {
+    return typeName;
+  }
+
+  String methodName() {
+    return methodName;
+  }
+
+  /**
+   * @return most specific advised method
+   */
+  Method method() {
+    return method;
+  }
+
+  RateLimited rateLimited() {
+    return rateLimited;
+  }
+
+  String key(final JoinPoint joinPoint) {
+    return preparedKey.key(joinPoint);
+  }
+
+  /**
+   * Keys of enclosing scopes, see {@link RateLimited#parents()}
+   *
+   * @param joinPoint join point of invocation
+   * @return keys from innermost to outermost, or null if method has no parent limits
+   */
+  String[] parentKeys(final JoinPoint joinPoint) {
+    if (parentKeys.length == 0) {
+      return null;
+    }
+    final String[] keys = new String[parentKeys.length];
+    for (int idx = 0; idx < keys.length; idx++) {
+      keys[idx] = parentKeys[idx].key(joinPoint);
+    }
+    return keys;
+  }
+
+  /**
+   * Options resolved when plan was created
+   *
+   * @return options, or null when options must be resolved for each invocation
+   */
+  Options staticOptions() {
+    return staticOptions;
+  }
+
+  /**
+   * @return asynchronous return type of method, or null if method is rate limited synchronously
+   */
+  AsyncReturnType asyncType() {
+    return asyncType;
+  }
+
+  /**
+   * @return reactive return type of method, or null if method is not reactive
+   */
+  ReactiveReturnType reactiveType() {
+    return reactiveType;
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.aspect;
+
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Completion of methods returning Spring {@link ListenableFuture}.
+ *
+ * @author franjozilic
+ */
+final class ListenableFutureCompletion implements AsyncCompletion {
+
+  private final SettableListenableFuture<Object> future = new SettableListenableFuture<>();
+
+  @Override
+  public Object future() {
+    return future;
+  }
+
+  @Override
+  public boolean isDone() {
+    return future.isDone();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void complete(final Object returned) {
+    if (returned == null) {
+      future.set(null);
+      return;
+    }
+    ((ListenableFuture<Object>) returned).addCallback(new ListenableFutureCallback<Object>() {
+      @Override
+      public void onSuccess(final Object value) {
+        future.set(value);
+      }
+
+      @Override
+      public void onFailure(final Throwable throwable) {
+        future.setException(throwable);
+      }
+    });
+  }
+
+  @Override
+  public void fail(final Throwable throwable) {
+    future.setException(throwable);
+  }
+
+  @Override
+  public void onDone(final Runnable callback) {
+    future.addCallback(new ListenableFutureCallback<Object>() {
+      @Override
+      public void onSuccess(final Object value) {
+        callback.run();
+      }
+
+      @Override
+      public void onFailure(final Throwable throwable) {
+        callback.run();
+      }
+    });
+  }
+
+}
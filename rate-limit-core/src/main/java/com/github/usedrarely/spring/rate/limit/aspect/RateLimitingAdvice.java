@@ -16,25 +16,110 @@
 
 package com.github.usedrarely.spring.rate.limit.aspect;
 
+import com.github.usedrarely.spring.rate.limit.ParentLimit;
 import com.github.usedrarely.spring.rate.limit.RateLimited;
 import com.github.usedrarely.spring.rate.limit.analytics.NopRateLimitAnalytics;
 import com.github.usedrarely.spring.rate.limit.analytics.RateLimitAnalytics;
+import com.github.usedrarely.spring.rate.limit.checker.AbstractPermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireRequest;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.BatchRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.BucketRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLease;
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLimiter;
+import com.github.usedrarely.spring.rate.limit.checker.KeyChainRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.MultiWindowRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
 import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.ReactiveRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.WindowKeys;
 import com.github.usedrarely.spring.rate.limit.exception.CallBlockedException;
+import com.github.usedrarely.spring.rate.limit.exception.ConcurrencyLimitExceededException;
 import com.github.usedrarely.spring.rate.limit.exception.RateLimitExceededException;
+import com.github.usedrarely.spring.rate.limit.key.ExpressionCostEvaluator;
 import com.github.usedrarely.spring.rate.limit.key.KeyGenerator;
+import com.github.usedrarely.spring.rate.limit.key.PreparedKey;
+import com.github.usedrarely.spring.rate.limit.key.PreparedKeyGenerator;
+import com.github.usedrarely.spring.rate.limit.options.InternalOptions;
 import com.github.usedrarely.spring.rate.limit.options.Options;
+import com.github.usedrarely.spring.rate.limit.options.OptionsConcurrency;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import com.github.usedrarely.spring.rate.limit.options.OptionsLimit;
 import com.github.usedrarely.spring.rate.limit.options.OptionsResolver;
+import com.github.usedrarely.spring.rate.limit.options.PrimitiveOptions;
+import com.github.usedrarely.spring.rate.limit.retry.RetryAfterBackoff;
+import com.github.usedrarely.spring.rate.limit.retry.RetryBackoff;
+import com.github.usedrarely.spring.rate.limit.retry.RetryWaiters;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.MethodClassKey;
+import org.springframework.util.CustomizableThreadCreator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 
 import static com.github.usedrarely.spring.rate.limit.util.JoinPointUtil.findAnnotation;
-import static com.github.usedrarely.spring.rate.limit.util.JoinPointUtil.methodName;
-import static com.github.usedrarely.spring.rate.limit.util.JoinPointUtil.typeName;
+import static com.github.usedrarely.spring.rate.limit.util.JoinPointUtil.method;
+import static com.github.usedrarely.spring.rate.limit.util.JoinPointUtil.type;
 
+/**
+ * Rate limiting advice for methods and types annotated with {@link RateLimited}.
+ * <p/>
+ * Annotations, key preparation and, when possible, options are resolved on first invocation of each method
+ * and kept in {@link LimiterPlan} for all later invocations.
+ * <p/>
+ * Rejected executions are retried after wait calculated by {@link RetryBackoff}, total wait never exceeds
+ * retry count times retry interval and execution fails as soon as required wait doesn't fit in what is left.
+ * Number of threads waiting at the same time can be limited with {@link RetryWaiters}.
+ * <p/>
+ * Methods with more then one limit are checked in single atomic operation by {@link MultiWindowRateChecker},
+ * other checkers check each limit on its own, with {@link BatchRateChecker#checkAll(java.util.Collection)} when available.
+ * Limits of enclosing scopes ({@link RateLimited#parents()}) are checked together with them, atomically by {@link KeyChainRateChecker}.
+ * Each call takes number of permits given by {@link Options#cost()} or {@link Options#costExpression()} in single acquisition,
+ * only checkers that don't support permits are checked once per permit.
+ * <p/>
+ * With {@link ConcurrencyLimiter} and {@link Options#concurrency()} configured, execution takes lease on one of slots of its key
+ * before rate limit is checked, so rejected execution spends no permits, and holds it while retrying and until method,
+ * or future or publisher it returns, completes. Execution fails with {@link ConcurrencyLimitExceededException} if all slots are taken.
+ * <p/>
+ * Methods returning {@code CompletableFuture}, {@code CompletionStage} or {@code ListenableFuture} never block caller,
+ * checks run on shared check executor, retries are delayed on shared scheduler and returned future completes with result of method,
+ * or fails with {@link RateLimitExceededException} or {@link CallBlockedException}.
+ * Such methods are invoked on thread of check executor, thread bound context of caller (security, transaction, logging)
+ * is not available to them unless executor propagates it.
+ * <p/>
+ * Methods returning Reactor {@code Mono} or {@code Flux} are rate limited on subscription, using {@link ReactiveRateChecker}
+ * when available, and retries are delayed without blocking.
+ *
+ * @author franjozilic
+ */
 @Aspect
 public class RateLimitingAdvice {
 
@@ -46,12 +131,32 @@ public class RateLimitingAdvice {
 
   private final RateChecker rateChecker;
 
+  private final PermitRateChecker permitRateChecker;
+
   private final RateLimitAnalytics analytics;
 
+  private final ConcurrentMap<MethodClassKey, LimiterPlan> plans = new ConcurrentHashMap<>();
+
+  private RetryBackoff retryBackoff = new RetryAfterBackoff();
+
+  private RetryWaiters retryWaiters;
+
+  private volatile ScheduledExecutorService scheduler;
+
+  private volatile Executor checkExecutor;
+
+  private ReactiveRateChecker reactiveRateChecker;
+
+  private ExpressionCostEvaluator costEvaluator = new ExpressionCostEvaluator();
+
+  private ConcurrencyLimiter concurrencyLimiter;
+
   public RateLimitingAdvice(final KeyGenerator keyGenerator, final OptionsResolver configurationResolver, final RateChecker rateChecker) {
     this.configurationResolver = configurationResolver;
     this.keyGenerator = keyGenerator;
     this.rateChecker = rateChecker;
+    this.permitRateChecker = rateChecker instanceof PermitRateChecker ? (PermitRateChecker) rateChecker : null;
+    this.reactiveRateChecker = rateChecker instanceof ReactiveRateChecker ? (ReactiveRateChecker) rateChecker : null;
     this.analytics = new NopRateLimitAnalytics();
   }
 
@@ -59,60 +164,799 @@ public class RateLimitingAdvice {
     this.configurationResolver = configurationResolver;
     this.keyGenerator = keyGenerator;
     this.rateChecker = rateChecker;
+    this.permitRateChecker = rateChecker instanceof PermitRateChecker ? (PermitRateChecker) rateChecker : null;
+    this.reactiveRateChecker = rateChecker instanceof ReactiveRateChecker ? (ReactiveRateChecker) rateChecker : null;
     this.analytics = analytics;
   }
 
+  /**
+   * Sets policy calculating wait before retry, by default wait time reported by checker is used
+   * and checkers that don't report it are retried in configured interval.
+   *
+   * @param retryBackoff retry policy
+   */
+  public void setRetryBackoff(final RetryBackoff retryBackoff) {
+    this.retryBackoff = retryBackoff;
+  }
+
+  /**
+   * Limits number of threads waiting for retries at the same time, by default number of waiting threads is not limited.
+   *
+   * @param retryWaiters waiter limits and counts, shared by all rate limited methods
+   */
+  public void setRetryWaiters(final RetryWaiters retryWaiters) {
+    this.retryWaiters = retryWaiters;
+  }
+
+  /**
+   * Sets executor delaying retries of methods returning {@code CompletableFuture}, {@code CompletionStage} or {@code ListenableFuture},
+   * it only hands delayed attempts over to check executor and never blocks.
+   * <p/>
+   * By default daemon thread pool with one thread per processor is created on first asynchronous retry.
+   *
+   * @param scheduler executor shared by all asynchronous rate limited methods
+   */
+  public void setScheduler(final ScheduledExecutorService scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Sets executor running rate limit checks, and then allowed methods, returning {@code CompletableFuture},
+   * {@code CompletionStage} or {@code ListenableFuture}. Checks may block on network, executor should be sized for that.
+   * Methods run on its threads, executor can propagate context of caller to them, for example by decorating submitted tasks.
+   * <p/>
+   * By default daemon thread pool with two threads per processor and queue of 10000 attempts is created on first asynchronous invocation,
+   * invocations that don't fit fail with {@link RejectedExecutionException}.
+   *
+   * @param checkExecutor executor shared by all asynchronous rate limited methods
+   */
+  public void setCheckExecutor(final Executor checkExecutor) {
+    this.checkExecutor = checkExecutor;
+  }
+
+  /**
+   * Sets checker used for methods returning {@code Mono} or {@code Flux}, by default rate checker is used
+   * if it is reactive. Without reactive checker checks of reactive methods run on Reactor elastic scheduler.
+   *
+   * @param reactiveRateChecker non-blocking checker
+   */
+  public void setReactiveRateChecker(final ReactiveRateChecker reactiveRateChecker) {
+    this.reactiveRateChecker = reactiveRateChecker;
+  }
+
+  /**
+   * Sets evaluator of cost expressions, see {@link RateLimited#costExpression()}.
+   *
+   * @param costEvaluator evaluator shared by all rate limited methods
+   */
+  public void setCostEvaluator(final ExpressionCostEvaluator costEvaluator) {
+    this.costEvaluator = costEvaluator;
+  }
+
+  /**
+   * Sets limiter of executions running at the same time, used for methods with {@link Options#concurrency()}.
+   * By default number of running executions is not limited.
+   *
+   * @param concurrencyLimiter limiter shared by all rate limited methods
+   */
+  public void setConcurrencyLimiter(final ConcurrencyLimiter concurrencyLimiter) {
+    this.concurrencyLimiter = concurrencyLimiter;
+  }
+
   @Around("@annotation(com.github.usedrarely.spring.rate.limit.RateLimited) || @within(com.github.usedrarely.spring.rate.limit.RateLimited)")
   public Object rateLimit(final ProceedingJoinPoint joinPoint) throws Throwable {
-    log.trace("@RateLimited attempting to execute method: {}.{}", typeName(joinPoint), methodName(joinPoint));
+    final LimiterPlan plan = plan(joinPoint);
+    log.trace("@RateLimited attempting to execute method: {}.{}", plan.typeName(), plan.methodName());
 
-    final RateLimited rateLimited = findAnnotation(joinPoint, RateLimited.class);
-    final String key = keyGenerator.key(rateLimited.key(), rateLimited.keyExpression(), joinPoint);
-    final Options options = configurationResolver.resolve(key, joinPoint);
+    final RateLimited rateLimited = plan.rateLimited();
+    final String key = plan.key(joinPoint);
+    final Options options = plan.staticOptions() != null ? plan.staticOptions() : configurationResolver.resolve(key, joinPoint);
 
     if (options.blocked()) {
-      log.info("@RateLimited method {}.{} execution is blocked.", typeName(joinPoint), methodName(joinPoint));
+      log.info("@RateLimited method {}.{} execution is blocked.", plan.typeName(), plan.methodName());
       analytics.blocked(joinPoint, rateLimited, key, options);
-      throw new CallBlockedException("Execution is blocked by configuration");
+      final CallBlockedException exception = new CallBlockedException("Execution is blocked by configuration");
+      if (plan.asyncType() != null) {
+        final AsyncCompletion completion = plan.asyncType().completion();
+        completion.fail(exception);
+        return completion.future();
+      }
+      if (plan.reactiveType() != null) {
+        return new ReactiveInvocation(joinPoint, plan, key, options).error(exception);
+      }
+      throw exception;
     }
 
+    ConcurrencyLease lease = null;
     // skip disabled limiters
     if (options.enabled()) {
 
-      Boolean canExecute;
-      Integer retryCount = options.retryEnabled() ? options.retry().retryCount() + 1 : 1;
-      do {
-        canExecute = rateChecker.check(options.resolvedKey(), options.maxRequests(), options.interval());
+      final long cost = cost(plan, options, joinPoint);
+      if (plan.reactiveType() != null) {
+        return new ReactiveInvocation(joinPoint, plan, key, options).publisher(cost);
+      }
+
+      final RetryAttempts retry = new RetryAttempts(plan, options.resolvedKey(), retries(options), retryIntervalMillis(options),
+          retryBackoff, retryWaiters);
+
+      if (plan.asyncType() != null) {
+        final AsyncAttempt attempt = new AsyncAttempt(joinPoint, plan, key, options, cost, retry, plan.asyncType().completion());
+        schedule(attempt, 0L);
+        return attempt.completion.future();
+      }
 
-        if (!canExecute && options.retryEnabled()) {
-          log.trace("@RateLimited rate exceeded for method {}.{} retry enabled, retrying for {}", typeName(joinPoint),
-              methodName(joinPoint), retryCount);
+      // slot is taken before permits, so execution rejected by concurrency limit doesn't spend them
+      lease = lease(joinPoint, plan, key, options);
+      final String[] parentKeys = plan.parentKeys(joinPoint);
+      AcquireResult result = null;
+      try {
+        result = check(options, parentKeys, cost);
+        while (!result.allowed()) {
+          final long delay = retry.next(result);
+          if (delay < 0L) {
+            break;
+          }
           try {
-            Thread.sleep(options.retry().retryInterval().unit().toMillis(options.retry().retryInterval().interval()));
+            Thread.sleep(delay);
           }
           catch (final InterruptedException exception) {
             log.error("@RateLimited execution retry was interrupted", exception);
             analytics.retryInterrupted(joinPoint, rateLimited, key, options);
             throw new RateLimitExceededException("Interrupted while retrying", exception);
           }
+          result = check(options, parentKeys, cost);
         }
-      } while (!canExecute && --retryCount > 0);
+      }
+      finally {
+        retry.close();
+        if (result == null || !result.allowed()) {
+          release(lease);
+        }
+      }
 
-      if (!canExecute) {
-        log.warn("@RateLimited rate exceeded for method {}.{}, tires {}", typeName(joinPoint),
-            methodName(joinPoint), options.retryEnabled() ? options.retry().retryCount() + 1 : 1);
-        analytics.exceeded(joinPoint, rateLimited, key, options, options.retryEnabled() ? options.retry().retryCount() + 1 : 1 - retryCount);
-        throw new RateLimitExceededException("Rate limit has been exceeded");
+      if (!result.allowed()) {
+        log.warn("@RateLimited rate exceeded for method {}.{}, tires {}", plan.typeName(), plan.methodName(), retry.attempts());
+        analytics.exceeded(joinPoint, rateLimited, key, options, result);
+        throw new RateLimitExceededException("Rate limit has been exceeded", result);
       }
 
-      analytics.succeeded(joinPoint, rateLimited, key, options, options.retryEnabled() ? options.retry().retryCount() + 1 : 1 - retryCount);
+      analytics.succeeded(joinPoint, rateLimited, key, options, result);
     }
     else {
-      log.info("@RateLimited method {}.{} execution is disabled.", typeName(joinPoint), methodName(joinPoint));
+      log.info("@RateLimited method {}.{} execution is disabled.", plan.typeName(), plan.methodName());
       analytics.disabled(joinPoint, rateLimited, key, options);
     }
 
-    return joinPoint.proceed();
+    if (lease == null) {
+      return joinPoint.proceed();
+    }
+    try {
+      return joinPoint.proceed();
+    }
+    finally {
+      release(lease);
+    }
+  }
+
+  /**
+   * Takes one of slots of key, before rate limit is checked
+   *
+   * @return lease to release once execution completes, {@code null} if concurrency is not limited
+   * @throws ConcurrencyLimitExceededException if all slots are taken
+   */
+  private ConcurrencyLease lease(final JoinPoint joinPoint, final LimiterPlan plan, final String key, final Options options) {
+    final OptionsConcurrency concurrency = options.concurrency();
+    if (concurrencyLimiter == null || concurrency == null) {
+      return null;
+    }
+    final OptionsInterval leaseInterval = concurrency.lease();
+    final ConcurrencyLease lease = concurrencyLimiter.tryAcquire(options.resolvedKey(), concurrency.maxConcurrent(),
+        leaseInterval.unit().toNanos(leaseInterval.interval()));
+    if (lease == null) {
+      log.warn("@RateLimited concurrency exceeded for method {}.{}", plan.typeName(), plan.methodName());
+      analytics.concurrencyExceeded(joinPoint, plan.rateLimited(), key, options);
+      throw new ConcurrencyLimitExceededException("Concurrency limit has been exceeded");
+    }
+    return lease;
+  }
+
+  /**
+   * Releases lease, failure to release it never replaces result or exception of execution
+   */
+  private static void release(final ConcurrencyLease lease) {
+    if (lease == null) {
+      return;
+    }
+    try {
+      lease.release();
+    }
+    catch (final RuntimeException exception) {
+      log.warn("@RateLimited concurrency lease was not released, it is freed when it expires", exception);
+    }
+  }
+
+  /**
+   * Scheduler only waits for delay, attempt itself always runs on check executor
+   */
+  private void schedule(final AsyncAttempt attempt, final long delay) {
+    if (delay <= 0L) {
+      execute(attempt);
+      return;
+    }
+    try {
+      scheduler().schedule(new Runnable() {
+        @Override
+        public void run() {
+          execute(attempt);
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    }
+    catch (final RejectedExecutionException exception) {
+      attempt.retry.close();
+      release(attempt.lease);
+      attempt.completion.fail(exception);
+    }
+  }
+
+  private void execute(final AsyncAttempt attempt) {
+    try {
+      checkExecutor().execute(attempt);
+    }
+    catch (final RejectedExecutionException exception) {
+      attempt.retry.close();
+      release(attempt.lease);
+      attempt.completion.fail(exception);
+    }
+  }
+
+  private ScheduledExecutorService scheduler() {
+    ScheduledExecutorService current = scheduler;
+    if (current == null) {
+      synchronized (this) {
+        current = scheduler;
+        if (current == null) {
+          current = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), threadFactory("rate-limit-"));
+          scheduler = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private Executor checkExecutor() {
+    Executor current = checkExecutor;
+    if (current == null) {
+      synchronized (this) {
+        current = checkExecutor;
+        if (current == null) {
+          final int threads = 2 * Runtime.getRuntime().availableProcessors();
+          current = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(10000),
+              threadFactory("rate-limit-check-"));
+          checkExecutor = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private static ThreadFactory threadFactory(final String prefix) {
+    final CustomizableThreadCreator threadCreator = new CustomizableThreadCreator(prefix);
+    threadCreator.setDaemon(true);
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        return threadCreator.createThread(runnable);
+      }
+    };
+  }
+
+  private LimiterPlan plan(final JoinPoint joinPoint) {
+    final Class<?> type = type(joinPoint);
+    final MethodClassKey planKey = new MethodClassKey(((MethodSignature) joinPoint.getSignature()).getMethod(), type);
+
+    LimiterPlan plan = plans.get(planKey);
+    if (plan == null) {
+      plan = createPlan(joinPoint, type);
+      final LimiterPlan existing = plans.putIfAbsent(planKey, plan);
+      if (existing != null) {
+        plan = existing;
+      }
+    }
+    return plan;
+  }
+
+  private LimiterPlan createPlan(final JoinPoint joinPoint, final Class<?> type) {
+    final Method method = method(joinPoint);
+    final RateLimited rateLimited = findAnnotation(joinPoint, RateLimited.class);
+
+    final PreparedKey preparedKey = prepareKey(rateLimited.key(), rateLimited.keyExpression(), type, method);
+    final ParentLimit[] parents = rateLimited.parents();
+    final PreparedKey[] parentKeys = new PreparedKey[parents.length];
+    for (int idx = 0; idx < parents.length; idx++) {
+      parentKeys[idx] = prepareKey(parents[idx].key(), parents[idx].keyExpression(), type, method);
+    }
+
+    // options of non dynamic resolver can't change, with static key they are the same for every invocation
+    Options staticOptions = null;
+    if (preparedKey.staticKey() != null && !configurationResolver.isDynamic()) {
+      staticOptions = configurationResolver.resolve(preparedKey.staticKey(), joinPoint);
+    }
+
+    return new LimiterPlan(type.getName(), method, rateLimited, preparedKey, parentKeys, staticOptions,
+        AsyncReturnType.of(method.getReturnType()), ReactiveReturnType.of(method.getReturnType()));
+  }
+
+  private PreparedKey prepareKey(final String key, final String keyExpression, final Class<?> type, final Method method) {
+    if (keyGenerator instanceof PreparedKeyGenerator) {
+      return ((PreparedKeyGenerator) keyGenerator).prepare(key, keyExpression, type, method);
+    }
+    return new GeneratedKey(key, keyExpression);
+  }
+
+  private AcquireResult check(final Options options, final String[] parentKeys, final long cost) {
+    // call that costs nothing is always allowed
+    if (cost == 0L) {
+      return AcquireResult.of(true);
+    }
+    // bucket configuration is used only by checkers that support it
+    if (options.bucket() != null && rateChecker instanceof BucketRateChecker) {
+      final BucketRateChecker bucketRateChecker = (BucketRateChecker) rateChecker;
+      return cost == 1L ? bucketRateChecker.acquire(options.resolvedKey(), options.bucket())
+          : bucketRateChecker.acquire(options.resolvedKey(), cost, options.bucket());
+    }
+    final int parents = parentCount(options, parentKeys);
+    if (parents > 0 || limitCount(options) > 1) {
+      return checkLimits(options, parentKeys, parents, cost);
+    }
+    if (permitRateChecker != null) {
+      return permitRateChecker.acquire(options.resolvedKey(), cost, maxRequests(options), intervalNanos(options));
+    }
+    // checkers without permits are checked once for each permit
+    return AcquireResult.of(AbstractPermitRateChecker.checkEach(rateChecker, options.resolvedKey(), cost, options.maxRequests(),
+        options.interval()));
+  }
+
+  private AcquireResult checkLimits(final Options options, final String[] parentKeys, final int parents, final long cost) {
+    final String key = options.resolvedKey();
+    long[] maxRequests = maxRequestCounts(options);
+    long[] intervalsNanos = intervalsNanos(options);
+    final int windows = maxRequests.length;
+    // keys of own windows followed by keys of enclosing scopes
+    final String[] keys = new String[windows + parents];
+    for (int idx = 0; idx < windows; idx++) {
+      keys[idx] = WindowKeys.key(key, idx);
+    }
+    for (int idx = 0; idx < parents; idx++) {
+      keys[windows + idx] = parentKeys[idx];
+    }
+
+    if (permitRateChecker == null) {
+      final List<OptionsLimit> limits = limits(options);
+      for (int idx = 0; idx < keys.length; idx++) {
+        final OptionsLimit limit = idx < windows ? limits.get(idx) : options.parents().get(idx - windows);
+        if (!AbstractPermitRateChecker.checkEach(rateChecker, keys[idx], cost, limit.maxRequests(), limit.interval())) {
+          return AcquireResult.of(false);
+        }
+      }
+      return AcquireResult.of(true);
+    }
+
+    if (parents == 0 && permitRateChecker instanceof MultiWindowRateChecker) {
+      return ((MultiWindowRateChecker) permitRateChecker).acquire(key, cost, maxRequests, intervalsNanos);
+    }
+    if (parents > 0) {
+      maxRequests = Arrays.copyOf(maxRequests, keys.length);
+      intervalsNanos = Arrays.copyOf(intervalsNanos, keys.length);
+      for (int idx = 0; idx < parents; idx++) {
+        final OptionsLimit parent = options.parents().get(idx);
+        maxRequests[windows + idx] = parent.maxRequests();
+        intervalsNanos[windows + idx] = parent.interval().unit().toNanos(parent.interval().interval());
+      }
+      if (permitRateChecker instanceof KeyChainRateChecker) {
+        // own key is repeated for each of its windows, checker names their keys
+        final String[] chain = keys.clone();
+        Arrays.fill(chain, 0, windows, key);
+        return ((KeyChainRateChecker) permitRateChecker).acquire(chain, cost, maxRequests, intervalsNanos);
+      }
+    }
+
+    // not atomic, limits that allowed execution keep permits when other limit rejects it
+    if (permitRateChecker instanceof BatchRateChecker) {
+      final List<AcquireRequest> requests = new ArrayList<>(keys.length);
+      for (int idx = 0; idx < keys.length; idx++) {
+        requests.add(AcquireRequest.of(keys[idx], cost, maxRequests[idx], intervalsNanos[idx]));
+      }
+      return AcquireResult.strictest(((BatchRateChecker) permitRateChecker).checkAll(requests));
+    }
+    final List<AcquireResult> results = new ArrayList<>(keys.length);
+    for (int idx = 0; idx < keys.length; idx++) {
+      final AcquireResult result = permitRateChecker.acquire(keys[idx], cost, maxRequests[idx], intervalsNanos[idx]);
+      results.add(result);
+      if (!result.allowed()) {
+        break;
+      }
+    }
+    return AcquireResult.strictest(results);
+  }
+
+  private long cost(final LimiterPlan plan, final Options options, final JoinPoint joinPoint) {
+    if (options.costExpression() != null) {
+      return costEvaluator.cost(options.costExpression(), plan.typeName(), plan.method(), joinPoint.getArgs());
+    }
+    if (options instanceof PrimitiveOptions) {
+      return ((PrimitiveOptions) options).costPermits();
+    }
+    return options.cost() != null ? options.cost() : 1L;
+  }
+
+  private static int limitCount(final Options options) {
+    if (options instanceof PrimitiveOptions) {
+      return ((PrimitiveOptions) options).maxRequestCounts().length;
+    }
+    return options.limits() != null ? options.limits().size() : 1;
+  }
+
+  private static int parentCount(final Options options, final String[] parentKeys) {
+    if (parentKeys == null || options.parents() == null) {
+      return 0;
+    }
+    return Math.min(parentKeys.length, options.parents().size());
+  }
+
+  private static List<OptionsLimit> limits(final Options options) {
+    final List<OptionsLimit> limits = options.limits();
+    if (limits == null || limits.isEmpty()) {
+      return Collections.<OptionsLimit>singletonList(InternalOptions.limitOf(options.maxRequests(), options.interval()));
+    }
+    return limits;
+  }
+
+  private static long[] maxRequestCounts(final Options options) {
+    if (options instanceof PrimitiveOptions) {
+      return ((PrimitiveOptions) options).maxRequestCounts();
+    }
+    final List<OptionsLimit> limits = limits(options);
+    final long[] maxRequests = new long[limits.size()];
+    for (int idx = 0; idx < maxRequests.length; idx++) {
+      maxRequests[idx] = limits.get(idx).maxRequests();
+    }
+    return maxRequests;
+  }
+
+  private static long[] intervalsNanos(final Options options) {
+    if (options instanceof PrimitiveOptions) {
+      return ((PrimitiveOptions) options).intervalsNanos();
+    }
+    final List<OptionsLimit> limits = limits(options);
+    final long[] intervalsNanos = new long[limits.size()];
+    for (int idx = 0; idx < intervalsNanos.length; idx++) {
+      intervalsNanos[idx] = limits.get(idx).interval().unit().toNanos(limits.get(idx).interval().interval());
+    }
+    return intervalsNanos;
+  }
+
+  private static long maxRequests(final Options options) {
+    return options instanceof PrimitiveOptions ? ((PrimitiveOptions) options).maxRequestCount() : options.maxRequests();
+  }
+
+  private static long intervalNanos(final Options options) {
+    if (options instanceof PrimitiveOptions) {
+      return ((PrimitiveOptions) options).intervalNanos();
+    }
+    final OptionsInterval interval = options.interval();
+    return interval.unit().toNanos(interval.interval());
+  }
+
+  private static int retries(final Options options) {
+    if (!options.retryEnabled()) {
+      return 0;
+    }
+    return options instanceof PrimitiveOptions ? ((PrimitiveOptions) options).retries() : options.retry().retryCount();
+  }
+
+  private static long retryIntervalMillis(final Options options) {
+    if (!options.retryEnabled()) {
+      return 0L;
+    }
+    if (options instanceof PrimitiveOptions) {
+      return ((PrimitiveOptions) options).retryIntervalMillis();
+    }
+    return options.retry().retryInterval().unit().toMillis(options.retry().retryInterval().interval());
+  }
+
+  /**
+   * Single check of asynchronous execution, scheduled again while execution is rejected and can be retried
+   */
+  private class AsyncAttempt implements Runnable {
+
+    private final ProceedingJoinPoint joinPoint;
+
+    private final LimiterPlan plan;
+
+    private final String key;
+
+    private final Options options;
+
+    private final String[] parentKeys;
+
+    private final long cost;
+
+    private final RetryAttempts retry;
+
+    private final AsyncCompletion completion;
+
+    /**
+     * Taken by first attempt, attempts run one after another
+     */
+    private ConcurrencyLease lease;
+
+    private boolean leased;
+
+    private AsyncAttempt(final ProceedingJoinPoint joinPoint, final LimiterPlan plan, final String key, final Options options,
+                         final long cost, final RetryAttempts retry, final AsyncCompletion completion) {
+      this.joinPoint = joinPoint;
+      this.plan = plan;
+      this.key = key;
+      this.options = options;
+      this.parentKeys = plan.parentKeys(joinPoint);
+      this.cost = cost;
+      this.retry = retry;
+      this.completion = completion;
+    }
+
+    @Override
+    public void run() {
+      // caller cancelled the future
+      if (completion.isDone()) {
+        retry.close();
+        release(lease);
+        return;
+      }
+
+      final AcquireResult result;
+      try {
+        if (!leased) {
+          // slot is taken before permits, so execution rejected by concurrency limit doesn't spend them
+          lease = lease(joinPoint, plan, key, options);
+          leased = true;
+        }
+        result = check(options, parentKeys, cost);
+      }
+      catch (final RuntimeException exception) {
+        retry.close();
+        release(lease);
+        completion.fail(exception);
+        return;
+      }
+
+      if (!result.allowed()) {
+        final long delay = retry.next(result);
+        if (delay >= 0L) {
+          schedule(this, delay);
+          return;
+        }
+      }
+      retry.close();
+
+      if (!result.allowed()) {
+        log.warn("@RateLimited rate exceeded for method {}.{}, tires {}", plan.typeName(), plan.methodName(), retry.attempts());
+        release(lease);
+        analytics.exceeded(joinPoint, plan.rateLimited(), key, options, result);
+        completion.fail(new RateLimitExceededException("Rate limit has been exceeded", result));
+        return;
+      }
+
+      analytics.succeeded(joinPoint, plan.rateLimited(), key, options, result);
+      if (lease != null) {
+        final ConcurrencyLease held = lease;
+        // released when returned future completes, not when method returns it
+        completion.onDone(new Runnable() {
+          @Override
+          public void run() {
+            release(held);
+          }
+        });
+      }
+      try {
+        completion.complete(joinPoint.proceed());
+      }
+      catch (final Throwable throwable) {
+        completion.fail(throwable);
+      }
+    }
+
+  }
+
+  /**
+   * Invocation of method returning {@code Mono} or {@code Flux}, rate limit is checked on every subscription
+   * and retries are delayed on Reactor timer
+   */
+  private class ReactiveInvocation {
+
+    private final ProceedingJoinPoint joinPoint;
+
+    private final LimiterPlan plan;
+
+    private final String key;
+
+    private final Options options;
+
+    private ReactiveInvocation(final ProceedingJoinPoint joinPoint, final LimiterPlan plan, final String key, final Options options) {
+      this.joinPoint = joinPoint;
+      this.plan = plan;
+      this.key = key;
+      this.options = options;
+    }
+
+    private Object publisher(final long cost) {
+      final String[] parentKeys = plan.parentKeys(joinPoint);
+      final Mono<AcquireResult> allowed = Mono.defer(new Supplier<Mono<AcquireResult>>() {
+        @Override
+        public Mono<AcquireResult> get() {
+          final RetryAttempts retry = new RetryAttempts(plan, options.resolvedKey(), retries(options), retryIntervalMillis(options),
+              retryBackoff, retryWaiters);
+          return attempt(retry, parentKeys, cost)
+              .doFinally(new Consumer<SignalType>() {
+                @Override
+                public void accept(final SignalType signal) {
+                  retry.close();
+                }
+              })
+              .flatMap(new Function<AcquireResult, Mono<AcquireResult>>() {
+                @Override
+                public Mono<AcquireResult> apply(final AcquireResult result) {
+                  if (!result.allowed()) {
+                    log.warn("@RateLimited rate exceeded for method {}.{}, tires {}", plan.typeName(), plan.methodName(), retry.attempts());
+                    analytics.exceeded(joinPoint, plan.rateLimited(), key, options, result);
+                    return Mono.error(new RateLimitExceededException("Rate limit has been exceeded", result));
+                  }
+                  analytics.succeeded(joinPoint, plan.rateLimited(), key, options, result);
+                  return Mono.just(result);
+                }
+              });
+        }
+      });
+
+      if (concurrencyLimiter != null && options.concurrency() != null) {
+        return leased(allowed);
+      }
+      if (plan.reactiveType() == ReactiveReturnType.FLUX) {
+        return allowed.flatMapMany(new Function<AcquireResult, Publisher<Object>>() {
+          @Override
+          public Publisher<Object> apply(final AcquireResult result) {
+            return proceed();
+          }
+        });
+      }
+      return allowed.flatMap(new Function<AcquireResult, Mono<Object>>() {
+        @Override
+        public Mono<Object> apply(final AcquireResult result) {
+          return Mono.from(proceed());
+        }
+      });
+    }
+
+    /**
+     * Takes slot of key before execution is checked, lease is held until returned publisher terminates or is cancelled
+     */
+    private Object leased(final Mono<AcquireResult> allowed) {
+      final Mono<ConcurrencyLease> leased = Mono.fromCallable(new Callable<ConcurrencyLease>() {
+        @Override
+        public ConcurrencyLease call() {
+          return lease(joinPoint, plan, key, options);
+        }
+      }).subscribeOn(Schedulers.elastic());
+
+      if (plan.reactiveType() == ReactiveReturnType.FLUX) {
+        return leased.flatMapMany(new Function<ConcurrencyLease, Publisher<Object>>() {
+          @Override
+          public Publisher<Object> apply(final ConcurrencyLease lease) {
+            return allowed.flatMapMany(new Function<AcquireResult, Publisher<Object>>() {
+              @Override
+              public Publisher<Object> apply(final AcquireResult result) {
+                return proceed();
+              }
+            }).doFinally(releasing(lease));
+          }
+        });
+      }
+      return leased.flatMap(new Function<ConcurrencyLease, Mono<Object>>() {
+        @Override
+        public Mono<Object> apply(final ConcurrencyLease lease) {
+          return allowed.flatMap(new Function<AcquireResult, Mono<Object>>() {
+            @Override
+            public Mono<Object> apply(final AcquireResult result) {
+              return Mono.from(proceed());
+            }
+          }).doFinally(releasing(lease));
+        }
+      });
+    }
+
+    private Consumer<SignalType> releasing(final ConcurrencyLease lease) {
+      return new Consumer<SignalType>() {
+        @Override
+        public void accept(final SignalType signal) {
+          release(lease);
+        }
+      };
+    }
+
+    private Object error(final Throwable throwable) {
+      return plan.reactiveType() == ReactiveReturnType.FLUX ? Flux.error(throwable) : Mono.error(throwable);
+    }
+
+    private Mono<AcquireResult> attempt(final RetryAttempts retry, final String[] parentKeys, final long cost) {
+      return acquire(parentKeys, cost).flatMap(new Function<AcquireResult, Mono<AcquireResult>>() {
+        @Override
+        public Mono<AcquireResult> apply(final AcquireResult result) {
+          if (!result.allowed()) {
+            final long delay = retry.next(result);
+            if (delay >= 0L) {
+              return Mono.delay(Duration.ofMillis(delay)).then(attempt(retry, parentKeys, cost));
+            }
+          }
+          return Mono.just(result);
+        }
+      });
+    }
+
+    private Mono<AcquireResult> acquire(final String[] parentKeys, final long cost) {
+      final boolean bucket = options.bucket() != null && rateChecker instanceof BucketRateChecker;
+      if (reactiveRateChecker != null && !bucket && cost > 0L && limitCount(options) <= 1 && parentCount(options, parentKeys) == 0) {
+        return Mono.defer(new Supplier<Mono<AcquireResult>>() {
+          @Override
+          public Mono<AcquireResult> get() {
+            return reactiveRateChecker.acquireReactive(options.resolvedKey(), cost, maxRequests(options), intervalNanos(options));
+          }
+        });
+      }
+      // blocking checkers are never called on subscribing thread, which may be event loop
+      return Mono.fromCallable(new Callable<AcquireResult>() {
+        @Override
+        public AcquireResult call() {
+          return check(options, parentKeys, cost);
+        }
+      }).subscribeOn(Schedulers.elastic());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Publisher<Object> proceed() {
+      try {
+        final Publisher<Object> publisher = (Publisher<Object>) joinPoint.proceed();
+        return publisher != null ? publisher : Mono.empty();
+      }
+      catch (final Throwable throwable) {
+        return Mono.error(throwable);
+      }
+    }
+
+  }
+
+  /**
+   * Key generated by key generator that can't prepare keys, on every invocation
+   */
+  private class GeneratedKey implements PreparedKey {
+
+    private final String key;
+
+    private final String keyExpression;
+
+    private GeneratedKey(final String key, final String keyExpression) {
+      this.key = key;
+      this.keyExpression = keyExpression;
+    }
+
+    @Override
+    public String staticKey() {
+      return null;
+    }
+
+    @Override
+    public String key(final JoinPoint joinPoint) {
+      return keyGenerator.key(key, keyExpression, joinPoint);
+    }
+
   }
 
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.aspect;
+
+/**
+ * Project Reactor return types rate limited on subscription.
+ * <p/>
+ * Types are matched by name, so Reactor is not required on class path.
+ *
+ * @author franjozilic
+ */
+enum ReactiveReturnType {
+
+  MONO,
+
+  FLUX;
+
+  /**
+   * @param returnType return type of rate limited method
+   * @return reactive type, or null if method is not reactive
+   */
+  static ReactiveReturnType of(final Class<?> returnType) {
+    final String name = returnType.getName();
+    if ("reactor.core.publisher.Mono".equals(name)) {
+      return MONO;
+    }
+    if ("reactor.core.publisher.Flux".equals(name)) {
+      return FLUX;
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.aspect;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.retry.RetryBackoff;
+import com.github.usedrarely.spring.rate.limit.retry.RetryWaiters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retry state of single rate limited execution.
+ * <p/>
+ * Decides whether and after which wait rejected execution is checked again, keeping total wait inside
+ * retry count times retry interval and registering execution with {@link RetryWaiters} while it waits.
+ * Used from one thread at a time, {@link #close()} has to be called once execution stops waiting.
+ *
+ * @author franjozilic
+ */
+final class RetryAttempts {
+
+  private static final Logger log = LoggerFactory.getLogger(RateLimitingAdvice.class);
+
+  private final LimiterPlan plan;
+
+  private final String key;
+
+  private final int retries;
+
+  private final long retryInterval;
+
+  private final RetryBackoff retryBackoff;
+
+  private final RetryWaiters retryWaiters;
+
+  private long budget;
+
+  private int attempts = 1;
+
+  private boolean waiting;
+
+  RetryAttempts(final LimiterPlan plan, final String key, final int retries, final long retryInterval,
+                final RetryBackoff retryBackoff, final RetryWaiters retryWaiters) {
+    this.plan = plan;
+    this.key = key;
+    this.retries = retries;
+    this.retryInterval = retryInterval;
+    this.retryBackoff = retryBackoff;
+    this.retryWaiters = retryWaiters;
+    // total wait is limited to what fixed interval retry would take
+    this.budget = retries * retryInterval;
+  }
+
+  /**
+   * @param result result of rejected check
+   * @return milliseconds to wait before next check, or negative value if execution has to fail now
+   */
+  long next(final AcquireResult result) {
+    if (attempts > retries) {
+      return -1L;
+    }
+    final long delay = retryBackoff.delay(attempts, retryInterval, result);
+    if (delay > budget) {
+      log.trace("@RateLimited rate exceeded for method {}.{}, required wait {}ms exceeds remaining {}ms", plan.typeName(),
+          plan.methodName(), delay, budget);
+      return -1L;
+    }
+    if (!waiting) {
+      if (retryWaiters != null && !retryWaiters.tryEnter(key)) {
+        log.trace("@RateLimited rate exceeded for method {}.{}, too many waiting callers", plan.typeName(), plan.methodName());
+        return -1L;
+      }
+      waiting = true;
+    }
+    log.trace("@RateLimited rate exceeded for method {}.{} retry enabled, retrying in {}ms", plan.typeName(),
+        plan.methodName(), delay);
+    budget -= delay;
+    attempts++;
+    return delay;
+  }
+
+  /**
+   * @return number of checks made so far
+   */
+  int attempts() {
+    return attempts;
+  }
+
+  void close() {
+    if (waiting) {
+      waiting = false;
+      if (retryWaiters != null) {
+        retryWaiters.leave(key);
+      }
+    }
+  }
+
+}
@@ -18,10 +18,15 @@
 package com.github.usedrarely.spring.rate.limit.key;
 
 import com.github.usedrarely.spring.rate.limit.RateLimited;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.aspectj.lang.JoinPoint;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.util.StringUtils;
 
 import static com.github.usedrarely.spring.rate.limit.util.JoinPointUtil.method;
@@ -39,35 +44,111 @@ import static com.github.usedrarely.spring.rate.limit.util.JoinPointUtil.type;
  * - type - fully qualified class name
  * - method - method name for invoked method
  * - p0..pN - positional arguments of invoked method
+ * <p/>
+ * Expressions are parsed once for each method and expression and cached.
+ * By default they are compiled after few interpreted evaluations ({@link SpelCompilerMode#MIXED}),
+ * and fall back to interpretation if compiled expression can't handle arguments.
  *
  * @author franjozilic
  */
-public class DefaultKeyGenerator implements KeyGenerator {
+public class DefaultKeyGenerator implements PreparedKeyGenerator {
+
+  private final ConcurrentMap<ExpressionCacheKey, Expression> expressions = new ConcurrentHashMap<>();
+
+  private final SpelExpressionParser parser;
+
+  private final EvaluationContext sharedContext;
+
+  public DefaultKeyGenerator() {
+    this(SpelCompilerMode.MIXED);
+  }
+
+  /**
+   * @param compilerMode SpEL compiler mode for key expressions
+   */
+  public DefaultKeyGenerator(final SpelCompilerMode compilerMode) {
+    this.parser = new SpelExpressionParser(new SpelParserConfiguration(compilerMode, DefaultKeyGenerator.class.getClassLoader()));
+    this.sharedContext = KeyEvaluationContext.sharedContext();
+  }
 
   @Override
   public String key(final String key, final String keyExpression, final JoinPoint joinPoint) {
     if (StringUtils.hasText(key)) {
       return key;
     }
+    return prepare(key, keyExpression, type(joinPoint), method(joinPoint)).key(joinPoint);
+  }
+
+  @Override
+  public PreparedKey prepare(final String key, final String keyExpression, final Class<?> type, final Method method) {
+    if (StringUtils.hasText(key)) {
+      return new StaticPreparedKey(key);
+    }
 
     if (StringUtils.hasText(keyExpression)) {
-      final StandardEvaluationContext context = new StandardEvaluationContext();
-      context.setVariable("type", type(joinPoint).getName());
-      context.setVariable("method", method(joinPoint).getName());
-
-      final Object[] args = joinPoint.getArgs();
-      if (args != null) {
-        for (int idx = 0; idx < args.length; idx++) {
-          context.setVariable(String.format("p%d", idx), args[idx]);
-        }
+      return new ExpressionPreparedKey(expression(method, keyExpression), type.getName(), method.getName());
+    }
+
+    return new StaticPreparedKey(type.getName() + "." + method.getName());
+  }
+
+  private Expression expression(final Method method, final String keyExpression) {
+    final ExpressionCacheKey cacheKey = new ExpressionCacheKey(method, keyExpression);
+
+    Expression expression = expressions.get(cacheKey);
+    if (expression == null) {
+      expression = parser.parseExpression(keyExpression);
+      final Expression existing = expressions.putIfAbsent(cacheKey, expression);
+      if (existing != null) {
+        expression = existing;
       }
+    }
+    return expression;
+  }
 
-      final SpelExpressionParser parser = new SpelExpressionParser();
-      final Expression sExpression = parser.parseExpression(keyExpression);
+  private static final class StaticPreparedKey implements PreparedKey {
+
+    private final String key;
+
+    private StaticPreparedKey(final String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String staticKey() {
+      return key;
+    }
+
+    @Override
+    public String key(final JoinPoint joinPoint) {
+      return key;
+    }
+
+  }
+
+  private final class ExpressionPreparedKey implements PreparedKey {
+
+    private final Expression expression;
+
+    private final String type;
+
+    private final String method;
+
+    private ExpressionPreparedKey(final Expression expression, final String type, final String method) {
+      this.expression = expression;
+      this.type = type;
+      this.method = method;
+    }
+
+    @Override
+    public String staticKey() {
+      return null;
+    }
 
-      return sExpression.getValue(context, String.class);
+    @Override
+    public String key(final JoinPoint joinPoint) {
+      return expression.getValue(new KeyEvaluationContext(sharedContext, type, method, joinPoint.getArgs()), String.class);
     }
 
-    return type(joinPoint).getName() + "." + method(joinPoint).getName();
   }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.key;
+
+import java.lang.reflect.Method;
+
+/**
+ * Expressions are cached per method, compiled expression is specialized for argument types seen in evaluation
+ *
+ * @author franjozilic
+ */
+final class ExpressionCacheKey {
+
+  private final Method method;
+
+  private final String expression;
+
+  ExpressionCacheKey(final Method method, final String expression) {
+    this.method = method;
+    this.expression = expression;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ExpressionCacheKey)) {
+      return false;
+    }
+    final ExpressionCacheKey that = (ExpressionCacheKey) o;
+    return method.equals(that.method) && expression.equals(that.expression);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * method.hashCode() + expression.hashCode();
+  }
+
+}
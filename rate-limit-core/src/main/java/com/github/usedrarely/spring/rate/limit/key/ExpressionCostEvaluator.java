@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.key;
+
+import com.github.usedrarely.spring.rate.limit.RateLimited;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+/**
+ * Evaluates cost of call, see {@link RateLimited#costExpression()}.
+ * <p/>
+ * Expressions have the same variables as key expressions of {@link DefaultKeyGenerator},
+ * and are parsed once for each method and expression the same way.
+ * <p/>
+ * Cost usually comes from request payload, costs above maximum cost are reduced to it,
+ * so checkers never get more permits then maximum cost.
+ *
+ * @author franjozilic
+ */
+public class ExpressionCostEvaluator {
+
+  private final ConcurrentMap<ExpressionCacheKey, Expression> expressions = new ConcurrentHashMap<>();
+
+  private final SpelExpressionParser parser;
+
+  private final EvaluationContext sharedContext;
+
+  private final long maxCost;
+
+  /**
+   * Costs are capped at 1000000 permits
+   */
+  public ExpressionCostEvaluator() {
+    this(SpelCompilerMode.MIXED);
+  }
+
+  /**
+   * Costs are capped at 1000000 permits
+   *
+   * @param compilerMode SpEL compiler mode for cost expressions
+   */
+  public ExpressionCostEvaluator(final SpelCompilerMode compilerMode) {
+    this(compilerMode, 1000000L);
+  }
+
+  /**
+   * @param compilerMode SpEL compiler mode for cost expressions
+   * @param maxCost      maximum number of permits single call takes
+   */
+  public ExpressionCostEvaluator(final SpelCompilerMode compilerMode, final long maxCost) {
+    this.parser = new SpelExpressionParser(new SpelParserConfiguration(compilerMode, ExpressionCostEvaluator.class.getClassLoader()));
+    this.sharedContext = KeyEvaluationContext.sharedContext();
+    this.maxCost = maxCost;
+  }
+
+  /**
+   * Evaluate cost of single call
+   *
+   * @param costExpression SpEL expression
+   * @param type           name of target class
+   * @param method         most specific invoked method
+   * @param args           arguments of call
+   * @return number of permits call takes, {@code 0} if it takes none, never more then maximum cost
+   * @throws IllegalArgumentException if expression evaluates to null or negative number
+   */
+  public long cost(final String costExpression, final String type, final Method method, final Object[] args) {
+    final Long cost = expression(method, costExpression).getValue(new KeyEvaluationContext(sharedContext, type, method.getName(), args), Long.class);
+    if (cost == null || cost < 0L) {
+      throw new IllegalArgumentException("Cost expression '".concat(costExpression).concat("' evaluated to ").concat(String.valueOf(cost))
+          .concat(", it must be zero or positive number"));
+    }
+    return Math.min(cost, maxCost);
+  }
+
+  private Expression expression(final Method method, final String costExpression) {
+    final ExpressionCacheKey cacheKey = new ExpressionCacheKey(method, costExpression);
+
+    Expression expression = expressions.get(cacheKey);
+    if (expression == null) {
+      expression = parser.parseExpression(costExpression);
+      final Expression existing = expressions.putIfAbsent(cacheKey, expression);
+      if (existing != null) {
+        expression = existing;
+      }
+    }
+    return expression;
+  }
+
+}
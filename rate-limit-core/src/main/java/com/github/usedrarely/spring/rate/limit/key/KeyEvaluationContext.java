@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.key;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.ConstructorResolver;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.OperatorOverloader;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeComparator;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Evaluation context of single key or cost expression evaluation.
+ * <p/>
+ * Resolvers, accessors and converters are shared and taken from delegate context,
+ * key variables are resolved directly from invocation so nothing has to be copied in variable map.
+ *
+ * @author franjozilic
+ */
+class KeyEvaluationContext implements EvaluationContext {
+
+  private final EvaluationContext delegate;
+
+  private final String type;
+
+  private final String method;
+
+  private final Object[] args;
+
+  private Map<String, Object> variables;
+
+  /**
+   * @return context with default resolvers, safe to share between concurrent evaluations
+   */
+  static EvaluationContext sharedContext() {
+    final StandardEvaluationContext context = new StandardEvaluationContext();
+    // initialize lazily created defaults now, context is later only read concurrently
+    context.getConstructorResolvers();
+    context.getMethodResolvers();
+    context.getPropertyAccessors();
+    context.getTypeLocator();
+    context.getTypeConverter();
+    return context;
+  }
+
+  KeyEvaluationContext(final EvaluationContext delegate, final String type, final String method, final Object[] args) {
+    this.delegate = delegate;
+    this.type = type;
+    this.method = method;
+    this.args = args;
+  }
+
+  @Override
+  public TypedValue getRootObject() {
+    return TypedValue.NULL;
+  }
+
+  @Override
+  public List<ConstructorResolver> getConstructorResolvers() {
+    return delegate.getConstructorResolvers();
+  }
+
+  @Override
+  public List<MethodResolver> getMethodResolvers() {
+    return delegate.getMethodResolvers();
+  }
+
+  @Override
+  public List<PropertyAccessor> getPropertyAccessors() {
+    return delegate.getPropertyAccessors();
+  }
+
+  @Override
+  public TypeLocator getTypeLocator() {
+    return delegate.getTypeLocator();
+  }
+
+  @Override
+  public TypeConverter getTypeConverter() {
+    return delegate.getTypeConverter();
+  }
+
+  @Override
+  public TypeComparator getTypeComparator() {
+    return delegate.getTypeComparator();
+  }
+
+  @Override
+  public OperatorOverloader getOperatorOverloader() {
+    return delegate.getOperatorOverloader();
+  }
+
+  @Override
+  public BeanResolver getBeanResolver() {
+    return delegate.getBeanResolver();
+  }
+
+  @Override
+  public void setVariable(final String name, final Object value) {
+    if (variables == null) {
+      variables = new HashMap<>();
+    }
+    variables.put(name, value);
+  }
+
+  @Override
+  public Object lookupVariable(final String name) {
+    if (variables != null && variables.containsKey(name)) {
+      return variables.get(name);
+    }
+
+    if ("type".equals(name)) {
+      return type;
+    }
+    if ("method".equals(name)) {
+      return method;
+    }
+    return argument(name);
+  }
+
+  /**
+   * Positional argument for variable named p0..pN
+   */
+  private Object argument(final String name) {
+    if (args == null || name.length() < 2 || name.charAt(0) != 'p') {
+      return null;
+    }
+
+    int idx = 0;
+    for (int pos = 1; pos < name.length(); pos++) {
+      final char digit = name.charAt(pos);
+      if (digit < '0' || digit > '9' || idx >= args.length) {
+        return null;
+      }
+      idx = idx * 10 + (digit - '0');
+    }
+    return idx < args.length ? args[idx] : null;
+  }
+
+}
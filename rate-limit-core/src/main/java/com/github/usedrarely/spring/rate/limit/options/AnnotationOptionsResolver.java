@@ -17,12 +17,16 @@
 
 package com.github.usedrarely.spring.rate.limit.options;
 
+import com.github.usedrarely.spring.rate.limit.Concurrency;
+import com.github.usedrarely.spring.rate.limit.Limit;
+import com.github.usedrarely.spring.rate.limit.ParentLimit;
 import com.github.usedrarely.spring.rate.limit.RateLimited;
 import com.github.usedrarely.spring.rate.limit.RateLimitedRetry;
 import com.github.usedrarely.spring.rate.limit.options.exception.AmbiguousOptionsException;
 import com.github.usedrarely.spring.rate.limit.options.exception.IllegalConfigurationException;
 import com.github.usedrarely.spring.rate.limit.options.exception.OptionsException;
 import org.aspectj.lang.JoinPoint;
+import org.springframework.util.StringUtils;
 
 import static com.github.usedrarely.spring.rate.limit.util.JoinPointUtil.findAnnotation;
 
@@ -77,6 +81,33 @@ public class AnnotationOptionsResolver implements OptionsResolver {
 
     final InternalOptions options = InternalOptions.enabled(key, rateLimited.maxRequests(), InternalOptions.intervalOf(rateLimited.interval().interval(), rateLimited.interval().unit()));
 
+    for (final Limit limit : rateLimited.limits()) {
+      if (limit.maxRequests() < 1 || limit.interval().interval() < 1) {
+        throw new IllegalConfigurationException("Additional limits must have maxRequests and interval greater then 0");
+      }
+      options.addLimit(limit.maxRequests(), InternalOptions.intervalOf(limit.interval().interval(), limit.interval().unit()));
+    }
+
+    for (final ParentLimit parent : rateLimited.parents()) {
+      if (parent.maxRequests() < 1 || parent.interval().interval() < 1) {
+        throw new IllegalConfigurationException("Parent limits must have maxRequests and interval greater then 0");
+      }
+      options.addParent(parent.maxRequests(), InternalOptions.intervalOf(parent.interval().interval(), parent.interval().unit()));
+    }
+
+    if (rateLimited.cost() < 1) {
+      throw new IllegalConfigurationException("Cost must be greater then 0");
+    }
+    options.withCost(rateLimited.cost(), StringUtils.hasText(rateLimited.costExpression()) ? rateLimited.costExpression() : null);
+
+    final Concurrency concurrency = rateLimited.concurrency();
+    if (concurrency.maxConcurrent() > 0) {
+      if (concurrency.lease().interval() < 1) {
+        throw new IllegalConfigurationException("Concurrency lease must be greater then 0");
+      }
+      options.limitConcurrency(concurrency.maxConcurrent(), InternalOptions.intervalOf(concurrency.lease().interval(), concurrency.lease().unit()));
+    }
+
     // attempt to locate retry configuration
     final RateLimitedRetry retry = findAnnotation(joinPoint, RateLimitedRetry.class);
 
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.options;
+
+import com.github.usedrarely.spring.rate.limit.options.exception.OptionsException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.aspectj.lang.JoinPoint;
+
+/**
+ * Caching decorator of any {@link OptionsResolver}.
+ * <p/>
+ * Resolved {@link Options} and {@link OptionsResolver#supports(String)} results are cached per key.
+ * Options of non dynamic resolver can't change, so they are cached until invalidated.
+ * Options of dynamic resolver are cached for configured time to live, use {@link #invalidate(String)} or {@link #invalidateAll()}
+ * on configuration change to apply it sooner.
+ * <p/>
+ * Cache is bounded, when full, expired entries are removed first and then arbitrary entries until there is room for new one.
+ * Failed resolutions are not cached.
+ * <p/>
+ * Options are cached by key only, wrapped resolver must resolve the same options for the same key regardless of join point.
+ *
+ * @author franjozilic
+ */
+public class CachingOptionsResolver implements OptionsResolver {
+
+  private static final class Entry<V> {
+
+    private final V value;
+
+    private final long expiresAt;
+
+    private Entry(final V value, final long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+
+  }
+
+  private final OptionsResolver delegate;
+
+  private final int maxSize;
+
+  private final long timeToLive;
+
+  private final ConcurrentMap<String, Entry<Options>> options = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Entry<Boolean>> supported = new ConcurrentHashMap<>();
+
+  public CachingOptionsResolver(final OptionsResolver delegate) {
+    this(delegate, 10000, 1L, TimeUnit.MINUTES);
+  }
+
+  /**
+   * @param delegate   resolver to cache
+   * @param maxSize    maximum number of cached keys
+   * @param timeToLive time to live of options resolved by dynamic resolver
+   * @param unit       time unit of {@code timeToLive}
+   */
+  public CachingOptionsResolver(final OptionsResolver delegate, final int maxSize, final long timeToLive, final TimeUnit unit) {
+    this.delegate = delegate;
+    this.maxSize = maxSize;
+    this.timeToLive = unit.toNanos(timeToLive);
+  }
+
+  /**
+   * Same as wrapped resolver, configuration of dynamic resolver can change after time to live
+   *
+   * @return true if wrapped resolver is dynamic
+   */
+  @Override
+  public boolean isDynamic() {
+    return delegate.isDynamic();
+  }
+
+  @Override
+  public Options resolve(final String key, final JoinPoint joinPoint) throws OptionsException {
+    final Entry<Options> entry = options.get(key);
+    if (entry != null && !expired(entry)) {
+      return entry.value;
+    }
+
+    final Options resolved = delegate.resolve(key, joinPoint);
+    put(options, key, resolved);
+    return resolved;
+  }
+
+  @Override
+  public boolean supports(final String key) {
+    final Entry<Boolean> entry = supported.get(key);
+    if (entry != null && !expired(entry)) {
+      return entry.value;
+    }
+
+    final boolean supports = delegate.supports(key);
+    put(supported, key, supports);
+    return supports;
+  }
+
+  /**
+   * Removes cached options of key, next resolution uses wrapped resolver
+   *
+   * @param key resolved key for rate limited operation
+   */
+  public void invalidate(final String key) {
+    options.remove(key);
+    supported.remove(key);
+  }
+
+  /**
+   * Removes all cached options, use when configuration source was refreshed
+   */
+  public void invalidateAll() {
+    options.clear();
+    supported.clear();
+  }
+
+  /**
+   * Current time, used to expire options of dynamic resolver
+   *
+   * @return current time in nanoseconds
+   */
+  protected long now() {
+    return System.nanoTime();
+  }
+
+  private boolean expired(final Entry<?> entry) {
+    // options of static resolver never expire, no need to read time
+    return entry.expiresAt != Long.MAX_VALUE && entry.expiresAt - now() < 0;
+  }
+
+  private <V> void put(final ConcurrentMap<String, Entry<V>> cache, final String key, final V value) {
+    if (cache.size() >= maxSize && !cache.containsKey(key)) {
+      evict(cache);
+    }
+    cache.put(key, new Entry<>(value, delegate.isDynamic() ? now() + timeToLive : Long.MAX_VALUE));
+  }
+
+  private <V> void evict(final ConcurrentMap<String, Entry<V>> cache) {
+    for (final Iterator<Map.Entry<String, Entry<V>>> iterator = cache.entrySet().iterator(); iterator.hasNext(); ) {
+      if (expired(iterator.next().getValue())) {
+        iterator.remove();
+      }
+    }
+
+    for (final Iterator<String> iterator = cache.keySet().iterator(); iterator.hasNext() && cache.size() >= maxSize; ) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+}
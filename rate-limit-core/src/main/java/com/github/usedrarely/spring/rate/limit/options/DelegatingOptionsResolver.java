@@ -20,26 +20,33 @@ package com.github.usedrarely.spring.rate.limit.options;
 import com.github.usedrarely.spring.rate.limit.RateLimited;
 import com.github.usedrarely.spring.rate.limit.options.exception.AmbiguousOptionsException;
 import com.github.usedrarely.spring.rate.limit.options.exception.OptionsException;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.aspectj.lang.JoinPoint;
-import org.springframework.util.CollectionUtils;
 
 /**
  * Simple delegating resolver.
  * <p/>
  * Delegating resolver attempts to find first resolver that supports specific key and {@link RateLimited} annotation combination.
+ * <p/>
+ * When none of delegates is dynamic, selected resolver is remembered per key (up to {@code maxRoutes} keys),
+ * so {@link OptionsResolver#supports(String)} of delegates and uniqueness check run only on first resolution of key.
+ * Such resolver is not dynamic itself, options it resolves for key never change.
+ * <p/>
+ * Disabled options of keys without supporting resolver are shared per key, up to {@code maxRoutes} keys.
  *
  * @author franjozilic
  */
 public class DelegatingOptionsResolver implements OptionsResolver {
 
-  private class DisabledOptions implements Options {
+  private static final class DisabledOptions implements Options {
 
-    private String resolvedKey;
+    private final String resolvedKey;
 
-    public DisabledOptions(final String resolvedKey) {
+    private DisabledOptions(final String resolvedKey) {
       this.resolvedKey = resolvedKey;
     }
 
@@ -48,6 +55,26 @@ public class DelegatingOptionsResolver implements OptionsResolver {
       return false;
     }
 
+    @Override
+    public OptionsBucket bucket() {
+      return null;
+    }
+
+    @Override
+    public OptionsConcurrency concurrency() {
+      return null;
+    }
+
+    @Override
+    public Long cost() {
+      return 1L;
+    }
+
+    @Override
+    public String costExpression() {
+      return null;
+    }
+
     @Override
     public boolean enabled() {
       return false;
@@ -63,6 +90,16 @@ public class DelegatingOptionsResolver implements OptionsResolver {
       return null;
     }
 
+    @Override
+    public List<OptionsLimit> limits() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public List<OptionsLimit> parents() {
+      return Collections.emptyList();
+    }
+
     @Override
     public String resolvedKey() {
       return resolvedKey;
@@ -80,49 +117,131 @@ public class DelegatingOptionsResolver implements OptionsResolver {
 
   }
 
-  private final Collection<OptionsResolver> resolvers;
+  /**
+   * Route of keys without any supporting resolver, always resolves key to the same disabled options
+   */
+  private static final class MissingResolver implements OptionsResolver {
+
+    private final ConcurrentMap<String, Options> options = new ConcurrentHashMap<>();
+
+    private final int maxKeys;
+
+    private MissingResolver(final int maxKeys) {
+      this.maxKeys = maxKeys;
+    }
+
+    @Override
+    public boolean isDynamic() {
+      return false;
+    }
+
+    @Override
+    public Options resolve(final String key, final JoinPoint joinPoint) {
+      final Options existing = options.get(key);
+      if (existing != null) {
+        return existing;
+      }
+      final Options disabled = new DisabledOptions(key);
+      if (options.size() >= maxKeys) {
+        return disabled;
+      }
+      final Options raced = options.putIfAbsent(key, disabled);
+      return raced != null ? raced : disabled;
+    }
+
+    @Override
+    public boolean supports(final String key) {
+      return true;
+    }
+
+  }
+
+  private static final int DEFAULT_MAX_ROUTES = 10000;
+
+  private final OptionsResolver[] resolvers;
 
   private final boolean treatMissingAsDisabled;
 
+  private final ConcurrentMap<String, OptionsResolver> routes;
+
+  private final int maxRoutes;
+
+  private final MissingResolver missing;
+
   public DelegatingOptionsResolver(final Collection<OptionsResolver> resolvers, final boolean treatMissingAsDisabled) {
-    this.resolvers = resolvers;
-    this.treatMissingAsDisabled = treatMissingAsDisabled;
+    this(resolvers, treatMissingAsDisabled, DEFAULT_MAX_ROUTES);
   }
 
   public DelegatingOptionsResolver(final Collection<OptionsResolver> resolvers) {
-    this.resolvers = resolvers;
-    this.treatMissingAsDisabled = false;
+    this(resolvers, false);
+  }
+
+  /**
+   * @param resolvers              delegates
+   * @param treatMissingAsDisabled return disabled options for keys without supporting resolver, fail otherwise
+   * @param maxRoutes              maximum number of keys with remembered resolver, keys over the limit select resolver on every call,
+   *                               also maximum number of keys with shared disabled options
+   */
+  public DelegatingOptionsResolver(final Collection<OptionsResolver> resolvers, final boolean treatMissingAsDisabled, final int maxRoutes) {
+    this.resolvers = resolvers.toArray(new OptionsResolver[resolvers.size()]);
+    this.treatMissingAsDisabled = treatMissingAsDisabled;
+    this.maxRoutes = maxRoutes;
+    this.missing = new MissingResolver(maxRoutes);
+
+    // supported keys of dynamic resolver can change, selection can't be remembered
+    boolean dynamic = false;
+    for (final OptionsResolver resolver : this.resolvers) {
+      dynamic |= resolver.isDynamic();
+    }
+    this.routes = dynamic ? null : new ConcurrentHashMap<String, OptionsResolver>();
   }
 
   @Override
   public boolean isDynamic() {
-    return true;
+    return routes == null;
   }
 
   @Override
   public Options resolve(final String key, final JoinPoint joinPoint) throws OptionsException {
-    final List<OptionsResolver> selected = new ArrayList<>();
+    if (routes == null) {
+      return select(key).resolve(key, joinPoint);
+    }
+
+    OptionsResolver resolver = routes.get(key);
+    if (resolver == null) {
+      resolver = select(key);
+      if (routes.size() < maxRoutes) {
+        routes.putIfAbsent(key, resolver);
+      }
+    }
+    return resolver.resolve(key, joinPoint);
+  }
+
+  private OptionsResolver select(final String key) {
+    OptionsResolver selected = null;
+    int count = 0;
 
     for (final OptionsResolver resolver : resolvers) {
       if (resolver.supports(key)) {
-        selected.add(resolver);
+        selected = resolver;
+        count++;
       }
     }
 
-    if (!CollectionUtils.isEmpty(selected) && selected.size() > 1) {
-      throw new AmbiguousOptionsException("Expected unique resolver, found " + selected.size());
+    if (count > 1) {
+      throw new AmbiguousOptionsException("Expected unique resolver, found " + count);
     }
 
-    if (CollectionUtils.isEmpty(selected)) {
+    if (selected == null) {
       if (treatMissingAsDisabled) {
-        return new DisabledOptions(key);
+        return missing;
       }
       else {
         throw new AmbiguousOptionsException("No option resolver found, and treatMissingAsDisabled is false");
       }
     }
 
-    return selected.get(0).resolve(key, joinPoint);
+    return selected;
   }
 
   @Override
@@ -17,12 +17,16 @@
 
 package com.github.usedrarely.spring.rate.limit.options;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
-public class InternalOptions implements Options {
+public class InternalOptions implements PrimitiveOptions {
 
   protected static class InternalInterval implements OptionsInterval {
 
@@ -77,6 +81,169 @@ public class InternalOptions implements Options {
 
   }
 
+  protected static class InternalBucket implements OptionsBucket {
+
+    private Long capacity;
+
+    private Long refillTokens;
+
+    private OptionsInterval refillInterval;
+
+    @Override
+    public Long capacity() {
+      return capacity;
+    }
+
+    @Override
+    public Long refillTokens() {
+      return refillTokens;
+    }
+
+    @Override
+    public OptionsInterval refillInterval() {
+      return refillInterval;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null) {
+        return false;
+      }
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof InternalBucket)) {
+        return false;
+      }
+      InternalBucket rhs = (InternalBucket) obj;
+      return new EqualsBuilder()
+          .append(this.capacity, rhs.capacity)
+          .append(this.refillTokens, rhs.refillTokens)
+          .append(this.refillInterval, rhs.refillInterval)
+          .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+      return new HashCodeBuilder()
+          .append(capacity)
+          .append(refillTokens)
+          .append(refillInterval)
+          .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+      return new ToStringBuilder(this)
+          .append("capacity", capacity)
+          .append("refillTokens", refillTokens)
+          .append("refillInterval", refillInterval)
+          .toString();
+    }
+  }
+
+  protected static class InternalConcurrency implements OptionsConcurrency {
+
+    private Long maxConcurrent;
+
+    private OptionsInterval lease;
+
+    @Override
+    public Long maxConcurrent() {
+      return maxConcurrent;
+    }
+
+    @Override
+    public OptionsInterval lease() {
+      return lease;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null) {
+        return false;
+      }
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof InternalConcurrency)) {
+        return false;
+      }
+      InternalConcurrency rhs = (InternalConcurrency) obj;
+      return new EqualsBuilder()
+          .append(this.maxConcurrent, rhs.maxConcurrent)
+          .append(this.lease, rhs.lease)
+          .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+      return new HashCodeBuilder()
+          .append(maxConcurrent)
+          .append(lease)
+          .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+      return new ToStringBuilder(this)
+          .append("maxConcurrent", maxConcurrent)
+          .append("lease", lease)
+          .toString();
+    }
+  }
+
+  protected static class InternalLimit implements OptionsLimit {
+
+    private Long maxRequests;
+
+    private OptionsInterval interval;
+
+    @Override
+    public Long maxRequests() {
+      return maxRequests;
+    }
+
+    @Override
+    public OptionsInterval interval() {
+      return interval;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null) {
+        return false;
+      }
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof InternalLimit)) {
+        return false;
+      }
+      InternalLimit rhs = (InternalLimit) obj;
+      return new EqualsBuilder()
+          .append(this.maxRequests, rhs.maxRequests)
+          .append(this.interval, rhs.interval)
+          .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+      return new HashCodeBuilder()
+          .append(maxRequests)
+          .append(interval)
+          .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+      return new ToStringBuilder(this)
+          .append("maxRequests", maxRequests)
+          .append("interval", interval)
+          .toString();
+    }
+  }
+
   protected static class InternalRetry implements OptionsRetry {
 
     private Integer retryCount;
@@ -138,8 +305,35 @@ public class InternalOptions implements Options {
 
   private Long maxRequests;
 
+  private List<OptionsLimit> limits = Collections.emptyList();
+
+  private List<OptionsLimit> parents = Collections.emptyList();
+
   private OptionsRetry retry;
 
+  private OptionsBucket bucket;
+
+  private OptionsConcurrency concurrency;
+
+  private Long cost = 1L;
+
+  private String costExpression;
+
+  // derived from other fields, precomputed for hot path
+  private transient long maxRequestCount;
+
+  private transient long intervalNanos;
+
+  private transient long costPermits = 1L;
+
+  private transient long[] maxRequestCounts = new long[0];
+
+  private transient long[] intervalsNanos = new long[0];
+
+  private transient int retries;
+
+  private transient long retryIntervalMillis;
+
   public static InternalOptions disabled(final String resolvedKey) {
     final InternalOptions options = new InternalOptions();
     options.enabled = false;
@@ -153,6 +347,13 @@ public class InternalOptions implements Options {
     options.resolvedKey = resolvedKey;
     options.maxRequests = maxRequests;
     options.interval = interval;
+    options.maxRequestCount = maxRequests;
+    if (interval != null) {
+      options.intervalNanos = interval.unit().toNanos(interval.interval());
+      options.limits = Collections.<OptionsLimit>singletonList(limitOf(maxRequests, interval));
+      options.maxRequestCounts = new long[] {options.maxRequestCount};
+      options.intervalsNanos = new long[] {options.intervalNanos};
+    }
     return options;
   }
 
@@ -169,6 +370,26 @@ public class InternalOptions implements Options {
     return false;
   }
 
+  @Override
+  public OptionsBucket bucket() {
+    return bucket;
+  }
+
+  @Override
+  public OptionsConcurrency concurrency() {
+    return concurrency;
+  }
+
+  @Override
+  public Long cost() {
+    return cost;
+  }
+
+  @Override
+  public String costExpression() {
+    return costExpression;
+  }
+
   @Override
   public boolean enabled() {
     return enabled;
@@ -184,6 +405,16 @@ public class InternalOptions implements Options {
     return maxRequests;
   }
 
+  @Override
+  public List<OptionsLimit> limits() {
+    return limits;
+  }
+
+  @Override
+  public List<OptionsLimit> parents() {
+    return parents;
+  }
+
   @Override
   public String resolvedKey() {
     return resolvedKey;
@@ -199,12 +430,108 @@ public class InternalOptions implements Options {
     return retryEnabled;
   }
 
+  @Override
+  public long maxRequestCount() {
+    return maxRequestCount;
+  }
+
+  @Override
+  public long intervalNanos() {
+    return intervalNanos;
+  }
+
+  @Override
+  public long costPermits() {
+    return costPermits;
+  }
+
+  @Override
+  public long[] maxRequestCounts() {
+    return maxRequestCounts;
+  }
+
+  @Override
+  public long[] intervalsNanos() {
+    return intervalsNanos;
+  }
+
+  @Override
+  public int retries() {
+    return retries;
+  }
+
+  @Override
+  public long retryIntervalMillis() {
+    return retryIntervalMillis;
+  }
+
   public InternalOptions enableRetry(final Integer retryCount, OptionsInterval interval) {
     this.retryEnabled = true;
     this.retry = retryOf(retryCount, interval);
+    this.retries = retryCount;
+    this.retryIntervalMillis = interval.unit().toMillis(interval.interval());
+    return this;
+  }
+
+  public InternalOptions addLimit(final long maxRequests, final OptionsInterval interval) {
+    final List<OptionsLimit> limits = new ArrayList<>(this.limits);
+    limits.add(limitOf(maxRequests, interval));
+    this.limits = Collections.unmodifiableList(limits);
+
+    final int last = limits.size() - 1;
+    maxRequestCounts = Arrays.copyOf(maxRequestCounts, last + 1);
+    intervalsNanos = Arrays.copyOf(intervalsNanos, last + 1);
+    maxRequestCounts[last] = maxRequests;
+    intervalsNanos[last] = interval.unit().toNanos(interval.interval());
+    return this;
+  }
+
+  public InternalOptions addParent(final long maxRequests, final OptionsInterval interval) {
+    final List<OptionsLimit> parents = new ArrayList<>(this.parents);
+    parents.add(limitOf(maxRequests, interval));
+    this.parents = Collections.unmodifiableList(parents);
+    return this;
+  }
+
+  public InternalOptions withCost(final long cost, final String costExpression) {
+    this.cost = cost;
+    this.costExpression = costExpression;
+    this.costPermits = cost;
     return this;
   }
 
+  public InternalOptions limitConcurrency(final Long maxConcurrent, final OptionsInterval lease) {
+    this.concurrency = concurrencyOf(maxConcurrent, lease);
+    return this;
+  }
+
+  public InternalOptions enableBucket(final Long capacity, final Long refillTokens, final OptionsInterval refillInterval) {
+    this.bucket = bucketOf(capacity, refillTokens, refillInterval);
+    return this;
+  }
+
+  public static InternalBucket bucketOf(final Long capacity, final Long refillTokens, final OptionsInterval refillInterval) {
+    final InternalBucket internalBucket = new InternalBucket();
+    internalBucket.capacity = capacity;
+    internalBucket.refillTokens = refillTokens;
+    internalBucket.refillInterval = refillInterval;
+    return internalBucket;
+  }
+
+  public static InternalConcurrency concurrencyOf(final Long maxConcurrent, final OptionsInterval lease) {
+    final InternalConcurrency internalConcurrency = new InternalConcurrency();
+    internalConcurrency.maxConcurrent = maxConcurrent;
+    internalConcurrency.lease = lease;
+    return internalConcurrency;
+  }
+
+  public static InternalLimit limitOf(final Long maxRequests, final OptionsInterval interval) {
+    final InternalLimit internalLimit = new InternalLimit();
+    internalLimit.maxRequests = maxRequests;
+    internalLimit.interval = interval;
+    return internalLimit;
+  }
+
   public static InternalRetry retryOf(final Integer retryCount, final OptionsInterval interval) {
     final InternalRetry internalRetry = new InternalRetry();
     internalRetry.retryCount = retryCount;
@@ -230,7 +557,13 @@ public class InternalOptions implements Options {
         .append(this.enabled, rhs.enabled)
         .append(this.interval, rhs.interval)
         .append(this.maxRequests, rhs.maxRequests)
+        .append(this.limits, rhs.limits)
+        .append(this.parents, rhs.parents)
         .append(this.retry, rhs.retry)
+        .append(this.bucket, rhs.bucket)
+        .append(this.concurrency, rhs.concurrency)
+        .append(this.cost, rhs.cost)
+        .append(this.costExpression, rhs.costExpression)
         .isEquals();
   }
 
@@ -242,7 +575,13 @@ public class InternalOptions implements Options {
         .append(enabled)
         .append(interval)
         .append(maxRequests)
+        .append(limits)
+        .append(parents)
         .append(retry)
+        .append(bucket)
+        .append(concurrency)
+        .append(cost)
+        .append(costExpression)
         .toHashCode();
   }
 
@@ -253,8 +592,14 @@ public class InternalOptions implements Options {
         .append("enabled", enabled)
         .append("maxRequests", maxRequests)
         .append("interval", interval)
+        .append("limits", limits)
+        .append("parents", parents)
         .append("retryEnabled", retryEnabled)
         .append("retry", retry)
+        .append("bucket", bucket)
+        .append("concurrency", concurrency)
+        .append("cost", cost)
+        .append("costExpression", costExpression)
         .toString();
   }
 }
@@ -53,6 +53,41 @@ import org.springframework.util.StringUtils;
  * <li>no more then <b>5</b> requests in <b>10 seconds</b></li>
  * <li>no more then <b>2</b> retries every <b>1 minute</b></li>
  * </ul>
+ * <p>
+ * Token bucket can be configured for use with {@link com.github.usedrarely.spring.rate.limit.checker.BucketRateChecker}.
+ * Refill properties are optional, when missing bucket is refilled with .requests tokens every .interval:
+ * <pre>
+ *  {@code
+ *   rate.limited.limitingkey.bucket.capacity=20
+ *   rate.limited.limitingkey.bucket.refill.tokens=1
+ *   rate.limited.limitingkey.bucket.refill.interval=2
+ *   rate.limited.limitingkey.bucket.refill.interval.unit=SECONDS
+ *  }
+ * </pre>
+ * <p>
+ * This would allow bursts of up to <b>20</b> requests, with sustained rate of <b>1</b> request every <b>2 seconds</b>.
+ * <p>
+ * Additional limits are configured with indexed properties, starting with index 0.
+ * When .requests and .interval are missing, the first indexed limit is the main one:
+ * <pre>
+ *  {@code
+ *   rate.limited.limitingkey.limits[0].requests=1000
+ *   rate.limited.limitingkey.limits[0].interval=1
+ *   rate.limited.limitingkey.limits[0].interval.unit=HOURS
+ *  }
+ * </pre>
+ * <p>
+ * Together with the first snippet this would allow no more then <b>5</b> requests in <b>10 seconds</b> and <b>1000</b> requests in <b>1 hour</b>.
+ * <p>
+ * Limits of enclosing scopes, keys of which are declared by {@link com.github.usedrarely.spring.rate.limit.RateLimited#parents()},
+ * are configured with the same indexed properties, ie. {@code .parents[0].requests}, {@code .parents[0].interval} and {@code .parents[0].interval.unit}.
+ * <p>
+ * Calls take one permit unless cost is configured, either as constant {@code .cost=10}
+ * or as SpEL expression over call arguments {@code .cost.expression=#p0.size()}, see {@link com.github.usedrarely.spring.rate.limit.RateLimited#costExpression()}.
+ * <p>
+ * Number of executions running at the same time is limited with {@code .concurrency.max}, lease of each execution
+ * expires after {@code .concurrency.lease} in {@code .concurrency.lease.unit}, 1 minute if not configured,
+ * see {@link com.github.usedrarely.spring.rate.limit.Concurrency}.
  *
  * @author Franjo Zilic
  */
@@ -68,6 +103,28 @@ public class PropertyOptionsResolver implements OptionsResolver {
 
   private final String propertyFormatIntervalUnit;
 
+  private final String propertyFormatLimitRequests;
+
+  private final String propertyFormatLimitInterval;
+
+  private final String propertyFormatLimitIntervalUnit;
+
+  private final String propertyFormatParentRequests;
+
+  private final String propertyFormatParentInterval;
+
+  private final String propertyFormatParentIntervalUnit;
+
+  private final String propertyFormatCost;
+
+  private final String propertyFormatCostExpression;
+
+  private final String propertyFormatConcurrencyMax;
+
+  private final String propertyFormatConcurrencyLease;
+
+  private final String propertyFormatConcurrencyLeaseUnit;
+
   private final String propertyFormatRetryCount;
 
   private final String propertyFormatRetryInterval;
@@ -76,6 +133,14 @@ public class PropertyOptionsResolver implements OptionsResolver {
 
   private final String propertyFormatRetryEnabled;
 
+  private final String propertyFormatBucketCapacity;
+
+  private final String propertyFormatBucketRefillTokens;
+
+  private final String propertyFormatBucketRefillInterval;
+
+  private final String propertyFormatBucketRefillIntervalUnit;
+
   private Environment environment;
 
   public PropertyOptionsResolver() {
@@ -89,10 +154,25 @@ public class PropertyOptionsResolver implements OptionsResolver {
     propertyFormatRequests = String.format("%s.%%s.requests", propertyPrefix);
     propertyFormatInterval = String.format("%s.%%s.interval", propertyPrefix);
     propertyFormatIntervalUnit = String.format("%s.%%s.interval.unit", propertyPrefix);
+    propertyFormatLimitRequests = String.format("%s.%%s.limits[%%d].requests", propertyPrefix);
+    propertyFormatLimitInterval = String.format("%s.%%s.limits[%%d].interval", propertyPrefix);
+    propertyFormatLimitIntervalUnit = String.format("%s.%%s.limits[%%d].interval.unit", propertyPrefix);
+    propertyFormatParentRequests = String.format("%s.%%s.parents[%%d].requests", propertyPrefix);
+    propertyFormatParentInterval = String.format("%s.%%s.parents[%%d].interval", propertyPrefix);
+    propertyFormatParentIntervalUnit = String.format("%s.%%s.parents[%%d].interval.unit", propertyPrefix);
+    propertyFormatCost = String.format("%s.%%s.cost", propertyPrefix);
+    propertyFormatCostExpression = String.format("%s.%%s.cost.expression", propertyPrefix);
+    propertyFormatConcurrencyMax = String.format("%s.%%s.concurrency.max", propertyPrefix);
+    propertyFormatConcurrencyLease = String.format("%s.%%s.concurrency.lease", propertyPrefix);
+    propertyFormatConcurrencyLeaseUnit = String.format("%s.%%s.concurrency.lease.unit", propertyPrefix);
     propertyFormatRetryEnabled = String.format("%s.%%s.retry.enabled", propertyPrefix);
     propertyFormatRetryCount = String.format("%s.%%s.retry.count", propertyPrefix);
     propertyFormatRetryInterval = String.format("%s.%%s.retry.interval", propertyPrefix);
     propertyFormatRetryIntervalUnit = String.format("%s.%%s.retry.interval.unit", propertyPrefix);
+    propertyFormatBucketCapacity = String.format("%s.%%s.bucket.capacity", propertyPrefix);
+    propertyFormatBucketRefillTokens = String.format("%s.%%s.bucket.refill.tokens", propertyPrefix);
+    propertyFormatBucketRefillInterval = String.format("%s.%%s.bucket.refill.interval", propertyPrefix);
+    propertyFormatBucketRefillIntervalUnit = String.format("%s.%%s.bucket.refill.interval.unit", propertyPrefix);
   }
 
   /**
@@ -122,13 +202,57 @@ public class PropertyOptionsResolver implements OptionsResolver {
     final Long requests = getRequestsProperty(key);
     final Long interval = getIntervalProperty(key);
 
-    if (requests == null || requests < 1L || interval == null || interval < 1L) {
-      throw new IllegalConfigurationException("Invalid configuration for '".concat(key).concat("' .requests and .interval must be a positive number"));
+    // main limit can be left out only when indexed limits are configured
+    InternalOptions options = null;
+    if (requests != null || interval != null || getLimitRequestsProperty(key, 0) == null) {
+      if (requests == null || requests < 1L || interval == null || interval < 1L) {
+        throw new IllegalConfigurationException("Invalid configuration for '".concat(key).concat("' .requests and .interval must be a positive number"));
+      }
+      final TimeUnit intervalUnit = getProperty(propertyFormatIntervalUnit, key, TimeUnit.class, TimeUnit.MINUTES);
+      options = InternalOptions.enabled(key, requests, InternalOptions.intervalOf(interval, intervalUnit));
+    }
+
+    Long limitRequests;
+    for (int idx = 0; (limitRequests = getLimitRequestsProperty(key, idx)) != null; idx++) {
+      final Long limitInterval = getLimitProperty(propertyFormatLimitInterval, key, idx, Long.class, null);
+      if (limitRequests < 1L || limitInterval == null || limitInterval < 1L) {
+        throw new IllegalConfigurationException("Invalid configuration for '".concat(key).concat("' .limits[").concat(Integer.toString(idx))
+            .concat("].requests and .limits[").concat(Integer.toString(idx)).concat("].interval must be a positive number"));
+      }
+      final TimeUnit limitUnit = getLimitProperty(propertyFormatLimitIntervalUnit, key, idx, TimeUnit.class, TimeUnit.MINUTES);
+      final OptionsInterval limit = InternalOptions.intervalOf(limitInterval, limitUnit);
+      options = options == null ? InternalOptions.enabled(key, limitRequests, limit) : options.addLimit(limitRequests, limit);
+    }
+
+    Long parentRequests;
+    for (int idx = 0; (parentRequests = getLimitProperty(propertyFormatParentRequests, key, idx, Long.class, null)) != null; idx++) {
+      final Long parentInterval = getLimitProperty(propertyFormatParentInterval, key, idx, Long.class, null);
+      if (parentRequests < 1L || parentInterval == null || parentInterval < 1L) {
+        throw new IllegalConfigurationException("Invalid configuration for '".concat(key).concat("' .parents[").concat(Integer.toString(idx))
+            .concat("].requests and .parents[").concat(Integer.toString(idx)).concat("].interval must be a positive number"));
+      }
+      final TimeUnit parentUnit = getLimitProperty(propertyFormatParentIntervalUnit, key, idx, TimeUnit.class, TimeUnit.MINUTES);
+      options.addParent(parentRequests, InternalOptions.intervalOf(parentInterval, parentUnit));
+    }
+
+    final Long cost = getProperty(propertyFormatCost, key, Long.class, 1L);
+    if (cost < 1L) {
+      throw new IllegalConfigurationException("Invalid configuration for '".concat(key).concat("' .cost must be a positive number"));
     }
+    final String costExpression = getProperty(propertyFormatCostExpression, key, String.class);
+    options.withCost(cost, StringUtils.hasText(costExpression) ? costExpression : null);
 
-    final TimeUnit intervalUnit = getProperty(propertyFormatIntervalUnit, key, TimeUnit.class, TimeUnit.MINUTES);
+    final Long maxConcurrent = getProperty(propertyFormatConcurrencyMax, key, Long.class);
+    if (maxConcurrent != null) {
+      final Long lease = getProperty(propertyFormatConcurrencyLease, key, Long.class, 1L);
+      final TimeUnit leaseUnit = getProperty(propertyFormatConcurrencyLeaseUnit, key, TimeUnit.class, TimeUnit.MINUTES);
 
-    final InternalOptions options = InternalOptions.enabled(key, requests, InternalOptions.intervalOf(interval, intervalUnit));
+      if (maxConcurrent < 1L || lease < 1L) {
+        throw new IllegalConfigurationException("Invalid configuration for '".concat(key).concat("' .concurrency.max and .concurrency.lease must be a positive number"));
+      }
+
+      options.limitConcurrency(maxConcurrent, InternalOptions.intervalOf(lease, leaseUnit));
+    }
 
     if (getProperty(propertyFormatRetryEnabled, key, Boolean.TYPE, false)) {
       final Integer retry = getProperty(propertyFormatRetryCount, key, Integer.class);
@@ -142,6 +266,19 @@ public class PropertyOptionsResolver implements OptionsResolver {
       options.enableRetry(retry, InternalOptions.intervalOf(retryInterval, retryUnit));
     }
 
+    final Long capacity = getProperty(propertyFormatBucketCapacity, key, Long.class);
+    if (capacity != null) {
+      final Long refillTokens = getProperty(propertyFormatBucketRefillTokens, key, Long.class, options.maxRequests());
+      final Long refillInterval = getProperty(propertyFormatBucketRefillInterval, key, Long.class, options.interval().interval());
+      final TimeUnit refillUnit = getProperty(propertyFormatBucketRefillIntervalUnit, key, TimeUnit.class, options.interval().unit());
+
+      if (capacity < 1 || refillTokens < 1 || refillInterval < 1) {
+        throw new IllegalConfigurationException("Invalid configuration for '".concat(key).concat("' .bucket.capacity, .bucket.refill.tokens and .bucket.refill.interval must be a positive number"));
+      }
+
+      options.enableBucket(capacity, refillTokens, InternalOptions.intervalOf(refillInterval, refillUnit));
+    }
+
     return options;
   }
 
@@ -157,6 +294,14 @@ public class PropertyOptionsResolver implements OptionsResolver {
     return getProperty(propertyFormatInterval, key, Long.class);
   }
 
+  private Long getLimitRequestsProperty(final String key, final int index) {
+    return getLimitProperty(propertyFormatLimitRequests, key, index, Long.class, null);
+  }
+
+  private <T> T getLimitProperty(final String propertyFormat, final String key, final int index, final Class<T> type, final T defaultValue) {
+    return environment.getProperty(String.format(propertyFormat, key, index), type, defaultValue);
+  }
+
   private <T> T getProperty(final String propertyFormat, final String key, final Class<T> type, final T defaultValue) {
     return environment.getProperty(String.format(propertyFormat, key), type, defaultValue);
   }
@@ -191,6 +336,15 @@ public class PropertyOptionsResolver implements OptionsResolver {
 
     final Long requestsProperty = getRequestsProperty(key);
     final Long intervalProperty = getIntervalProperty(key);
+    if (requestsProperty == null && intervalProperty == null) {
+      // only indexed limits are configured
+      final Long limitRequests = getLimitRequestsProperty(key, 0);
+      final Long limitInterval = getLimitProperty(propertyFormatLimitInterval, key, 0, Long.class, null);
+      return limitRequests != null
+          && limitRequests > 0
+          && limitInterval != null
+          && limitInterval > 0;
+    }
     return requestsProperty != null
         && requestsProperty > 0
         && intervalProperty != null
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.retry;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+
+/**
+ * Starts with configured retry interval and multiplies it for every following attempt, up to maximum delay.
+ *
+ * @author franjozilic
+ */
+public class ExponentialBackoff implements RetryBackoff {
+
+  private final double multiplier;
+
+  private final long maxDelayMillis;
+
+  public ExponentialBackoff() {
+    this(2.0D, Long.MAX_VALUE);
+  }
+
+  public ExponentialBackoff(final double multiplier, final long maxDelayMillis) {
+    if (multiplier < 1.0D) {
+      throw new IllegalArgumentException("Multiplier must not be less then 1");
+    }
+    this.multiplier = multiplier;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  @Override
+  public long delay(final int attempt, final long retryIntervalMillis, final AcquireResult result) {
+    final double delay = retryIntervalMillis * Math.pow(multiplier, attempt - 1);
+    return delay >= maxDelayMillis ? maxDelayMillis : (long) delay;
+  }
+
+}
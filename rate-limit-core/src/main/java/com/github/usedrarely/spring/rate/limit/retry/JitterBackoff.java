@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.retry;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Adds random part to delay of another policy, so callers rejected at the same time don't retry at the same time.
+ * <p/>
+ * Delay is increased by up to {@code ratio} of delegate delay, it is never shortened so retry isn't attempted
+ * before the time checker reported.
+ *
+ * @author franjozilic
+ */
+public class JitterBackoff implements RetryBackoff {
+
+  private final RetryBackoff delegate;
+
+  private final double ratio;
+
+  public JitterBackoff(final RetryBackoff delegate) {
+    this(delegate, 0.1D);
+  }
+
+  public JitterBackoff(final RetryBackoff delegate, final double ratio) {
+    if (ratio < 0.0D) {
+      throw new IllegalArgumentException("Ratio must not be negative");
+    }
+    this.delegate = delegate;
+    this.ratio = ratio;
+  }
+
+  @Override
+  public long delay(final int attempt, final long retryIntervalMillis, final AcquireResult result) {
+    final long delay = delegate.delay(attempt, retryIntervalMillis, result);
+    final long jitter = (long) (delay * ratio);
+    if (delay == AcquireResult.NEVER || jitter <= 0L) {
+      return delay;
+    }
+    return delay + ThreadLocalRandom.current().nextLong(jitter + 1L);
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.retry;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+
+/**
+ * Waits exactly until the time checker reported the execution can be allowed.
+ * <p/>
+ * Checkers that don't provide the time ({@link AcquireResult#UNKNOWN}) are retried by fallback policy.
+ * Executions that can never be allowed are not retried.
+ *
+ * @author franjozilic
+ */
+public class RetryAfterBackoff implements RetryBackoff {
+
+  private final RetryBackoff fallback;
+
+  public RetryAfterBackoff() {
+    this(new FixedBackoff());
+  }
+
+  public RetryAfterBackoff(final RetryBackoff fallback) {
+    this.fallback = fallback;
+  }
+
+  @Override
+  public long delay(final int attempt, final long retryIntervalMillis, final AcquireResult result) {
+    if (result.retryAfter() == AcquireResult.UNKNOWN) {
+      return fallback.delay(attempt, retryIntervalMillis, result);
+    }
+    return Math.max(1L, result.retryAfter());
+  }
+
+}
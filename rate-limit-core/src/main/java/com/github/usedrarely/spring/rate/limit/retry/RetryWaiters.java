@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.retry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits number of threads waiting for rate limit retries at the same time, in whole JVM and per rate limiting key.
+ * <p/>
+ * Callers that can't start waiting are rejected immediately instead of occupying request threads.
+ * Current and rejected waiter counts are exposed so they can be published as metrics.
+ * <p/>
+ * Per key counters exist only while key has waiters.
+ *
+ * @author franjozilic
+ */
+public class RetryWaiters {
+
+  private final int maxWaiting;
+
+  private final int maxWaitingPerKey;
+
+  private final AtomicInteger waiting = new AtomicInteger();
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  private final ConcurrentMap<String, AtomicInteger> keys = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxWaiting       maximum number of waiting threads in JVM
+   * @param maxWaitingPerKey maximum number of waiting threads per rate limiting key
+   */
+  public RetryWaiters(final int maxWaiting, final int maxWaitingPerKey) {
+    if (maxWaiting < 0 || maxWaitingPerKey < 0) {
+      throw new IllegalArgumentException("Maximum number of waiters must not be negative");
+    }
+    this.maxWaiting = maxWaiting;
+    this.maxWaitingPerKey = maxWaitingPerKey;
+  }
+
+  /**
+   * Registers caller as waiter, every successful call has to be followed with {@link #leave(String)}
+   *
+   * @param key rate limiting key
+   * @return true if caller may wait, false if limit of waiters is reached
+   */
+  public boolean tryEnter(final String key) {
+    if (!increment(waiting, maxWaiting)) {
+      rejected.incrementAndGet();
+      return false;
+    }
+    if (!enterKey(key)) {
+      waiting.decrementAndGet();
+      rejected.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param key rate limiting key caller waited for
+   */
+  public void leave(final String key) {
+    final AtomicInteger counter = keys.get(key);
+    // counter that drops to zero is dead and is replaced by next waiter
+    if (counter != null && counter.decrementAndGet() == 0) {
+      keys.remove(key, counter);
+    }
+    waiting.decrementAndGet();
+  }
+
+  private boolean enterKey(final String key) {
+    while (true) {
+      final AtomicInteger counter = keys.get(key);
+      if (counter == null) {
+        if (maxWaitingPerKey == 0) {
+          return false;
+        }
+        if (keys.putIfAbsent(key, new AtomicInteger(1)) == null) {
+          return true;
+        }
+        continue;
+      }
+      final int current = counter.get();
+      if (current == 0) {
+        keys.remove(key, counter);
+        continue;
+      }
+      if (current >= maxWaitingPerKey) {
+        return false;
+      }
+      if (counter.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private static boolean increment(final AtomicInteger counter, final int max) {
+    while (true) {
+      final int current = counter.get();
+      if (current >= max) {
+        return false;
+      }
+      if (counter.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * @return number of threads currently waiting
+   */
+  public int waiting() {
+    return waiting.get();
+  }
+
+  /**
+   * @param key rate limiting key
+   * @return number of threads currently waiting for key
+   */
+  public int waiting(final String key) {
+    final AtomicInteger counter = keys.get(key);
+    return counter == null ? 0 : counter.get();
+  }
+
+  /**
+   * @return number of keys with waiting threads
+   */
+  public int waitingKeys() {
+    return keys.size();
+  }
+
+  /**
+   * @return total number of callers rejected because limit of waiters was reached
+   */
+  public long rejected() {
+    return rejected.get();
+  }
+
+  public int maxWaiting() {
+    return maxWaiting;
+  }
+
+  public int maxWaitingPerKey() {
+    return maxWaitingPerKey;
+  }
+
+}
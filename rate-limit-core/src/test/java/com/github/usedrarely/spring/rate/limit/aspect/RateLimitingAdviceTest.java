@@ -18,32 +18,73 @@
 package com.github.usedrarely.spring.rate.limit.aspect;
 
 
+import com.github.usedrarely.spring.rate.limit.Concurrency;
 import com.github.usedrarely.spring.rate.limit.Interval;
+import com.github.usedrarely.spring.rate.limit.ParentLimit;
 import com.github.usedrarely.spring.rate.limit.RateLimited;
 import com.github.usedrarely.spring.rate.limit.RateLimitedRetry;
+import com.github.usedrarely.spring.rate.limit.analytics.RateLimitAnalytics;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireRequest;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.BatchRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.BucketRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLease;
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLimiter;
+import com.github.usedrarely.spring.rate.limit.checker.KeyChainRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.MultiWindowRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
 import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.ReactiveRateChecker;
 import com.github.usedrarely.spring.rate.limit.exception.CallBlockedException;
+import com.github.usedrarely.spring.rate.limit.exception.ConcurrencyLimitExceededException;
 import com.github.usedrarely.spring.rate.limit.exception.RateLimitExceededException;
 import com.github.usedrarely.spring.rate.limit.key.DefaultKeyGenerator;
 import com.github.usedrarely.spring.rate.limit.options.AnnotationOptionsResolver;
 import com.github.usedrarely.spring.rate.limit.options.InternalOptions;
 import com.github.usedrarely.spring.rate.limit.options.Options;
+import com.github.usedrarely.spring.rate.limit.options.OptionsBucket;
 import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
 import com.github.usedrarely.spring.rate.limit.options.OptionsResolver;
+import com.github.usedrarely.spring.rate.limit.retry.RetryBackoff;
+import com.github.usedrarely.spring.rate.limit.retry.RetryWaiters;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.aspectj.lang.JoinPoint;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -57,6 +98,12 @@ public class RateLimitingAdviceTest {
     void bMethod();
 
     void cMethod();
+
+    void dMethod();
+
+    void weighted(int units);
+
+    void concurrent();
   }
 
   class LimitedService implements LimitedInterface {
@@ -76,11 +123,79 @@ public class RateLimitingAdviceTest {
     public void cMethod() {
 
     }
+
+    @Override
+    @RateLimited(key = "user", maxRequests = 10, interval = @Interval(interval = 1),
+        parents = @ParentLimit(key = "tenant", maxRequests = 100, interval = @Interval(interval = 1)))
+    public void dMethod() {
+    }
+
+    @Override
+    @RateLimited(key = "test", maxRequests = 10, interval = @Interval(interval = 1), costExpression = "#p0")
+    public void weighted(final int units) {
+    }
+
+    @Override
+    @RateLimited(key = "test", maxRequests = 10, interval = @Interval(interval = 1), concurrency = @Concurrency(maxConcurrent = 2))
+    public void concurrent() {
+    }
+  }
+
+  interface AsyncInterface {
+
+    CompletableFuture<String> completable();
+
+    ListenableFuture<String> listenable();
+  }
+
+  class AsyncService implements AsyncInterface {
+    @Override
+    @RateLimited(key = "async", maxRequests = 10, interval = @Interval(interval = 1))
+    @RateLimitedRetry(retryCount = 2, interval = @Interval(interval = 100, unit = TimeUnit.MILLISECONDS))
+    public CompletableFuture<String> completable() {
+      return CompletableFuture.completedFuture("completable");
+    }
+
+    @Override
+    @RateLimited(key = "async", maxRequests = 10, interval = @Interval(interval = 1))
+    public ListenableFuture<String> listenable() {
+      final SettableListenableFuture<String> future = new SettableListenableFuture<>();
+      future.set("listenable");
+      return future;
+    }
+  }
+
+  interface ReactiveInterface {
+
+    Mono<String> mono();
+
+    Flux<String> flux();
+  }
+
+  class ReactiveService implements ReactiveInterface {
+    @Override
+    @RateLimited(key = "reactive", maxRequests = 10, interval = @Interval(interval = 1))
+    @RateLimitedRetry(retryCount = 2, interval = @Interval(interval = 100, unit = TimeUnit.MILLISECONDS))
+    public Mono<String> mono() {
+      return Mono.just("mono");
+    }
+
+    @Override
+    @RateLimited(key = "reactive", maxRequests = 10, interval = @Interval(interval = 1))
+    public Flux<String> flux() {
+      return Flux.just("a", "b");
+    }
+  }
+
+  interface ReactivePermitRateChecker extends PermitRateChecker, ReactiveRateChecker {
   }
 
   @Mock
   RateChecker rateChecker;
 
+  @Captor
+  ArgumentCaptor<Collection<AcquireRequest>> requests;
+
   @Before
   public void setUp() {
     reset(rateChecker);
@@ -111,6 +226,540 @@ public class RateLimitingAdviceTest {
 
   }
 
+  @Test
+  public void shouldAllowWithBucket() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final BucketRateChecker bucketRateChecker = mock(BucketRateChecker.class);
+    final OptionsResolver optionsResolver = mock(OptionsResolver.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), optionsResolver, bucketRateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final OptionsBucket bucket = InternalOptions.bucketOf(20L, 1L, InternalOptions.intervalOf(1L, TimeUnit.SECONDS));
+    when(optionsResolver.resolve(eq("test"), any(JoinPoint.class))).thenReturn(InternalOptions
+        .enabled("test", 10L, InternalOptions.intervalOf(1L, TimeUnit.MINUTES))
+        .enableBucket(20L, 1L, InternalOptions.intervalOf(1L, TimeUnit.SECONDS)));
+    when(bucketRateChecker.acquire(eq("test"), eq(bucket))).thenReturn(AcquireResult.of(true));
+
+    limited.aMethod();
+
+    verify(bucketRateChecker).acquire(eq("test"), eq(bucket));
+    verify(bucketRateChecker, never()).check(anyString(), anyLong(), any(OptionsInterval.class));
+  }
+
+  @Test
+  public void shouldAllowWithPermitRateChecker() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final PermitRateChecker permitRateChecker = mock(PermitRateChecker.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), permitRateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    when(permitRateChecker.acquire("test", 1L, 10L, TimeUnit.MINUTES.toNanos(1L))).thenReturn(AcquireResult.allowed(9L, 1000L));
+
+    limited.aMethod();
+
+    verify(permitRateChecker).acquire("test", 1L, 10L, TimeUnit.MINUTES.toNanos(1L));
+    verify(permitRateChecker, never()).check(anyString(), anyLong(), any(OptionsInterval.class));
+  }
+
+  @Test
+  public void shouldCheckAllLimitsAtOnce() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final MultiWindowRateChecker multiWindowRateChecker = mock(MultiWindowRateChecker.class);
+    final OptionsResolver optionsResolver = mock(OptionsResolver.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), optionsResolver, multiWindowRateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    when(optionsResolver.resolve(eq("test"), any(JoinPoint.class))).thenReturn(InternalOptions
+        .enabled("test", 10L, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+        .addLimit(1000L, InternalOptions.intervalOf(1L, TimeUnit.HOURS)));
+    final long[] maxRequests = {10L, 1000L};
+    final long[] windows = {TimeUnit.SECONDS.toNanos(1L), TimeUnit.HOURS.toNanos(1L)};
+    when(multiWindowRateChecker.acquire(eq("test"), eq(1L), aryEq(maxRequests), aryEq(windows))).thenReturn(AcquireResult.allowed(9L, 1000L));
+
+    limited.aMethod();
+
+    verify(multiWindowRateChecker).acquire(eq("test"), eq(1L), aryEq(maxRequests), aryEq(windows));
+    verify(multiWindowRateChecker, never()).acquire(anyString(), anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  public void shouldTakeCostOfCall() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final PermitRateChecker permitRateChecker = mock(PermitRateChecker.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), permitRateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final long window = TimeUnit.MINUTES.toNanos(1L);
+    when(permitRateChecker.acquire("test", 5L, 10L, window)).thenReturn(AcquireResult.allowed(5L, 1000L));
+
+    limited.weighted(5);
+    limited.weighted(0);
+
+    verify(permitRateChecker).acquire("test", 5L, 10L, window);
+    verify(permitRateChecker, never()).acquire("test", 0L, 10L, window);
+  }
+
+  @Test
+  public void shouldCheckEachPermitOfCostWithLegacyChecker() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), rateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final OptionsInterval value = InternalOptions.intervalOf(1L, TimeUnit.MINUTES);
+    when(rateChecker.check(eq("test"), eq(10L), eq(value))).thenReturn(true);
+    limited.weighted(3);
+    verify(rateChecker, times(3)).check(eq("test"), eq(10L), eq(value));
+  }
+
+  @Test
+  public void shouldRejectCostAboveLimitWithoutCheckingLegacyChecker() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), rateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    when(rateChecker.check(eq("test"), eq(10L), any(OptionsInterval.class))).thenReturn(true);
+    try {
+      limited.weighted(11);
+      fail("Expected rate limit exceeded");
+    }
+    catch (final RateLimitExceededException exception) {
+      // could never be allowed, permits must not be spent on it
+      verify(rateChecker, never()).check(anyString(), anyLong(), any(OptionsInterval.class));
+    }
+  }
+
+  @Test
+  public void shouldReleaseLeaseAfterExecution() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final RateLimitingAdvice advice = new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), rateChecker);
+    final ConcurrencyLimiter concurrencyLimiter = mock(ConcurrencyLimiter.class);
+    advice.setConcurrencyLimiter(concurrencyLimiter);
+    proxyFactory.addAspect(advice);
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final ConcurrencyLease lease = mock(ConcurrencyLease.class);
+    when(rateChecker.check(eq("test"), eq(10L), any(OptionsInterval.class))).thenReturn(true);
+    when(concurrencyLimiter.tryAcquire("test", 2L, TimeUnit.MINUTES.toNanos(1L))).thenReturn(lease);
+
+    limited.concurrent();
+
+    verify(concurrencyLimiter).tryAcquire("test", 2L, TimeUnit.MINUTES.toNanos(1L));
+    verify(lease).release();
+  }
+
+  @Test
+  public void shouldRejectWhenAllSlotsAreTaken() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final RateLimitAnalytics analytics = mock(RateLimitAnalytics.class);
+    final RateLimitingAdvice advice = new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), rateChecker, analytics);
+    final ConcurrencyLimiter concurrencyLimiter = mock(ConcurrencyLimiter.class);
+    advice.setConcurrencyLimiter(concurrencyLimiter);
+    proxyFactory.addAspect(advice);
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    try {
+      limited.concurrent();
+      fail("Expected concurrency limit exceeded");
+    }
+    catch (final ConcurrencyLimitExceededException exception) {
+      verify(concurrencyLimiter).tryAcquire("test", 2L, TimeUnit.MINUTES.toNanos(1L));
+      // no permits are spent and execution is reported only once
+      verify(rateChecker, never()).check(anyString(), anyLong(), any(OptionsInterval.class));
+      verify(analytics).concurrencyExceeded(any(JoinPoint.class), any(RateLimited.class), eq("test"), any(Options.class));
+      verify(analytics, never()).succeeded(any(JoinPoint.class), any(RateLimited.class), anyString(), any(Options.class), any(AcquireResult.class));
+    }
+  }
+
+  @Test
+  public void shouldReleaseLeaseWhenRateIsExceeded() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final RateLimitingAdvice advice = new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), rateChecker);
+    final ConcurrencyLimiter concurrencyLimiter = mock(ConcurrencyLimiter.class);
+    advice.setConcurrencyLimiter(concurrencyLimiter);
+    proxyFactory.addAspect(advice);
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final ConcurrencyLease lease = mock(ConcurrencyLease.class);
+    when(concurrencyLimiter.tryAcquire("test", 2L, TimeUnit.MINUTES.toNanos(1L))).thenReturn(lease);
+    when(rateChecker.check(eq("test"), eq(10L), any(OptionsInterval.class))).thenReturn(false);
+
+    try {
+      limited.concurrent();
+      fail("Expected rate limit exceeded");
+    }
+    catch (final RateLimitExceededException exception) {
+      verify(lease).release();
+    }
+  }
+
+  @Test
+  public void shouldIgnoreFailureToReleaseLease() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final RateLimitingAdvice advice = new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), rateChecker);
+    final ConcurrencyLimiter concurrencyLimiter = mock(ConcurrencyLimiter.class);
+    advice.setConcurrencyLimiter(concurrencyLimiter);
+    proxyFactory.addAspect(advice);
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final ConcurrencyLease lease = mock(ConcurrencyLease.class);
+    when(concurrencyLimiter.tryAcquire("test", 2L, TimeUnit.MINUTES.toNanos(1L))).thenReturn(lease);
+    when(rateChecker.check(eq("test"), eq(10L), any(OptionsInterval.class))).thenReturn(true);
+    doThrow(new IllegalStateException("down")).when(lease).release();
+
+    limited.concurrent();
+
+    verify(lease).release();
+  }
+
+  @Test
+  public void shouldReleaseLeaseWhenPublisherCompletes() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ReactiveService());
+    final OptionsResolver optionsResolver = mock(OptionsResolver.class);
+    final RateLimitingAdvice advice = new RateLimitingAdvice(new DefaultKeyGenerator(), optionsResolver, rateChecker);
+    final ConcurrencyLimiter concurrencyLimiter = mock(ConcurrencyLimiter.class);
+    advice.setConcurrencyLimiter(concurrencyLimiter);
+    proxyFactory.addAspect(advice);
+    final ReactiveInterface reactive = proxyFactory.getProxy();
+
+    final ConcurrencyLease lease = mock(ConcurrencyLease.class);
+    when(optionsResolver.resolve(eq("reactive"), any(JoinPoint.class))).thenReturn(InternalOptions
+        .enabled("reactive", 10L, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+        .limitConcurrency(1L, InternalOptions.intervalOf(10L, TimeUnit.SECONDS)));
+    when(rateChecker.check(eq("reactive"), eq(10L), any(OptionsInterval.class))).thenReturn(true);
+    when(concurrencyLimiter.tryAcquire("reactive", 1L, TimeUnit.SECONDS.toNanos(10L))).thenReturn(lease);
+
+    final Flux<String> flux = reactive.flux();
+    verify(concurrencyLimiter, never()).tryAcquire(anyString(), anyLong(), anyLong());
+
+    assertThat(flux.collectList().block()).containsExactly("a", "b");
+    // released after completion is signalled downstream, possibly after block returns
+    verify(lease, timeout(1000L)).release();
+  }
+
+  @Test
+  public void shouldCheckKeyChainAtOnce() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final KeyChainRateChecker keyChainRateChecker = mock(KeyChainRateChecker.class);
+    final OptionsResolver optionsResolver = mock(OptionsResolver.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), optionsResolver, keyChainRateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    when(optionsResolver.resolve(eq("user"), any(JoinPoint.class))).thenReturn(InternalOptions
+        .enabled("user", 10L, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+        .addLimit(1000L, InternalOptions.intervalOf(1L, TimeUnit.HOURS))
+        .addParent(100L, InternalOptions.intervalOf(1L, TimeUnit.SECONDS)));
+    final String[] keys = {"user", "user", "tenant"};
+    final long[] maxRequests = {10L, 1000L, 100L};
+    final long[] windows = {TimeUnit.SECONDS.toNanos(1L), TimeUnit.HOURS.toNanos(1L), TimeUnit.SECONDS.toNanos(1L)};
+    when(keyChainRateChecker.acquire(aryEq(keys), eq(1L), aryEq(maxRequests), aryEq(windows))).thenReturn(AcquireResult.allowed(9L, 1000L));
+
+    limited.dMethod();
+
+    verify(keyChainRateChecker).acquire(aryEq(keys), eq(1L), aryEq(maxRequests), aryEq(windows));
+    verify(keyChainRateChecker, never()).acquire(anyString(), anyLong(), any(long[].class), any(long[].class));
+  }
+
+  @Test
+  public void shouldCheckLimitsInBatch() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final BatchRateChecker batchRateChecker = mock(BatchRateChecker.class);
+    final OptionsResolver optionsResolver = mock(OptionsResolver.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), optionsResolver, batchRateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    when(optionsResolver.resolve(eq("test"), any(JoinPoint.class))).thenReturn(InternalOptions
+        .enabled("test", 10L, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+        .addLimit(1000L, InternalOptions.intervalOf(1L, TimeUnit.HOURS)));
+    when(batchRateChecker.checkAll(anyCollectionOf(AcquireRequest.class)))
+        .thenReturn(Arrays.asList(AcquireResult.allowed(9L, 1000L), AcquireResult.rejected(0L, 60000L, 30000L)));
+
+    try {
+      limited.aMethod();
+      fail("Second limit is exceeded");
+    }
+    catch (final RateLimitExceededException exception) {
+      assertThat(exception.result().remaining()).isEqualTo(0L);
+      assertThat(exception.result().retryAfter()).isEqualTo(30000L);
+    }
+
+    verify(batchRateChecker).checkAll(requests.capture());
+    final AcquireRequest[] captured = requests.getValue().toArray(new AcquireRequest[0]);
+    assertThat(captured).hasSize(2);
+    assertThat(captured[0].key()).isEqualTo("test");
+    assertThat(captured[0].maxRequests()).isEqualTo(10L);
+    assertThat(captured[1].key()).isEqualTo("{test}:1");
+    assertThat(captured[1].windowNanos()).isEqualTo(TimeUnit.HOURS.toNanos(1L));
+  }
+
+  @Test
+  public void shouldRetryAfterReportedWait() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final PermitRateChecker permitRateChecker = mock(PermitRateChecker.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), permitRateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    when(permitRateChecker.acquire("test", 1L, 10L, TimeUnit.MINUTES.toNanos(1L)))
+        .thenReturn(AcquireResult.rejected(0L, 1000L, 5L), AcquireResult.allowed(0L, 1000L));
+
+    final long start = System.nanoTime();
+    limited.bMethod();
+
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(100L);
+    verify(permitRateChecker, times(2)).acquire("test", 1L, 10L, TimeUnit.MINUTES.toNanos(1L));
+  }
+
+  @Test
+  public void shouldFailFastWhenWaitExceedsRetryBudget() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final PermitRateChecker permitRateChecker = mock(PermitRateChecker.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), permitRateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    when(permitRateChecker.acquire("test", 1L, 10L, TimeUnit.MINUTES.toNanos(1L))).thenReturn(AcquireResult.rejected(0L, 60000L, 30000L));
+
+    try {
+      limited.bMethod();
+      fail("Expected rate limit exceeded");
+    }
+    catch (final RateLimitExceededException exception) {
+      assertThat(exception.result().retryAfter()).isEqualTo(30000L);
+    }
+    verify(permitRateChecker, times(1)).acquire("test", 1L, 10L, TimeUnit.MINUTES.toNanos(1L));
+  }
+
+  @Test
+  public void shouldUseRetryBackoff() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final RateLimitingAdvice advice = new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), rateChecker);
+    final RetryBackoff retryBackoff = mock(RetryBackoff.class);
+    advice.setRetryBackoff(retryBackoff);
+    proxyFactory.addAspect(advice);
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final OptionsInterval value = InternalOptions.intervalOf(1L, TimeUnit.MINUTES);
+    when(rateChecker.check(eq("test"), eq(10L), eq(value))).thenReturn(false, false, true);
+    when(retryBackoff.delay(anyInt(), eq(100L), any(AcquireResult.class))).thenReturn(1L);
+
+    limited.bMethod();
+
+    verify(retryBackoff).delay(eq(1), eq(100L), any(AcquireResult.class));
+    verify(retryBackoff).delay(eq(2), eq(100L), any(AcquireResult.class));
+    verify(rateChecker, times(3)).check(eq("test"), eq(10L), eq(value));
+  }
+
+  @Test
+  public void shouldRejectWhenTooManyWaiters() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final RateLimitingAdvice advice = new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), rateChecker);
+    final RetryWaiters retryWaiters = new RetryWaiters(1, 1);
+    retryWaiters.tryEnter("test");
+    advice.setRetryWaiters(retryWaiters);
+    proxyFactory.addAspect(advice);
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final OptionsInterval value = InternalOptions.intervalOf(1L, TimeUnit.MINUTES);
+    when(rateChecker.check(eq("test"), eq(10L), eq(value))).thenReturn(false, true);
+
+    try {
+      limited.bMethod();
+      fail("Expected rate limit exceeded");
+    }
+    catch (final RateLimitExceededException exception) {
+      assertThat(retryWaiters.rejected()).isEqualTo(1L);
+    }
+    verify(rateChecker, times(1)).check(eq("test"), eq(10L), eq(value));
+
+    retryWaiters.leave("test");
+    limited.bMethod();
+
+    assertThat(retryWaiters.waiting()).isEqualTo(0);
+    verify(rateChecker, times(2)).check(eq("test"), eq(10L), eq(value));
+  }
+
+  @Test
+  public void shouldCompleteAsyncAfterRetry() throws Exception {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new AsyncService());
+    final PermitRateChecker permitRateChecker = mock(PermitRateChecker.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), permitRateChecker));
+    final AsyncInterface async = proxyFactory.getProxy();
+
+    when(permitRateChecker.acquire("async", 1L, 10L, TimeUnit.MINUTES.toNanos(1L)))
+        .thenReturn(AcquireResult.rejected(0L, 1000L, 50L), AcquireResult.allowed(0L, 1000L));
+
+    final CompletableFuture<String> future = async.completable();
+
+    assertThat(future.get(1L, TimeUnit.SECONDS)).isEqualTo("completable");
+    verify(permitRateChecker, times(2)).acquire("async", 1L, 10L, TimeUnit.MINUTES.toNanos(1L));
+  }
+
+  @Test
+  public void shouldRunAsyncAttemptsOnCheckExecutor() throws Exception {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new AsyncService());
+    final PermitRateChecker permitRateChecker = mock(PermitRateChecker.class);
+    final RateLimitingAdvice advice = new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), permitRateChecker);
+    final AtomicInteger executed = new AtomicInteger();
+    advice.setCheckExecutor(new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        executed.incrementAndGet();
+        command.run();
+      }
+    });
+    proxyFactory.addAspect(advice);
+    final AsyncInterface async = proxyFactory.getProxy();
+
+    when(permitRateChecker.acquire("async", 1L, 10L, TimeUnit.MINUTES.toNanos(1L)))
+        .thenReturn(AcquireResult.rejected(0L, 1000L, 50L), AcquireResult.allowed(0L, 1000L));
+
+    assertThat(async.completable().get(1L, TimeUnit.SECONDS)).isEqualTo("completable");
+    // delayed retry is handed over from scheduler as well
+    assertThat(executed.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldFailAsyncWhenExceeded() throws Exception {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new AsyncService());
+    final PermitRateChecker permitRateChecker = mock(PermitRateChecker.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), permitRateChecker));
+    final AsyncInterface async = proxyFactory.getProxy();
+
+    when(permitRateChecker.acquire("async", 1L, 10L, TimeUnit.MINUTES.toNanos(1L)))
+        .thenReturn(AcquireResult.rejected(0L, 1000L, AcquireResult.NEVER));
+
+    try {
+      async.listenable().get(1L, TimeUnit.SECONDS);
+      fail("Expected rate limit exceeded");
+    }
+    catch (final ExecutionException exception) {
+      assertThat(exception.getCause()).isInstanceOf(RateLimitExceededException.class);
+    }
+  }
+
+  @Test
+  public void shouldCompleteListenable() throws Exception {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new AsyncService());
+    final PermitRateChecker permitRateChecker = mock(PermitRateChecker.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), permitRateChecker));
+    final AsyncInterface async = proxyFactory.getProxy();
+
+    when(permitRateChecker.acquire("async", 1L, 10L, TimeUnit.MINUTES.toNanos(1L))).thenReturn(AcquireResult.allowed(9L, 1000L));
+
+    assertThat(async.listenable().get(1L, TimeUnit.SECONDS)).isEqualTo("listenable");
+  }
+
+  @Test
+  public void shouldCheckReactiveOnSubscription() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ReactiveService());
+    final ReactivePermitRateChecker reactiveRateChecker = mock(ReactivePermitRateChecker.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), reactiveRateChecker));
+    final ReactiveInterface reactive = proxyFactory.getProxy();
+
+    when(reactiveRateChecker.acquireReactive("reactive", 1L, 10L, TimeUnit.MINUTES.toNanos(1L)))
+        .thenReturn(Mono.just(AcquireResult.rejected(0L, 1000L, 10L))).thenReturn(Mono.just(AcquireResult.allowed(0L, 1000L)));
+
+    final Mono<String> mono = reactive.mono();
+    verify(reactiveRateChecker, never()).acquireReactive(anyString(), anyLong(), anyLong(), anyLong());
+
+    assertThat(mono.block()).isEqualTo("mono");
+    verify(reactiveRateChecker, times(2)).acquireReactive("reactive", 1L, 10L, TimeUnit.MINUTES.toNanos(1L));
+    verify(reactiveRateChecker, never()).acquire(anyString(), anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  public void shouldFailReactiveWhenExceeded() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ReactiveService());
+    final ReactivePermitRateChecker reactiveRateChecker = mock(ReactivePermitRateChecker.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), reactiveRateChecker));
+    final ReactiveInterface reactive = proxyFactory.getProxy();
+
+    when(reactiveRateChecker.acquireReactive("reactive", 1L, 10L, TimeUnit.MINUTES.toNanos(1L)))
+        .thenReturn(Mono.just(AcquireResult.rejected(0L, 1000L, 10L)));
+
+    try {
+      reactive.flux().collectList().block();
+      fail("Expected rate limit exceeded");
+    }
+    catch (final RateLimitExceededException exception) {
+      assertThat(exception.result().retryAfter()).isEqualTo(10L);
+    }
+  }
+
+  @Test
+  public void shouldCheckBlockingCheckerOffSubscriberThread() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ReactiveService());
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), rateChecker));
+    final ReactiveInterface reactive = proxyFactory.getProxy();
+
+    final Thread caller = Thread.currentThread();
+    final OptionsInterval value = InternalOptions.intervalOf(1L, TimeUnit.MINUTES);
+    when(rateChecker.check(eq("reactive"), eq(10L), eq(value))).thenAnswer(new Answer<Boolean>() {
+      @Override
+      public Boolean answer(final InvocationOnMock invocation) {
+        return Thread.currentThread() != caller;
+      }
+    });
+
+    assertThat(reactive.flux().collectList().block()).containsExactly("a", "b");
+  }
+
+  @Test
+  public void shouldCarryResultOnException() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final PermitRateChecker permitRateChecker = mock(PermitRateChecker.class);
+    final RateLimitAnalytics analytics = mock(RateLimitAnalytics.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), new AnnotationOptionsResolver(), permitRateChecker, analytics));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final AcquireResult result = AcquireResult.rejected(0L, 1000L, 500L);
+    when(permitRateChecker.acquire("test", 1L, 10L, TimeUnit.MINUTES.toNanos(1L))).thenReturn(result);
+
+    try {
+      limited.aMethod();
+      fail("Expected exception");
+    }
+    catch (final RateLimitExceededException exception) {
+      assertThat(exception.result()).isSameAs(result);
+    }
+    verify(analytics).exceeded(any(JoinPoint.class), any(RateLimited.class), eq("test"), any(Options.class), eq(result));
+  }
+
+  @Test
+  public void shouldResolveStaticOptionsOnce() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final OptionsResolver optionsResolver = mock(OptionsResolver.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), optionsResolver, rateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final OptionsInterval value = InternalOptions.intervalOf(1L, TimeUnit.MINUTES);
+    when(optionsResolver.isDynamic()).thenReturn(false);
+    when(optionsResolver.resolve(eq("test"), any(JoinPoint.class))).thenReturn(InternalOptions.enabled("test", 10L, value));
+    when(rateChecker.check(eq("test"), eq(10L), eq(value))).thenReturn(true);
+
+    limited.aMethod();
+    limited.aMethod();
+
+    verify(optionsResolver, times(1)).resolve(eq("test"), any(JoinPoint.class));
+    verify(rateChecker, times(2)).check(eq("test"), eq(10L), eq(value));
+  }
+
+  @Test
+  public void shouldResolveDynamicOptionsOnEveryCall() {
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
+    final OptionsResolver optionsResolver = mock(OptionsResolver.class);
+    proxyFactory.addAspect(new RateLimitingAdvice(new DefaultKeyGenerator(), optionsResolver, rateChecker));
+    final LimitedInterface limited = proxyFactory.getProxy();
+
+    final OptionsInterval value = InternalOptions.intervalOf(1L, TimeUnit.MINUTES);
+    when(optionsResolver.isDynamic()).thenReturn(true);
+    when(optionsResolver.resolve(eq("test"), any(JoinPoint.class))).thenReturn(InternalOptions.enabled("test", 10L, value));
+    when(rateChecker.check(eq("test"), eq(10L), eq(value))).thenReturn(true);
+
+    limited.aMethod();
+    limited.aMethod();
+
+    verify(optionsResolver, times(2)).resolve(eq("test"), any(JoinPoint.class));
+  }
+
   @Test(expected = CallBlockedException.class)
   public void shouldBlock() {
     final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new LimitedService());
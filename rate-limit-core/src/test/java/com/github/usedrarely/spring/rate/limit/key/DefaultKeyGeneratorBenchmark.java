@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.key;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.aspectj.lang.reflect.SourceLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Per call cost of key generation from expression.
+ * <p/>
+ * {@code uncached} evaluates expression as generator did before caching (new parser, parsing and context on every call).
+ * <p/>
+ * Not run as part of build, run with {@link #main(String[])} from test classpath.
+ *
+ * @author franjozilic
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultKeyGeneratorBenchmark {
+
+  private static final String EXPRESSION = "#method + '-' + #p0 + '-' + #p1";
+
+  public static class Tested {
+    public void withParams(final String name, final Long value) {
+    }
+  }
+
+  private final JoinPoint joinPoint = new BenchmarkJoinPoint();
+
+  private final KeyGenerator interpreted = new DefaultKeyGenerator(SpelCompilerMode.OFF);
+
+  private final KeyGenerator compiled = new DefaultKeyGenerator(SpelCompilerMode.IMMEDIATE);
+
+  @Benchmark
+  public String uncached() {
+    final StandardEvaluationContext context = new StandardEvaluationContext();
+    context.setVariable("type", joinPoint.getTarget().getClass().getName());
+    context.setVariable("method", ((MethodSignature) joinPoint.getSignature()).getMethod().getName());
+    final Object[] args = joinPoint.getArgs();
+    for (int idx = 0; idx < args.length; idx++) {
+      context.setVariable(String.format("p%d", idx), args[idx]);
+    }
+    return new SpelExpressionParser().parseExpression(EXPRESSION).getValue(context, String.class);
+  }
+
+  @Benchmark
+  public String cachedInterpreted() {
+    return interpreted.key("", EXPRESSION, joinPoint);
+  }
+
+  @Benchmark
+  public String cachedCompiled() {
+    return compiled.key("", EXPRESSION, joinPoint);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(DefaultKeyGeneratorBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  /**
+   * Minimal join point, mocks would dominate measured cost
+   */
+  private static class BenchmarkJoinPoint implements JoinPoint, MethodSignature {
+
+    private static final Method METHOD;
+
+    static {
+      try {
+        METHOD = Tested.class.getMethod("withParams", String.class, Long.class);
+      }
+      catch (NoSuchMethodException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private final Tested target = new Tested();
+
+    private final Object[] args = {"user", 42L};
+
+    @Override
+    public String toShortString() {
+      return toString();
+    }
+
+    @Override
+    public String toLongString() {
+      return toString();
+    }
+
+    @Override
+    public Object getThis() {
+      return target;
+    }
+
+    @Override
+    public Object getTarget() {
+      return target;
+    }
+
+    @Override
+    public Object[] getArgs() {
+      return args;
+    }
+
+    @Override
+    public Signature getSignature() {
+      return this;
+    }
+
+    @Override
+    public SourceLocation getSourceLocation() {
+      return null;
+    }
+
+    @Override
+    public String getKind() {
+      return METHOD_EXECUTION;
+    }
+
+    @Override
+    public StaticPart getStaticPart() {
+      return null;
+    }
+
+    @Override
+    public Class getReturnType() {
+      return METHOD.getReturnType();
+    }
+
+    @Override
+    public Method getMethod() {
+      return METHOD;
+    }
+
+    @Override
+    public Class[] getParameterTypes() {
+      return METHOD.getParameterTypes();
+    }
+
+    @Override
+    public String[] getParameterNames() {
+      return null;
+    }
+
+    @Override
+    public Class[] getExceptionTypes() {
+      return METHOD.getExceptionTypes();
+    }
+
+    @Override
+    public String getName() {
+      return METHOD.getName();
+    }
+
+    @Override
+    public int getModifiers() {
+      return METHOD.getModifiers();
+    }
+
+    @Override
+    public Class getDeclaringType() {
+      return Tested.class;
+    }
+
+    @Override
+    public String getDeclaringTypeName() {
+      return Tested.class.getName();
+    }
+
+  }
+
+}
@@ -17,6 +17,7 @@
 
 package com.github.usedrarely.spring.rate.limit.key;
 
+import java.lang.reflect.Method;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.junit.Before;
@@ -24,6 +25,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.expression.spel.SpelCompilerMode;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -80,6 +82,59 @@ public class DefaultKeyGeneratorTest {
 
   }
 
+  @Test
+  public void shouldEvaluateCachedExpressionWithNewArguments() throws NoSuchMethodException {
+    when(joinPoint.getTarget()).thenReturn(new Tested());
+    final MethodSignature signature = mock(MethodSignature.class);
+    when(signature.getMethod()).thenReturn(Tested.class.getMethod("withParams", String.class, Long.class));
+    when(joinPoint.getSignature()).thenReturn(signature);
+
+    for (long idx = 0; idx < 200; idx++) {
+      when(joinPoint.getArgs()).thenReturn(new Object[]{"test", idx});
+      assertThat(keyGenerator.key("", "#p0 + '-' + #p1", joinPoint)).isEqualTo("test-" + idx);
+    }
+  }
+
+  @Test
+  public void shouldGenerateWithCompiledExpression() throws NoSuchMethodException {
+    final KeyGenerator compiling = new DefaultKeyGenerator(SpelCompilerMode.IMMEDIATE);
+    when(joinPoint.getTarget()).thenReturn(new Tested());
+    final MethodSignature signature = mock(MethodSignature.class);
+    when(signature.getMethod()).thenReturn(Tested.class.getMethod("withParams", String.class, Long.class));
+    when(joinPoint.getSignature()).thenReturn(signature);
+
+    when(joinPoint.getArgs()).thenReturn(new Object[]{"first", 1L});
+    assertThat(compiling.key("", "#method + '-' + #p0", joinPoint)).isEqualTo("withParams-first");
+
+    when(joinPoint.getArgs()).thenReturn(new Object[]{"second", 2L});
+    assertThat(compiling.key("", "#method + '-' + #p0", joinPoint)).isEqualTo("withParams-second");
+  }
+
+  @Test
+  public void shouldResolveMissingArgumentAsNull() throws NoSuchMethodException {
+    when(joinPoint.getTarget()).thenReturn(new Tested());
+    final MethodSignature signature = mock(MethodSignature.class);
+    when(signature.getMethod()).thenReturn(Tested.class.getMethod("withParams", String.class, Long.class));
+    when(joinPoint.getSignature()).thenReturn(signature);
+    when(joinPoint.getArgs()).thenReturn(new Object[]{"test", 10L});
+
+    assertThat(keyGenerator.key("", "#method + '-' + #p2 + '-' + #px", joinPoint)).isEqualTo("withParams-null-null");
+  }
+
+  @Test
+  public void shouldPrepareStaticAndExpressionKeys() throws NoSuchMethodException {
+    final DefaultKeyGenerator generator = new DefaultKeyGenerator();
+    final Method method = Tested.class.getMethod("withParams", String.class, Long.class);
+    when(joinPoint.getArgs()).thenReturn(new Object[]{"test", 10L});
+
+    assertThat(generator.prepare("predefine", "", Tested.class, method).staticKey()).isEqualTo("predefine");
+    assertThat(generator.prepare("", "", Tested.class, method).staticKey()).isEqualTo(Tested.class.getName() + ".withParams");
+
+    final PreparedKey preparedKey = generator.prepare("", "#method + '-' + #p0", Tested.class, method);
+    assertThat(preparedKey.staticKey()).isNull();
+    assertThat(preparedKey.key(joinPoint)).isEqualTo("withParams-test");
+  }
+
   @Test
   public void shouldReturnSetKey() {
     assertThat(keyGenerator.key("predefine", "", null)).isEqualTo("predefine");
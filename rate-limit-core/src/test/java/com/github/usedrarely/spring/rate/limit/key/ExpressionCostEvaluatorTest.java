@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.key;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ExpressionCostEvaluatorTest {
+
+  class Tested {
+    public void batch(final List<String> items, final int weight) {
+    }
+  }
+
+  private final ExpressionCostEvaluator evaluator = new ExpressionCostEvaluator();
+
+  private Method batch() throws NoSuchMethodException {
+    return Tested.class.getMethod("batch", List.class, Integer.TYPE);
+  }
+
+  @Test
+  public void shouldEvaluateCostFromArguments() throws NoSuchMethodException {
+    final Object[] args = {Arrays.asList("a", "b", "c"), 2};
+
+    assertThat(evaluator.cost("#p0.size()", Tested.class.getName(), batch(), args)).isEqualTo(3L);
+    assertThat(evaluator.cost("#p0.size() * #p1", Tested.class.getName(), batch(), args)).isEqualTo(6L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldFailOnNegativeCost() throws NoSuchMethodException {
+    evaluator.cost("-#p1", Tested.class.getName(), batch(), new Object[] {Arrays.asList("a"), 2});
+  }
+
+  @Test
+  public void shouldCapCost() throws NoSuchMethodException {
+    final ExpressionCostEvaluator capped = new ExpressionCostEvaluator(SpelCompilerMode.OFF, 5L);
+
+    assertThat(capped.cost("#p0.size() * #p1", Tested.class.getName(), batch(), new Object[] {Arrays.asList("a", "b", "c"), 2})).isEqualTo(5L);
+  }
+
+}
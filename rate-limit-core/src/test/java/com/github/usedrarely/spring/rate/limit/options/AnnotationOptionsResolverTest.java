@@ -17,7 +17,10 @@
 
 package com.github.usedrarely.spring.rate.limit.options;
 
+import com.github.usedrarely.spring.rate.limit.Concurrency;
 import com.github.usedrarely.spring.rate.limit.Interval;
+import com.github.usedrarely.spring.rate.limit.Limit;
+import com.github.usedrarely.spring.rate.limit.ParentLimit;
 import com.github.usedrarely.spring.rate.limit.RateLimited;
 import com.github.usedrarely.spring.rate.limit.RateLimitedRetry;
 import com.github.usedrarely.spring.rate.limit.options.exception.IllegalConfigurationException;
@@ -52,6 +55,25 @@ public class AnnotationOptionsResolverTest {
 
     }
 
+    @RateLimited(maxRequests = 10, interval = @Interval(interval = 1, unit = TimeUnit.SECONDS),
+        limits = @Limit(maxRequests = 1000, interval = @Interval(interval = 1, unit = TimeUnit.HOURS)))
+    public void correctWithLimits() {
+    }
+
+    @RateLimited(maxRequests = 10, interval = @Interval(interval = 1, unit = TimeUnit.SECONDS),
+        parents = @ParentLimit(key = "tenant", maxRequests = 100, interval = @Interval(interval = 1, unit = TimeUnit.SECONDS)))
+    public void correctWithParents() {
+    }
+
+    @RateLimited(maxRequests = 10, interval = @Interval(interval = 1, unit = TimeUnit.SECONDS), cost = 5, costExpression = "#p0.size()")
+    public void correctWithCost() {
+    }
+
+    @RateLimited(maxRequests = 10, interval = @Interval(interval = 1, unit = TimeUnit.SECONDS),
+        concurrency = @Concurrency(maxConcurrent = 5, lease = @Interval(interval = 30, unit = TimeUnit.SECONDS)))
+    public void correctWithConcurrency() {
+    }
+
     @RateLimited(enabled = false)
     public void disabled() {
     }
@@ -103,6 +125,38 @@ public class AnnotationOptionsResolverTest {
         .enableRetry(4, InternalOptions.intervalOf(100L, TimeUnit.MILLISECONDS)));
   }
 
+  @Test
+  public void shouldResolveCorrectWithLimits() {
+    initMocks("correctWithLimits");
+    assertThat(new AnnotationOptionsResolver().resolve("test", joinPoint)).isEqualTo(InternalOptions
+        .enabled("test", 10, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+        .addLimit(1000L, InternalOptions.intervalOf(1L, TimeUnit.HOURS)));
+  }
+
+  @Test
+  public void shouldResolveCorrectWithParents() {
+    initMocks("correctWithParents");
+    assertThat(new AnnotationOptionsResolver().resolve("test", joinPoint)).isEqualTo(InternalOptions
+        .enabled("test", 10, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+        .addParent(100L, InternalOptions.intervalOf(1L, TimeUnit.SECONDS)));
+  }
+
+  @Test
+  public void shouldResolveCorrectWithCost() {
+    initMocks("correctWithCost");
+    assertThat(new AnnotationOptionsResolver().resolve("test", joinPoint)).isEqualTo(InternalOptions
+        .enabled("test", 10, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+        .withCost(5L, "#p0.size()"));
+  }
+
+  @Test
+  public void shouldResolveCorrectWithConcurrency() {
+    initMocks("correctWithConcurrency");
+    assertThat(new AnnotationOptionsResolver().resolve("test", joinPoint)).isEqualTo(InternalOptions
+        .enabled("test", 10, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+        .limitConcurrency(5L, InternalOptions.intervalOf(30L, TimeUnit.SECONDS)));
+  }
+
   @Test
   public void shouldResolveDisabled() {
     initMocks("disabled");
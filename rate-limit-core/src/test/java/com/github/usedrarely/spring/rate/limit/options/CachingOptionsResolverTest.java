@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.options;
+
+import java.util.concurrent.TimeUnit;
+import org.aspectj.lang.JoinPoint;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingOptionsResolverTest {
+
+  private final JoinPoint joinPoint = mock(JoinPoint.class);
+
+  private OptionsResolver delegate;
+
+  private long now;
+
+  private CachingOptionsResolver resolver;
+
+  @Before
+  public void setUp() {
+    delegate = mock(OptionsResolver.class);
+    when(delegate.resolve(anyString(), any(JoinPoint.class))).thenReturn(InternalOptions.enabled("test", 10L, InternalOptions.intervalOf(1L, TimeUnit.MINUTES)));
+    when(delegate.supports(anyString())).thenReturn(true);
+    now = 0L;
+    resolver = new CachingOptionsResolver(delegate, 2, 1L, TimeUnit.SECONDS) {
+      @Override
+      protected long now() {
+        return now;
+      }
+    };
+  }
+
+  @Test
+  public void shouldCacheStaticOptions() {
+    when(delegate.isDynamic()).thenReturn(false);
+
+    final Options options = resolver.resolve("test", joinPoint);
+    now = TimeUnit.HOURS.toNanos(1L);
+
+    assertThat(resolver.resolve("test", joinPoint)).isSameAs(options);
+    assertThat(resolver.supports("test")).isTrue();
+    assertThat(resolver.supports("test")).isTrue();
+    verify(delegate, times(1)).resolve(eq("test"), any(JoinPoint.class));
+    verify(delegate, times(1)).supports("test");
+  }
+
+  @Test
+  public void shouldExpireDynamicOptions() {
+    when(delegate.isDynamic()).thenReturn(true);
+
+    resolver.resolve("test", joinPoint);
+    now = TimeUnit.MILLISECONDS.toNanos(500L);
+    resolver.resolve("test", joinPoint);
+    verify(delegate, times(1)).resolve(eq("test"), any(JoinPoint.class));
+
+    now = TimeUnit.MILLISECONDS.toNanos(1500L);
+    resolver.resolve("test", joinPoint);
+    verify(delegate, times(2)).resolve(eq("test"), any(JoinPoint.class));
+  }
+
+  @Test
+  public void shouldInvalidate() {
+    resolver.resolve("test", joinPoint);
+    resolver.invalidate("test");
+    resolver.resolve("test", joinPoint);
+    resolver.invalidateAll();
+    resolver.resolve("test", joinPoint);
+
+    verify(delegate, times(3)).resolve(eq("test"), any(JoinPoint.class));
+  }
+
+  @Test
+  public void shouldStayBounded() {
+    resolver.resolve("a", joinPoint);
+    resolver.resolve("b", joinPoint);
+    resolver.resolve("c", joinPoint);
+    resolver.resolve("c", joinPoint);
+
+    verify(delegate, times(1)).resolve(eq("c"), any(JoinPoint.class));
+    verify(delegate, times(3)).resolve(anyString(), any(JoinPoint.class));
+  }
+
+}
@@ -29,7 +29,12 @@ import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.util.ClassUtils;
 
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class DelegatingOptionsResolverTest {
 
@@ -83,6 +88,26 @@ public class DelegatingOptionsResolverTest {
             return false;
           }
 
+          @Override
+          public OptionsBucket bucket() {
+            return null;
+          }
+
+          @Override
+          public OptionsConcurrency concurrency() {
+            return null;
+          }
+
+          @Override
+          public Long cost() {
+            return 1L;
+          }
+
+          @Override
+          public String costExpression() {
+            return null;
+          }
+
           @Override
           public boolean enabled() {
             return true;
@@ -98,6 +123,16 @@ public class DelegatingOptionsResolverTest {
             return 15L;
           }
 
+          @Override
+          public List<OptionsLimit> limits() {
+            return Collections.emptyList();
+          }
+
+          @Override
+          public List<OptionsLimit> parents() {
+            return Collections.emptyList();
+          }
+
           @Override
           public String resolvedKey() {
             return null;
@@ -162,6 +197,65 @@ public class DelegatingOptionsResolverTest {
         .resolve("test", mock(JoinPoint.class));
   }
 
+  @Test
+  public void shouldShareDisabledOptionsOfMissing() {
+    final List<OptionsResolver> objects = Collections.emptyList();
+    final DelegatingOptionsResolver resolver = new DelegatingOptionsResolver(objects, true);
+    assertThat(resolver.resolve("test", mock(JoinPoint.class)))
+        .isSameAs(resolver.resolve("test", mock(JoinPoint.class)));
+  }
+
+  @Test
+  public void shouldShareDisabledOptionsOfMissingWhenDynamic() {
+    final OptionsResolver dynamic = mock(OptionsResolver.class);
+    when(dynamic.isDynamic()).thenReturn(true);
+    final DelegatingOptionsResolver resolver = new DelegatingOptionsResolver(Collections.singletonList(dynamic), true);
+
+    final Options options = resolver.resolve("test", mock(JoinPoint.class));
+    assertThat(options.resolvedKey()).isEqualTo("test");
+    assertThat(options).isSameAs(resolver.resolve("test", mock(JoinPoint.class)));
+    assertThat(resolver.resolve("other", mock(JoinPoint.class)).resolvedKey()).isEqualTo("other");
+  }
+
+  @Test
+  public void shouldBeDynamicOnlyWithDynamicDelegate() {
+    final OptionsResolver first = mock(OptionsResolver.class);
+    final OptionsResolver second = mock(OptionsResolver.class);
+    assertThat(new DelegatingOptionsResolver(Arrays.asList(first, second)).isDynamic()).isFalse();
+
+    when(first.isDynamic()).thenReturn(true);
+    assertThat(new DelegatingOptionsResolver(Arrays.asList(first, second)).isDynamic()).isTrue();
+  }
+
+  @Test
+  public void shouldSelectResolverOnce() {
+    final OptionsResolver first = mock(OptionsResolver.class);
+    final OptionsResolver second = mock(OptionsResolver.class);
+    when(second.supports("test")).thenReturn(true);
+
+    final DelegatingOptionsResolver resolver = new DelegatingOptionsResolver(Arrays.asList(first, second));
+    resolver.resolve("test", mock(JoinPoint.class));
+    resolver.resolve("test", mock(JoinPoint.class));
+
+    verify(first, times(1)).supports("test");
+    verify(second, times(1)).supports("test");
+    verify(second, times(2)).resolve(eq("test"), any(JoinPoint.class));
+  }
+
+  @Test
+  public void shouldSelectResolverOnEveryCallWhenDynamic() {
+    final OptionsResolver first = mock(OptionsResolver.class);
+    final OptionsResolver second = mock(OptionsResolver.class);
+    when(first.isDynamic()).thenReturn(true);
+    when(second.supports("test")).thenReturn(true);
+
+    final DelegatingOptionsResolver resolver = new DelegatingOptionsResolver(Arrays.asList(first, second));
+    resolver.resolve("test", mock(JoinPoint.class));
+    resolver.resolve("test", mock(JoinPoint.class));
+
+    verify(first, times(2)).supports("test");
+  }
+
   @Test(expected = AmbiguousOptionsException.class)
   public void shouldThrowExceptionOnMissing() {
     final List<OptionsResolver> objects = Collections.emptyList();
@@ -37,6 +37,14 @@ public class InternalOptionsTest {
         .suppress(Warning.NONFINAL_FIELDS, Warning.STRICT_INHERITANCE)
         .verify();
 
+    EqualsVerifier.forClass(InternalOptions.InternalBucket.class)
+        .suppress(Warning.NONFINAL_FIELDS, Warning.STRICT_INHERITANCE)
+        .verify();
+
+    EqualsVerifier.forClass(InternalOptions.InternalLimit.class)
+        .suppress(Warning.NONFINAL_FIELDS, Warning.STRICT_INHERITANCE)
+        .verify();
+
   }
 
 }
@@ -113,6 +113,161 @@ public class PropertyOptionsResolverTest {
 
   }
 
+  @Test
+  public void shouldResolveCorrectWithBucket() {
+    final PropertyOptionsResolver resolver = new PropertyOptionsResolver();
+    resolver.setEnvironment(new MockEnvironment()
+        .withProperty("rate.limited.simple.enabled", "true")
+        .withProperty("rate.limited.simple.requests", "2")
+        .withProperty("rate.limited.simple.interval", "4")
+        .withProperty("rate.limited.simple.bucket.capacity", "10")
+
+        .withProperty("rate.limited.detailed.enabled", "true")
+        .withProperty("rate.limited.detailed.requests", "9")
+        .withProperty("rate.limited.detailed.interval", "3")
+        .withProperty("rate.limited.detailed.interval.unit", "SECONDS")
+        .withProperty("rate.limited.detailed.bucket.capacity", "20")
+        .withProperty("rate.limited.detailed.bucket.refill.tokens", "1")
+        .withProperty("rate.limited.detailed.bucket.refill.interval", "500")
+        .withProperty("rate.limited.detailed.bucket.refill.interval.unit", "MILLISECONDS")
+    );
+
+    assertThat(resolver.resolve("simple", mock(JoinPoint.class))).isEqualTo(
+        InternalOptions.enabled("simple", 2, InternalOptions.intervalOf(4L, TimeUnit.MINUTES))
+            .enableBucket(10L, 2L, InternalOptions.intervalOf(4L, TimeUnit.MINUTES)));
+
+    assertThat(resolver.resolve("detailed", mock(JoinPoint.class))).isEqualTo(
+        InternalOptions.enabled("detailed", 9, InternalOptions.intervalOf(3L, TimeUnit.SECONDS))
+            .enableBucket(20L, 1L, InternalOptions.intervalOf(500L, TimeUnit.MILLISECONDS)));
+  }
+
+  @Test(expected = IllegalConfigurationException.class)
+  public void shouldFailWithIncorrectBucket() {
+    final PropertyOptionsResolver resolver = new PropertyOptionsResolver();
+    resolver.setEnvironment(new MockEnvironment()
+        .withProperty("rate.limited.simple.enabled", "true")
+        .withProperty("rate.limited.simple.requests", "5")
+        .withProperty("rate.limited.simple.interval", "6")
+        .withProperty("rate.limited.simple.bucket.capacity", "0")
+    );
+
+    resolver.resolve("simple", mock(JoinPoint.class));
+  }
+
+  @Test
+  public void shouldResolveCorrectWithLimits() {
+    final PropertyOptionsResolver resolver = new PropertyOptionsResolver();
+    resolver.setEnvironment(new MockEnvironment()
+        .withProperty("rate.limited.simple.enabled", "true")
+        .withProperty("rate.limited.simple.requests", "10")
+        .withProperty("rate.limited.simple.interval", "1")
+        .withProperty("rate.limited.simple.interval.unit", "SECONDS")
+        .withProperty("rate.limited.simple.limits[0].requests", "1000")
+        .withProperty("rate.limited.simple.limits[0].interval", "1")
+        .withProperty("rate.limited.simple.limits[0].interval.unit", "HOURS")
+
+        .withProperty("rate.limited.indexed.enabled", "true")
+        .withProperty("rate.limited.indexed.limits[0].requests", "10")
+        .withProperty("rate.limited.indexed.limits[0].interval", "1")
+        .withProperty("rate.limited.indexed.limits[1].requests", "100")
+        .withProperty("rate.limited.indexed.limits[1].interval", "1")
+        .withProperty("rate.limited.indexed.limits[1].interval.unit", "HOURS")
+    );
+
+    assertThat(resolver.supports("indexed")).isTrue();
+
+    assertThat(resolver.resolve("simple", mock(JoinPoint.class))).isEqualTo(
+        InternalOptions.enabled("simple", 10, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+            .addLimit(1000L, InternalOptions.intervalOf(1L, TimeUnit.HOURS)));
+
+    final Options indexed = resolver.resolve("indexed", mock(JoinPoint.class));
+    assertThat(indexed).isEqualTo(
+        InternalOptions.enabled("indexed", 10, InternalOptions.intervalOf(1L, TimeUnit.MINUTES))
+            .addLimit(100L, InternalOptions.intervalOf(1L, TimeUnit.HOURS)));
+    assertThat(indexed.limits()).hasSize(2);
+    assertThat(((PrimitiveOptions) indexed).maxRequestCounts()).isEqualTo(new long[] {10L, 100L});
+    assertThat(((PrimitiveOptions) indexed).intervalsNanos()).isEqualTo(new long[] {TimeUnit.MINUTES.toNanos(1L), TimeUnit.HOURS.toNanos(1L)});
+  }
+
+  @Test(expected = IllegalConfigurationException.class)
+  public void shouldFailWithIncorrectLimit() {
+    final PropertyOptionsResolver resolver = new PropertyOptionsResolver();
+    resolver.setEnvironment(new MockEnvironment()
+        .withProperty("rate.limited.simple.enabled", "true")
+        .withProperty("rate.limited.simple.requests", "5")
+        .withProperty("rate.limited.simple.interval", "6")
+        .withProperty("rate.limited.simple.limits[0].requests", "100")
+    );
+
+    resolver.resolve("simple", mock(JoinPoint.class));
+  }
+
+  @Test
+  public void shouldResolveCorrectWithParents() {
+    final PropertyOptionsResolver resolver = new PropertyOptionsResolver();
+    resolver.setEnvironment(new MockEnvironment()
+        .withProperty("rate.limited.simple.enabled", "true")
+        .withProperty("rate.limited.simple.requests", "10")
+        .withProperty("rate.limited.simple.interval", "1")
+        .withProperty("rate.limited.simple.interval.unit", "SECONDS")
+        .withProperty("rate.limited.simple.parents[0].requests", "100")
+        .withProperty("rate.limited.simple.parents[0].interval", "1")
+        .withProperty("rate.limited.simple.parents[0].interval.unit", "SECONDS")
+        .withProperty("rate.limited.simple.parents[1].requests", "1000")
+        .withProperty("rate.limited.simple.parents[1].interval", "1")
+    );
+
+    assertThat(resolver.resolve("simple", mock(JoinPoint.class))).isEqualTo(
+        InternalOptions.enabled("simple", 10, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+            .addParent(100L, InternalOptions.intervalOf(1L, TimeUnit.SECONDS))
+            .addParent(1000L, InternalOptions.intervalOf(1L, TimeUnit.MINUTES)));
+  }
+
+  @Test
+  public void shouldResolveCorrectWithCost() {
+    final PropertyOptionsResolver resolver = new PropertyOptionsResolver();
+    resolver.setEnvironment(new MockEnvironment()
+        .withProperty("rate.limited.constant.enabled", "true")
+        .withProperty("rate.limited.constant.requests", "100")
+        .withProperty("rate.limited.constant.interval", "1")
+        .withProperty("rate.limited.constant.cost", "10")
+
+        .withProperty("rate.limited.expression.enabled", "true")
+        .withProperty("rate.limited.expression.requests", "100")
+        .withProperty("rate.limited.expression.interval", "1")
+        .withProperty("rate.limited.expression.cost.expression", "#p0.size()")
+    );
+
+    assertThat(resolver.resolve("constant", mock(JoinPoint.class))).isEqualTo(
+        InternalOptions.enabled("constant", 100, InternalOptions.intervalOf(1L, TimeUnit.MINUTES)).withCost(10L, null));
+    assertThat(resolver.resolve("expression", mock(JoinPoint.class))).isEqualTo(
+        InternalOptions.enabled("expression", 100, InternalOptions.intervalOf(1L, TimeUnit.MINUTES)).withCost(1L, "#p0.size()"));
+  }
+
+  @Test
+  public void shouldResolveCorrectWithConcurrency() {
+    final PropertyOptionsResolver resolver = new PropertyOptionsResolver();
+    resolver.setEnvironment(new MockEnvironment()
+        .withProperty("rate.limited.test.enabled", "true")
+        .withProperty("rate.limited.test.requests", "100")
+        .withProperty("rate.limited.test.interval", "1")
+        .withProperty("rate.limited.test.concurrency.max", "5")
+        .withProperty("rate.limited.test.concurrency.lease", "30")
+        .withProperty("rate.limited.test.concurrency.lease.unit", "SECONDS")
+
+        .withProperty("rate.limited.defaultLease.enabled", "true")
+        .withProperty("rate.limited.defaultLease.requests", "100")
+        .withProperty("rate.limited.defaultLease.interval", "1")
+        .withProperty("rate.limited.defaultLease.concurrency.max", "5")
+    );
+
+    assertThat(resolver.resolve("test", mock(JoinPoint.class))).isEqualTo(InternalOptions
+        .enabled("test", 100, InternalOptions.intervalOf(1L, TimeUnit.MINUTES))
+        .limitConcurrency(5L, InternalOptions.intervalOf(30L, TimeUnit.SECONDS)));
+    assertThat(resolver.resolve("defaultLease", mock(JoinPoint.class))).isEqualTo(InternalOptions
+        .enabled("defaultLease", 100, InternalOptions.intervalOf(1L, TimeUnit.MINUTES))
+        .limitConcurrency(5L, InternalOptions.intervalOf(1L, TimeUnit.MINUTES)));
+  }
 
   @Test
   public void shouldResolveDisabled() {
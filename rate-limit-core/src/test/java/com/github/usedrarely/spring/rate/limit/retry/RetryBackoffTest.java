@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.retry;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RetryBackoffTest {
+
+  private static final AcquireResult REJECTED = AcquireResult.of(false);
+
+  @Test
+  public void shouldUseFixedInterval() {
+    final RetryBackoff backoff = new FixedBackoff();
+
+    assertThat(backoff.delay(1, 100L, REJECTED)).isEqualTo(100L);
+    assertThat(backoff.delay(5, 100L, REJECTED)).isEqualTo(100L);
+  }
+
+  @Test
+  public void shouldGrowExponentially() {
+    final RetryBackoff backoff = new ExponentialBackoff(2.0D, 500L);
+
+    assertThat(backoff.delay(1, 100L, REJECTED)).isEqualTo(100L);
+    assertThat(backoff.delay(2, 100L, REJECTED)).isEqualTo(200L);
+    assertThat(backoff.delay(3, 100L, REJECTED)).isEqualTo(400L);
+    assertThat(backoff.delay(4, 100L, REJECTED)).isEqualTo(500L);
+  }
+
+  @Test
+  public void shouldUseReportedRetryAfter() {
+    final RetryBackoff backoff = new RetryAfterBackoff();
+
+    assertThat(backoff.delay(1, 100L, AcquireResult.rejected(0L, 1000L, 7L))).isEqualTo(7L);
+    assertThat(backoff.delay(1, 100L, AcquireResult.rejected(0L, 1000L, 0L))).isEqualTo(1L);
+    assertThat(backoff.delay(1, 100L, AcquireResult.rejected(0L, 1000L, AcquireResult.NEVER))).isEqualTo(AcquireResult.NEVER);
+  }
+
+  @Test
+  public void shouldFallbackWhenRetryAfterUnknown() {
+    final RetryBackoff backoff = new RetryAfterBackoff(new ExponentialBackoff());
+
+    assertThat(backoff.delay(2, 100L, REJECTED)).isEqualTo(200L);
+  }
+
+  @Test
+  public void shouldOnlyExtendDelayWithJitter() {
+    final RetryBackoff backoff = new JitterBackoff(new FixedBackoff(), 0.5D);
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(backoff.delay(1, 100L, REJECTED)).isGreaterThanOrEqualTo(100L).isLessThanOrEqualTo(150L);
+    }
+    assertThat(new JitterBackoff(new RetryAfterBackoff()).delay(1, 100L, AcquireResult.rejected(0L, 1000L, AcquireResult.NEVER)))
+        .isEqualTo(AcquireResult.NEVER);
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.retry;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RetryWaitersTest {
+
+  @Test
+  public void shouldLimitWaitersPerKey() {
+    final RetryWaiters waiters = new RetryWaiters(10, 2);
+
+    assertThat(waiters.tryEnter("a")).isTrue();
+    assertThat(waiters.tryEnter("a")).isTrue();
+    assertThat(waiters.tryEnter("a")).isFalse();
+    assertThat(waiters.tryEnter("b")).isTrue();
+
+    assertThat(waiters.waiting()).isEqualTo(3);
+    assertThat(waiters.waiting("a")).isEqualTo(2);
+    assertThat(waiters.waiting("b")).isEqualTo(1);
+    assertThat(waiters.rejected()).isEqualTo(1L);
+  }
+
+  @Test
+  public void shouldLimitWaitersGlobally() {
+    final RetryWaiters waiters = new RetryWaiters(2, 2);
+
+    assertThat(waiters.tryEnter("a")).isTrue();
+    assertThat(waiters.tryEnter("b")).isTrue();
+    assertThat(waiters.tryEnter("c")).isFalse();
+
+    waiters.leave("a");
+
+    assertThat(waiters.tryEnter("c")).isTrue();
+    assertThat(waiters.waiting()).isEqualTo(2);
+    assertThat(waiters.rejected()).isEqualTo(1L);
+  }
+
+  @Test
+  public void shouldRemoveKeysWithoutWaiters() {
+    final RetryWaiters waiters = new RetryWaiters(10, 2);
+
+    waiters.tryEnter("a");
+    waiters.tryEnter("a");
+    waiters.leave("a");
+    waiters.leave("a");
+
+    assertThat(waiters.waiting()).isEqualTo(0);
+    assertThat(waiters.waiting("a")).isEqualTo(0);
+    assertThat(waiters.waitingKeys()).isEqualTo(0);
+    assertThat(waiters.tryEnter("a")).isTrue();
+  }
+
+  @Test
+  public void shouldRejectAllWithZeroLimit() {
+    final RetryWaiters waiters = new RetryWaiters(10, 0);
+
+    assertThat(waiters.tryEnter("a")).isFalse();
+    assertThat(waiters.waiting()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNeverExceedLimitConcurrently() throws InterruptedException {
+    final RetryWaiters waiters = new RetryWaiters(100, 3);
+    final AtomicInteger maxSeen = new AtomicInteger();
+    final int threads = 8;
+    final CountDownLatch done = new CountDownLatch(threads);
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    for (int i = 0; i < threads; i++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            if (waiters.tryEnter("key")) {
+              final int current = waiters.waiting("key");
+              if (current > maxSeen.get()) {
+                maxSeen.set(current);
+              }
+              waiters.leave("key");
+            }
+          }
+          done.countDown();
+        }
+      });
+    }
+    done.await(30, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    assertThat(maxSeen.get()).isLessThanOrEqualTo(3);
+    assertThat(waiters.waiting()).isEqualTo(0);
+    assertThat(waiters.waitingKeys()).isEqualTo(0);
+  }
+
+}
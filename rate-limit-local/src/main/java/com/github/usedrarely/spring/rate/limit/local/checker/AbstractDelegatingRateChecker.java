@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AbstractPermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.BucketRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.KeyChainRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.MultiWindowRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.WindowKeys;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base for checkers wrapping another checker, so wrapping doesn't hide what delegate can check atomically.
+ * <p/>
+ * Executions with several windows or chain of keys are forwarded to delegate when it is {@link MultiWindowRateChecker}
+ * or {@link KeyChainRateChecker}. Otherwise each window is acquired on its own with {@link #acquire(String, long, long, long)},
+ * until first one rejects execution, windows that allowed it keep their permits.
+ * <p/>
+ * Delegate that is {@link BucketRateChecker} is not accepted, bucket configuration can't be applied through wrapper.
+ *
+ * @author franjozilic
+ */
+public abstract class AbstractDelegatingRateChecker extends AbstractPermitRateChecker implements KeyChainRateChecker {
+
+  private final RateChecker delegate;
+
+  private final long epoch = System.nanoTime();
+
+  /**
+   * @param delegate wrapped checker
+   * @throws IllegalArgumentException if delegate is {@link BucketRateChecker}
+   */
+  protected AbstractDelegatingRateChecker(final RateChecker delegate) {
+    if (delegate instanceof BucketRateChecker) {
+      throw new IllegalArgumentException(String.format("%s can't wrap %s, bucket configuration would be ignored, use it directly",
+          getClass().getSimpleName(), delegate.getClass().getName()));
+    }
+    this.delegate = delegate;
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    if (delegate instanceof MultiWindowRateChecker) {
+      return ((MultiWindowRateChecker) delegate).acquire(key, permits, maxRequests, windowsNanos);
+    }
+    return acquireEach(WindowKeys.keys(key, maxRequests.length), permits, maxRequests, windowsNanos);
+  }
+
+  @Override
+  public AcquireResult acquire(final String[] keys, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    if (delegate instanceof KeyChainRateChecker) {
+      return ((KeyChainRateChecker) delegate).acquire(keys, permits, maxRequests, windowsNanos);
+    }
+    return acquireEach(windowKeys(keys), permits, maxRequests, windowsNanos);
+  }
+
+  /**
+   * Acquires each window on its own, in order, until first one rejects execution
+   *
+   * @param keys         key of each window
+   * @param permits      number of permits execution takes
+   * @param maxRequests  maximum number of permits of each window
+   * @param windowsNanos length of each window in nanoseconds
+   * @return decision with state of strictest window checked
+   */
+  protected AcquireResult acquireEach(final String[] keys, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    final List<AcquireResult> results = new ArrayList<>(keys.length);
+    for (int idx = 0; idx < keys.length; idx++) {
+      final AcquireResult result = acquire(keys[idx], permits, maxRequests[idx], windowsNanos[idx]);
+      results.add(result);
+      if (!result.allowed()) {
+        break;
+      }
+    }
+    return AcquireResult.strictest(results);
+  }
+
+  /**
+   * Current time, relative to creation of this checker
+   *
+   * @return current time in nanoseconds
+   */
+  protected long now() {
+    return System.nanoTime() - epoch;
+  }
+
+  /**
+   * Keys of windows of chain, key repeated for each of its windows gets key of that window
+   *
+   * @param keys keys from innermost to outermost, as passed to {@link KeyChainRateChecker#acquire(String[], long, long[], long[])}
+   * @return key of each window, see {@link WindowKeys#key(String, int)}
+   */
+  protected static String[] windowKeys(final String[] keys) {
+    final String[] windowKeys = new String[keys.length];
+    for (int idx = 0; idx < keys.length; idx++) {
+      int window = 0;
+      for (int previous = 0; previous < idx; previous++) {
+        if (keys[previous].equals(keys[idx])) {
+          window++;
+        }
+      }
+      windowKeys[idx] = WindowKeys.key(keys[idx], window);
+    }
+    return windowKeys;
+  }
+
+}
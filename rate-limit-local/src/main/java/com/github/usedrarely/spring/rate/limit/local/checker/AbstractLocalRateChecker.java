@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AbstractPermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Base for in-process rate limit checkers.<br>
+ * Limits are enforced only within single JVM, use for single instance applications or as first stage in front of distributed checker.
+ * <p/>
+ * State of each key is single {@code long} value, updated with compare-and-set, no locks are used.
+ * Implementations define how value is updated by {@link #update(long, long, long, long, long)}.
+ * <p/>
+ * Keys that were not used for long enough to be equivalent to new key are evicted.
+ * Eviction runs on calling thread at most once every eviction interval.
+ *
+ * @author franjozilic
+ */
+public abstract class AbstractLocalRateChecker extends AbstractPermitRateChecker {
+
+  /**
+   * Returned by {@link #update(long, long, long, long, long)} when execution is not allowed
+   */
+  protected static final long REJECTED = -1L;
+
+  /**
+   * State value of evicted key, valid states are never negative
+   */
+  private static final long EVICTED = -2L;
+
+  private static final class State {
+
+    private static final AtomicLongFieldUpdater<State> VALUE = AtomicLongFieldUpdater.newUpdater(State.class, "value");
+
+    private volatile long value;
+
+    private volatile long lastAccess;
+
+    private volatile long idle;
+
+    /**
+     * Must be called before value is updated, so eviction can't miss concurrent update
+     */
+    private void touch(final long now, final long idle) {
+      this.idle = idle;
+      this.lastAccess = now;
+    }
+
+    private boolean compareAndSet(final long expect, final long update) {
+      return VALUE.compareAndSet(this, expect, update);
+    }
+
+  }
+
+  private final ConcurrentMap<String, State> states = new ConcurrentHashMap<>();
+
+  private final long epoch = System.nanoTime();
+
+  private final long evictionInterval;
+
+  private final AtomicLong nextEviction = new AtomicLong();
+
+  protected AbstractLocalRateChecker() {
+    this(1L, TimeUnit.MINUTES);
+  }
+
+  protected AbstractLocalRateChecker(final long evictionInterval, final TimeUnit unit) {
+    this.evictionInterval = unit.toNanos(evictionInterval);
+  }
+
+  /**
+   * Calculates new state value for execution.
+   *
+   * @param value   current state value, {@code 0} for new key
+   * @param now     current time in nanoseconds, never negative
+   * @param permits number of permits execution takes
+   * @param limit   limit, as passed to {@link #acquire(String, long, long, long, long)}
+   * @param period  period in nanoseconds, as passed to {@link #acquire(String, long, long, long, long)}
+   * @return new state value, never negative, or {@link #REJECTED} if execution is not allowed
+   */
+  protected abstract long update(long value, long now, long permits, long limit, long period);
+
+  /**
+   * Describes state of limit after execution.
+   *
+   * @param value   new state value if execution was allowed, current state value otherwise
+   * @param now     current time in nanoseconds, never negative
+   * @param permits number of permits execution takes
+   * @param limit   limit, as passed to {@link #acquire(String, long, long, long, long)}
+   * @param period  period in nanoseconds, as passed to {@link #acquire(String, long, long, long, long)}
+   * @param allowed true if execution was allowed
+   * @return result of execution
+   */
+  protected abstract AcquireResult result(long value, long now, long permits, long limit, long period, boolean allowed);
+
+  /**
+   * Updates state of key with {@link #update(long, long, long, long, long)}
+   *
+   * @param key     rate limiting key
+   * @param permits number of permits passed to update
+   * @param limit   limit passed to update
+   * @param period  period passed to update
+   * @param idle    nanoseconds after which unused key is equivalent to new one and can be evicted
+   * @return result of execution, see {@link #result(long, long, long, long, long, boolean)}
+   */
+  protected final AcquireResult acquire(final String key, final long permits, final long limit, final long period, final long idle) {
+    final long now = now();
+    evictIdle(now);
+
+    while (true) {
+      final State state = state(key);
+      state.touch(now, idle);
+
+      long value;
+      while ((value = state.value) != EVICTED) {
+        final long update = update(value, now, permits, limit, period);
+        if (update == REJECTED) {
+          return result(value, now, permits, limit, period, false);
+        }
+        if (state.compareAndSet(value, update)) {
+          return result(update, now, permits, limit, period, true);
+        }
+      }
+
+      // evicted while in use, try with new state
+      states.remove(key, state);
+    }
+  }
+
+  /**
+   * Current time, relative to creation of this checker
+   *
+   * @return current time in nanoseconds, never negative
+   */
+  protected long now() {
+    return System.nanoTime() - epoch;
+  }
+
+  /**
+   * Converts nanoseconds to milliseconds, rounding up so waiting for returned time is always enough
+   *
+   * @param nanos time in nanoseconds
+   * @return time in milliseconds
+   */
+  protected static long millis(final long nanos) {
+    return (nanos + 999999L) / 1000000L;
+  }
+
+  /**
+   * Number of keys currently tracked by this checker
+   *
+   * @return number of keys
+   */
+  public int size() {
+    return states.size();
+  }
+
+  private State state(final String key) {
+    final State state = states.get(key);
+    if (state != null) {
+      return state;
+    }
+    final State created = new State();
+    final State existing = states.putIfAbsent(key, created);
+    return existing != null ? existing : created;
+  }
+
+  private void evictIdle(final long now) {
+    final long scheduled = nextEviction.get();
+    if (now < scheduled || !nextEviction.compareAndSet(scheduled, now + evictionInterval)) {
+      return;
+    }
+
+    for (final Map.Entry<String, State> entry : states.entrySet()) {
+      final State state = entry.getValue();
+      // value must be read before access time, concurrent update then fails compare-and-set
+      final long value = state.value;
+      if (value != EVICTED && now - state.lastAccess > state.idle && state.compareAndSet(value, EVICTED)) {
+        states.remove(entry.getKey(), state);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.PermitReleasingRateChecker;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out permits in process from blocks of permits acquired from shared, usually distributed, checker.
+ * <p/>
+ * Executions take permits from block of their key and limit with compare-and-set, without network round trip,
+ * different limits of the same key have separate blocks. Executions allowed from block report permits left in block
+ * together with remaining permits and reset time delegate reported when block was acquired.
+ * Only execution that finds block exhausted or expired acquires new one, other executions of the same key wait for it.
+ * Blocks live at most block lifetime, unused permits are then returned if delegate is {@link PermitReleasingRateChecker}.
+ * <p/>
+ * Block size adapts to consumption of key on this node, between minimum and maximum block size.
+ * Block used up before it expires doubles size of the next one, block with more then half of permits unused when it expires halves it.
+ * <p/>
+ * Permits of block are counted by delegate when block is acquired, so permits held by other nodes are not available until they are used or returned.
+ * Permits acquired near the end of window may be used in the next one, each node can admit up to maximum block size
+ * over limit in one block lifetime.
+ * <p/>
+ * Expired blocks are collected on calling thread, at most once every block lifetime, and returned together by release executor,
+ * so executions never wait for returns. Keys acquiring new block at that time are skipped, collecting never waits for delegate.
+ * Permits that can't be returned stay counted until their window passes.
+ * <p/>
+ * Delegate that checks several windows or chain of keys atomically gets such executions directly, without blocks,
+ * see {@link AbstractDelegatingRateChecker}.
+ *
+ * @author franjozilic
+ */
+public class BlockLeasingRateChecker extends AbstractDelegatingRateChecker {
+
+  private static final class Block {
+
+    private final long maxRequests;
+
+    private final long windowNanos;
+
+    private final long expires;
+
+    private final AtomicLong remaining;
+
+    /**
+     * Result of acquisition of block, state of limit outside of this block
+     */
+    private final AcquireResult acquired;
+
+    private Block(final long remaining, final long maxRequests, final long windowNanos, final long expires, final AcquireResult acquired) {
+      this.maxRequests = maxRequests;
+      this.windowNanos = windowNanos;
+      this.expires = expires;
+      this.remaining = new AtomicLong(remaining);
+      this.acquired = acquired;
+    }
+
+    private boolean expired(final long now) {
+      return now - expires >= 0L;
+    }
+
+    /**
+     * @return permits left in block after taking them, negative when they can't be taken
+     */
+    private long take(final long permits, final long now) {
+      if (expired(now)) {
+        return -1L;
+      }
+      long current;
+      while ((current = remaining.get()) >= permits) {
+        if (remaining.compareAndSet(current, current - permits)) {
+          return current - permits;
+        }
+      }
+      return -1L;
+    }
+
+    /**
+     * Permits of limit left to this node are those left in block and those delegate had left when block was acquired
+     */
+    private AcquireResult allowed(final long left) {
+      final long remaining = acquired.remaining() == AcquireResult.UNKNOWN ? AcquireResult.UNKNOWN : acquired.remaining() + left;
+      final long resetAfter = acquired.resetAt() == AcquireResult.UNKNOWN ? AcquireResult.UNKNOWN
+          : Math.max(0L, acquired.resetAt() - System.currentTimeMillis());
+      return AcquireResult.allowed(remaining, resetAfter);
+    }
+
+  }
+
+  /**
+   * Key together with its limit, different limits of the same key never share block
+   */
+  private static final class LeaseKey {
+
+    private final String key;
+
+    private final long maxRequests;
+
+    private final long windowNanos;
+
+    private LeaseKey(final String key, final long maxRequests, final long windowNanos) {
+      this.key = key;
+      this.maxRequests = maxRequests;
+      this.windowNanos = windowNanos;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof LeaseKey)) {
+        return false;
+      }
+      final LeaseKey that = (LeaseKey) other;
+      return maxRequests == that.maxRequests && windowNanos == that.windowNanos && key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = key.hashCode();
+      result = 31 * result + (int) (maxRequests ^ (maxRequests >>> 32));
+      result = 31 * result + (int) (windowNanos ^ (windowNanos >>> 32));
+      return result;
+    }
+
+  }
+
+  /**
+   * Block of key and size of the next one, replaced only while holding lock of lease
+   */
+  private static final class Lease {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Block block;
+
+    private long size;
+
+    private boolean removed;
+
+    private Lease(final long size) {
+      this.size = size;
+    }
+
+  }
+
+  /**
+   * Unused permits of block, returned to delegate by release executor
+   */
+  private static final class Unused {
+
+    private final String key;
+
+    private final Block block;
+
+    private final long permits;
+
+    private Unused(final String key, final Block block, final long permits) {
+      this.key = key;
+      this.block = block;
+      this.permits = permits;
+    }
+
+  }
+
+  private final PermitRateChecker delegate;
+
+  private final Executor releaseExecutor;
+
+  private final long minBlock;
+
+  private final long maxBlock;
+
+  private final long blockLifetime;
+
+  private final ConcurrentMap<LeaseKey, Lease> leases = new ConcurrentHashMap<>();
+
+  private final AtomicLong nextExpiry = new AtomicLong();
+
+  /**
+   * Blocks of 1 up to 100 permits, living at most 100 milliseconds
+   *
+   * @param delegate shared checker permits are acquired from
+   */
+  public BlockLeasingRateChecker(final PermitRateChecker delegate) {
+    this(delegate, 1L, 100L, 100L, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Unused permits are returned by single daemon thread
+   *
+   * @param delegate      shared checker permits are acquired from
+   * @param minBlock      minimum number of permits acquired at once
+   * @param maxBlock      maximum number of permits acquired at once, bounds admissions over limit of each node
+   * @param blockLifetime time after which unused permits of block are returned
+   * @param unit          unit of block lifetime
+   */
+  public BlockLeasingRateChecker(final PermitRateChecker delegate, final long minBlock, final long maxBlock, final long blockLifetime,
+                                 final TimeUnit unit) {
+    this(delegate, minBlock, maxBlock, blockLifetime, unit, delegate instanceof PermitReleasingRateChecker ? releaseExecutor() : null);
+  }
+
+  /**
+   * @param delegate        shared checker permits are acquired from
+   * @param minBlock        minimum number of permits acquired at once
+   * @param maxBlock        maximum number of permits acquired at once, bounds admissions over limit of each node
+   * @param blockLifetime   time after which unused permits of block are returned
+   * @param unit            unit of block lifetime
+   * @param releaseExecutor executor returning unused permits, not used unless delegate is {@link PermitReleasingRateChecker}
+   */
+  public BlockLeasingRateChecker(final PermitRateChecker delegate, final long minBlock, final long maxBlock, final long blockLifetime,
+                                 final TimeUnit unit, final Executor releaseExecutor) {
+    super(delegate);
+    this.delegate = delegate;
+    this.releaseExecutor = releaseExecutor;
+    this.minBlock = minBlock;
+    this.maxBlock = maxBlock;
+    this.blockLifetime = unit.toNanos(blockLifetime);
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    final long now = now();
+    releaseExpired(now);
+
+    final LeaseKey leaseKey = new LeaseKey(key, maxRequests, windowNanos);
+    while (true) {
+      final Lease lease = lease(leaseKey);
+      final Block block = lease.block;
+      if (block != null) {
+        final long left = block.take(permits, now);
+        if (left >= 0L) {
+          return block.allowed(left);
+        }
+      }
+
+      lease.lock.lock();
+      try {
+        if (!lease.removed) {
+          // block may have been replaced while waiting for lock
+          final Block current = lease.block;
+          if (current != block && current != null) {
+            final long left = current.take(permits, now);
+            if (left >= 0L) {
+              return current.allowed(left);
+            }
+          }
+          return acquireBlock(key, lease, current, permits, maxRequests, windowNanos, now);
+        }
+      }
+      finally {
+        lease.lock.unlock();
+      }
+
+      // expired while in use, try with new lease
+      leases.remove(leaseKey, lease);
+    }
+  }
+
+  /**
+   * Number of keys currently holding block
+   *
+   * @return number of keys
+   */
+  public int size() {
+    return leases.size();
+  }
+
+  private AcquireResult acquireBlock(final String key, final Lease lease, final Block block, final long permits, final long maxRequests,
+                                     final long windowNanos, final long now) {
+    if (block != null) {
+      final long unused = block.remaining.getAndSet(0L);
+      if (!block.expired(now)) {
+        lease.size = Math.min(maxBlock, lease.size * 2L);
+      }
+      else if (unused > lease.size / 2L) {
+        lease.size = Math.max(minBlock, lease.size / 2L);
+      }
+      release(Collections.singletonList(new Unused(key, block, unused)));
+    }
+
+    long size = Math.max(permits, Math.min(lease.size, maxRequests));
+    AcquireResult result = delegate.acquire(key, size, maxRequests, windowNanos);
+    if (!result.allowed() && size > permits) {
+      // not enough left for whole block, take what is left
+      size = result.remaining() != AcquireResult.UNKNOWN ? Math.max(permits, Math.min(size, result.remaining())) : permits;
+      lease.size = Math.max(minBlock, size);
+      result = delegate.acquire(key, size, maxRequests, windowNanos);
+    }
+
+    if (!result.allowed()) {
+      lease.size = minBlock;
+      lease.block = null;
+      return result;
+    }
+    lease.block = new Block(size - permits, maxRequests, windowNanos, now + Math.min(blockLifetime, windowNanos), result);
+    return result;
+  }
+
+  private void release(final List<Unused> unused) {
+    if (unused.isEmpty() || releaseExecutor == null || !(delegate instanceof PermitReleasingRateChecker)) {
+      return;
+    }
+    final PermitReleasingRateChecker releasing = (PermitReleasingRateChecker) delegate;
+    try {
+      releaseExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (final Unused each : unused) {
+            if (each.permits < 1L) {
+              continue;
+            }
+            try {
+              releasing.release(each.key, each.permits, each.block.maxRequests, each.block.windowNanos);
+            }
+            catch (final RuntimeException exception) {
+              // permits that can't be returned stay counted until their window passes
+            }
+          }
+        }
+      });
+    }
+    catch (final RejectedExecutionException exception) {
+      // the same as failed return
+    }
+  }
+
+  private static Executor releaseExecutor() {
+    return Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "rate-limit-release");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  private Lease lease(final LeaseKey key) {
+    final Lease lease = leases.get(key);
+    if (lease != null) {
+      return lease;
+    }
+    final Lease created = new Lease(minBlock);
+    final Lease existing = leases.putIfAbsent(key, created);
+    return existing != null ? existing : created;
+  }
+
+  private void releaseExpired(final long now) {
+    final long scheduled = nextExpiry.get();
+    if (now - scheduled < 0L || !nextExpiry.compareAndSet(scheduled, now + blockLifetime)) {
+      return;
+    }
+
+    final List<Unused> unused = new ArrayList<>();
+    for (final Map.Entry<LeaseKey, Lease> entry : leases.entrySet()) {
+      final Lease lease = entry.getValue();
+      // lease is busy acquiring new block, so it is in use
+      if (!lease.lock.tryLock()) {
+        continue;
+      }
+      try {
+        final Block block = lease.block;
+        if (block == null || block.expired(now)) {
+          lease.removed = true;
+          leases.remove(entry.getKey(), lease);
+          if (block != null) {
+            unused.add(new Unused(entry.getKey().key, block, block.remaining.getAndSet(0L)));
+          }
+        }
+      }
+      finally {
+        lease.lock.unlock();
+      }
+    }
+    release(unused);
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AbstractPermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks execution with each checker in order, until first one rejects it.
+ * <p/>
+ * Use with in-process checker as first stage in front of distributed checker,
+ * most of executions over limit are then rejected without network round trip.
+ * Execution allowed by earlier checker is counted there, even if later checker rejects it.
+ * <p/>
+ * Checkers that are not {@link PermitRateChecker} are checked once for each permit, permits taken before rejection are not returned.
+ *
+ * @author franjozilic
+ */
+public class ChainedRateChecker extends AbstractPermitRateChecker {
+
+  private final List<RateChecker> checkers;
+
+  public ChainedRateChecker(final RateChecker... checkers) {
+    this(Arrays.asList(checkers));
+  }
+
+  public ChainedRateChecker(final List<RateChecker> checkers) {
+    this.checkers = checkers;
+  }
+
+  @Override
+  public boolean check(final String key, final Long maxRequests, final OptionsInterval interval) {
+    for (final RateChecker checker : checkers) {
+      if (!checker.check(key, maxRequests, interval)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    AcquireResult lowest = null;
+    for (final RateChecker checker : checkers) {
+      final AcquireResult result;
+      if (checker instanceof PermitRateChecker) {
+        result = ((PermitRateChecker) checker).acquire(key, permits, maxRequests, windowNanos);
+      }
+      else {
+        result = AcquireResult.of(checkEach(checker, key, permits, maxRequests, windowNanos));
+      }
+      if (!result.allowed()) {
+        return result;
+      }
+      // report the most restrictive of allowing checkers
+      if (lowest == null || lowest.remaining() == AcquireResult.UNKNOWN
+          || (result.remaining() != AcquireResult.UNKNOWN && result.remaining() < lowest.remaining())) {
+        lowest = result;
+      }
+    }
+    return lowest != null ? lowest : AcquireResult.of(true);
+  }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Merges concurrent acquisitions of the same key into single acquisition of all their permits.
+ * <p/>
+ * First execution of key acquires permits from delegate, executions of the same key arriving while acquisition is in flight wait for it
+ * and are then acquired together, by one of them, in single call. Number of calls to delegate for key is then bound by its round trip time,
+ * not by number of executions. Optional coalescing window delays each acquisition, so more executions can join it.
+ * <p/>
+ * When delegate rejects merged acquisition, executions that fit in permits it reports as remaining are acquired again, in arrival order,
+ * other executions are rejected. Merged acquisition never takes more then maximum number of permits, executions that don't fit wait for next one.
+ * <p/>
+ * Executions with several windows or chain of keys are not merged, delegate that checks them atomically gets them directly,
+ * see {@link AbstractDelegatingRateChecker}.
+ *
+ * @author franjozilic
+ */
+public class CoalescingRateChecker extends AbstractDelegatingRateChecker {
+
+  private static final class Waiter {
+
+    private final long permits;
+
+    private final long maxRequests;
+
+    private final long windowNanos;
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile AcquireResult result;
+
+    private volatile Throwable failure;
+
+    private volatile boolean leader;
+
+    private Waiter(final long permits, final long maxRequests, final long windowNanos) {
+      this.permits = permits;
+      this.maxRequests = maxRequests;
+      this.windowNanos = windowNanos;
+    }
+
+    private boolean sameLimit(final Waiter other) {
+      return maxRequests == other.maxRequests && windowNanos == other.windowNanos;
+    }
+
+    private void complete(final AcquireResult result) {
+      this.result = result;
+      done.countDown();
+    }
+
+    private void fail(final Throwable failure) {
+      this.failure = failure;
+      done.countDown();
+    }
+
+    private void lead() {
+      this.leader = true;
+      done.countDown();
+    }
+
+    private void await() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          done.await();
+          break;
+        }
+        catch (final InterruptedException exception) {
+          // acquisition is already in flight, its permits must not be lost
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private AcquireResult result() {
+      if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      if (failure != null) {
+        throw (RuntimeException) failure;
+      }
+      return result;
+    }
+
+  }
+
+  /**
+   * Executions of key waiting for acquisition, guarded by its own lock
+   */
+  private static final class Queue {
+
+    private final List<Waiter> pending = new ArrayList<>();
+
+    private boolean inFlight;
+
+    private boolean removed;
+
+  }
+
+  private final PermitRateChecker delegate;
+
+  private final long coalesceNanos;
+
+  private final ConcurrentMap<String, Queue> queues = new ConcurrentHashMap<>();
+
+  /**
+   * Merges only executions arriving while acquisition of their key is in flight
+   *
+   * @param delegate checker merged acquisitions are made with
+   */
+  public CoalescingRateChecker(final PermitRateChecker delegate) {
+    this(delegate, 0L, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param delegate checker merged acquisitions are made with
+   * @param window   time each acquisition waits for more executions to join it
+   * @param unit     unit of window
+   */
+  public CoalescingRateChecker(final PermitRateChecker delegate, final long window, final TimeUnit unit) {
+    super(delegate);
+    this.delegate = delegate;
+    this.coalesceNanos = unit.toNanos(window);
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    final Waiter waiter = new Waiter(permits, maxRequests, windowNanos);
+
+    Queue queue;
+    boolean leader;
+    while (true) {
+      queue = queue(key);
+      synchronized (queue) {
+        if (!queue.removed) {
+          queue.pending.add(waiter);
+          leader = !queue.inFlight;
+          queue.inFlight = true;
+          break;
+        }
+      }
+      // removed while in use, try with new queue
+      queues.remove(key, queue);
+    }
+
+    if (!leader) {
+      waiter.await();
+      if (!waiter.leader) {
+        return waiter.result();
+      }
+    }
+    lead(key, queue);
+    return waiter.result();
+  }
+
+  private void lead(final String key, final Queue queue) {
+    if (coalesceNanos > 0L) {
+      LockSupport.parkNanos(coalesceNanos);
+    }
+
+    final List<Waiter> batch;
+    synchronized (queue) {
+      batch = take(queue.pending);
+    }
+    try {
+      acquire(key, batch);
+    }
+    catch (final Throwable exception) {
+      // waiters must never be left waiting, whatever delegate throws
+      for (final Waiter waiter : batch) {
+        waiter.fail(exception);
+      }
+      throw exception;
+    }
+    finally {
+      synchronized (queue) {
+        if (queue.pending.isEmpty()) {
+          queue.inFlight = false;
+          queue.removed = true;
+          queues.remove(key, queue);
+        }
+        else {
+          // the first execution that arrived during acquisition makes the next one
+          queue.pending.get(0).lead();
+        }
+      }
+    }
+  }
+
+  /**
+   * Takes executions with the same limit as the first one, as long as they fit in maximum number of permits
+   */
+  private static List<Waiter> take(final List<Waiter> pending) {
+    final Iterator<Waiter> iterator = pending.iterator();
+    final Waiter first = iterator.next();
+    iterator.remove();
+
+    final List<Waiter> batch = new ArrayList<>();
+    batch.add(first);
+    long permits = first.permits;
+    while (iterator.hasNext()) {
+      final Waiter waiter = iterator.next();
+      if (waiter.sameLimit(first) && permits + waiter.permits <= first.maxRequests) {
+        permits += waiter.permits;
+        batch.add(waiter);
+        iterator.remove();
+      }
+    }
+    return batch;
+  }
+
+  private void acquire(final String key, final List<Waiter> batch) {
+    final Waiter first = batch.get(0);
+    long permits = 0L;
+    for (final Waiter waiter : batch) {
+      permits += waiter.permits;
+    }
+
+    final AcquireResult result = delegate.acquire(key, permits, first.maxRequests, first.windowNanos);
+    if (result.allowed() || batch.size() == 1 || result.remaining() == AcquireResult.UNKNOWN) {
+      for (final Waiter waiter : batch) {
+        waiter.complete(result);
+      }
+      return;
+    }
+
+    // not enough for all of them, admit those that fit in what is left
+    int admitted = 0;
+    long fitting = 0L;
+    while (admitted < batch.size() && fitting + batch.get(admitted).permits <= result.remaining()) {
+      fitting += batch.get(admitted).permits;
+      admitted++;
+    }
+    final AcquireResult partial = admitted > 0 ? delegate.acquire(key, fitting, first.maxRequests, first.windowNanos) : result;
+    for (int idx = 0; idx < batch.size(); idx++) {
+      batch.get(idx).complete(idx < admitted ? partial : result);
+    }
+  }
+
+  private Queue queue(final String key) {
+    final Queue queue = queues.get(key);
+    if (queue != null) {
+      return queue;
+    }
+    final Queue created = new Queue();
+    final Queue existing = queues.putIfAbsent(key, created);
+    return existing != null ? existing : created;
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process rate limit checker based on fixed window counter.
+ * <p/>
+ * Time is split in windows of interval length, at most {@code maxRequests} executions are allowed in each window.
+ * Up to twice as many executions can pass around window boundary,
+ * use {@link SlidingWindowLocalRateChecker} or {@link TokenBucketLocalRateChecker} when that is not acceptable.
+ * <p/>
+ * State is window index and count packed in single value, {@code maxRequests} is limited to {@value #MAX_COUNT}.
+ *
+ * @author franjozilic
+ */
+public class FixedWindowLocalRateChecker extends AbstractLocalRateChecker {
+
+  static final long MAX_COUNT = 0xFFFFFFFFL;
+
+  private static final long INDEX_MASK = 0x7FFFFFFFL;
+
+  public FixedWindowLocalRateChecker() {
+    super();
+  }
+
+  public FixedWindowLocalRateChecker(final long evictionInterval, final TimeUnit unit) {
+    super(evictionInterval, unit);
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    return acquire(key, permits, Math.min(maxRequests, MAX_COUNT), windowNanos, windowNanos);
+  }
+
+  @Override
+  protected long update(final long value, final long now, final long permits, final long limit, final long period) {
+    final long index = (now / period) & INDEX_MASK;
+    final long count = (value >>> 32) == index ? value & MAX_COUNT : 0L;
+
+    if (count + permits > limit) {
+      return REJECTED;
+    }
+    return index << 32 | (count + permits);
+  }
+
+  @Override
+  protected AcquireResult result(final long value, final long now, final long permits, final long limit, final long period, final boolean allowed) {
+    final long index = (now / period) & INDEX_MASK;
+    final long count = (value >>> 32) == index ? value & MAX_COUNT : 0L;
+    final long reset = millis((now / period + 1) * period - now);
+
+    if (allowed) {
+      return AcquireResult.allowed(limit - count, reset);
+    }
+    // whole window is available in next one
+    return AcquireResult.rejected(limit - count, reset, permits > limit ? AcquireResult.NEVER : reset);
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLease;
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLimiter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process concurrency limiter, counting semaphore of each key.<br>
+ * Limits are enforced only within single JVM, use for single instance applications.
+ * <p/>
+ * Unlike {@link java.util.concurrent.Semaphore} number of slots is passed with every acquisition, so limit can change at runtime.
+ * Leases never expire, since they can only be held by executions of this JVM, lease interval is ignored.
+ * <p/>
+ * Keys are removed once their last lease is released, so only keys with running executions are kept.
+ *
+ * @author franjozilic
+ */
+public class LocalConcurrencyLimiter implements ConcurrencyLimiter {
+
+  /**
+   * Count of removed key, valid counts are never negative
+   */
+  private static final long REMOVED = -1L;
+
+  private final ConcurrentMap<String, AtomicLong> running = new ConcurrentHashMap<>();
+
+  @Override
+  public ConcurrencyLease tryAcquire(final String key, final long maxConcurrent, final long leaseNanos) {
+    while (true) {
+      final AtomicLong count = count(key);
+
+      long current;
+      while ((current = count.get()) != REMOVED) {
+        if (current >= maxConcurrent) {
+          return null;
+        }
+        if (count.compareAndSet(current, current + 1L)) {
+          return new Lease(key, count);
+        }
+      }
+
+      // removed while in use, try with new count
+      running.remove(key, count);
+    }
+  }
+
+  /**
+   * Number of keys with running executions
+   *
+   * @return number of keys
+   */
+  public int size() {
+    return running.size();
+  }
+
+  private AtomicLong count(final String key) {
+    final AtomicLong count = running.get(key);
+    if (count != null) {
+      return count;
+    }
+    final AtomicLong created = new AtomicLong();
+    final AtomicLong existing = running.putIfAbsent(key, created);
+    return existing != null ? existing : created;
+  }
+
+  private final class Lease implements ConcurrencyLease {
+
+    private final String key;
+
+    private final AtomicLong count;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Lease(final String key, final AtomicLong count) {
+      this.key = key;
+      this.count = count;
+    }
+
+    @Override
+    public void release() {
+      if (!released.compareAndSet(false, true)) {
+        return;
+      }
+      // acquisitions racing with removal see removed count and retry with new one
+      if (count.decrementAndGet() == 0L && count.compareAndSet(0L, REMOVED)) {
+        running.remove(key, count);
+      }
+    }
+
+  }
+
+}
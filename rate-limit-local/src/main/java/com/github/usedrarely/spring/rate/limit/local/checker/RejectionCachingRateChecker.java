@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers keys exhausted by delegate and rejects their executions in process until they can be allowed again.
+ * <p/>
+ * Rejected key is remembered for {@link AcquireResult#retryAfter()} reported by delegate.
+ * Checkers that don't report it are assumed to free one permit every {@code window / maxRequests}, ie. at sustained rate of limit.
+ * Executions that can never be allowed are not remembered, since the same key can be allowed with less permits.
+ * <p/>
+ * Remembered rejection applies to executions of the same limit taking at least as many permits,
+ * so when key is exhausted its executions don't reach delegate at all.
+ * <p/>
+ * Number of remembered keys is bounded, expired keys are removed when they are used and when limit is reached,
+ * rejections are not remembered while limit is reached with keys that did not expire.
+ * Keys are scanned for expired ones at most once until the earliest remembered rejection expires, but no more often than every 10 milliseconds.
+ * <p/>
+ * Rejections of executions with several windows or chain of keys are remembered only when delegate can't check them atomically,
+ * otherwise delegate gets them directly, see {@link AbstractDelegatingRateChecker}.
+ *
+ * @author franjozilic
+ */
+public class RejectionCachingRateChecker extends AbstractDelegatingRateChecker {
+
+  private static final long MIN_SWEEP_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10L);
+
+  private static final class Rejection {
+
+    private final long permits;
+
+    private final long maxRequests;
+
+    private final long windowNanos;
+
+    private final long retryAt;
+
+    private final AcquireResult result;
+
+    private Rejection(final long permits, final long maxRequests, final long windowNanos, final long retryAt, final AcquireResult result) {
+      this.permits = permits;
+      this.maxRequests = maxRequests;
+      this.windowNanos = windowNanos;
+      this.retryAt = retryAt;
+      this.result = result;
+    }
+
+    private boolean expired(final long now) {
+      return now - retryAt >= 0L;
+    }
+
+    private boolean covers(final long permits, final long maxRequests, final long windowNanos) {
+      return permits >= this.permits && maxRequests == this.maxRequests && windowNanos == this.windowNanos;
+    }
+
+  }
+
+  private final PermitRateChecker delegate;
+
+  private final int maxKeys;
+
+  private final ConcurrentMap<String, Rejection> rejections = new ConcurrentHashMap<>();
+
+  private final AtomicLong nextSweep = new AtomicLong();
+
+  /**
+   * Remembers up to 10000 keys
+   *
+   * @param delegate checker deciding executions of keys that are not exhausted
+   */
+  public RejectionCachingRateChecker(final PermitRateChecker delegate) {
+    this(delegate, 10000);
+  }
+
+  /**
+   * @param delegate checker deciding executions of keys that are not exhausted
+   * @param maxKeys  maximum number of remembered keys
+   */
+  public RejectionCachingRateChecker(final PermitRateChecker delegate, final int maxKeys) {
+    super(delegate);
+    this.delegate = delegate;
+    this.maxKeys = maxKeys;
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    final long now = now();
+    final Rejection rejection = rejections.get(key);
+    if (rejection != null) {
+      if (rejection.expired(now)) {
+        rejections.remove(key, rejection);
+      }
+      else if (rejection.covers(permits, maxRequests, windowNanos)) {
+        return AcquireResult.rejected(rejection.result.remaining() == AcquireResult.UNKNOWN ? AcquireResult.UNKNOWN : 0L,
+            resetAfter(rejection.result), millis(rejection.retryAt - now));
+      }
+    }
+
+    final AcquireResult result = delegate.acquire(key, permits, maxRequests, windowNanos);
+    if (!result.allowed()) {
+      remember(key, permits, maxRequests, windowNanos, result, now);
+    }
+    return result;
+  }
+
+  /**
+   * Number of keys currently remembered as exhausted, including expired ones that were not removed yet
+   *
+   * @return number of keys
+   */
+  public int size() {
+    return rejections.size();
+  }
+
+  private void remember(final String key, final long permits, final long maxRequests, final long windowNanos, final AcquireResult result,
+                        final long now) {
+    final long retryNanos;
+    if (result.retryAfter() == AcquireResult.NEVER) {
+      return;
+    }
+    else if (result.retryAfter() == AcquireResult.UNKNOWN) {
+      retryNanos = maxRequests > 0L ? windowNanos / maxRequests : 0L;
+    }
+    else {
+      retryNanos = TimeUnit.MILLISECONDS.toNanos(result.retryAfter());
+    }
+    if (retryNanos <= 0L) {
+      return;
+    }
+
+    if (rejections.size() >= maxKeys && !rejections.containsKey(key)) {
+      removeExpired(now);
+      if (rejections.size() >= maxKeys) {
+        return;
+      }
+    }
+    rejections.put(key, new Rejection(permits, maxRequests, windowNanos, now + retryNanos, result));
+  }
+
+  private void removeExpired(final long now) {
+    final long scheduled = nextSweep.get();
+    if (now - scheduled < 0L || !nextSweep.compareAndSet(scheduled, now + MIN_SWEEP_INTERVAL)) {
+      return;
+    }
+
+    // nothing can expire before the earliest of remaining rejections
+    long earliest = now + MIN_SWEEP_INTERVAL;
+    boolean remaining = false;
+    for (final Map.Entry<String, Rejection> entry : rejections.entrySet()) {
+      final Rejection rejection = entry.getValue();
+      if (rejection.expired(now)) {
+        rejections.remove(entry.getKey(), rejection);
+      }
+      else if (!remaining || rejection.retryAt - earliest < 0L) {
+        earliest = rejection.retryAt;
+        remaining = true;
+      }
+    }
+    if (earliest - (now + MIN_SWEEP_INTERVAL) > 0L) {
+      nextSweep.compareAndSet(now + MIN_SWEEP_INTERVAL, earliest);
+    }
+  }
+
+  private static long resetAfter(final AcquireResult result) {
+    return result.resetAt() == AcquireResult.UNKNOWN ? AcquireResult.UNKNOWN : Math.max(0L, result.resetAt() - System.currentTimeMillis());
+  }
+
+  /**
+   * Rounds up, so waiting for returned time is always enough
+   */
+  private static long millis(final long nanos) {
+    return (nanos + 999999L) / 1000000L;
+  }
+
+}
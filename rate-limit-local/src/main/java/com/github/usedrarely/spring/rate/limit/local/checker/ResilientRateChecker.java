@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.KeyChainRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.MultiWindowRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.WindowKeys;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Protects executions from slow or unavailable shared, usually distributed, checker.
+ * <p/>
+ * Each call to delegate is bounded by timeout, calls that fail or time out are decided by {@link FailureMode}.
+ * After number of consecutive failures circuit opens and delegate is not called at all for open duration,
+ * then single execution probes it. Successful probe closes circuit, failed one opens it again.
+ * <p/>
+ * With {@link FailureMode#LOCAL} executions are checked in process against fair share of limit,
+ * {@code maxRequests / nodes} but at least one, so limit is approximately kept while all nodes are degraded.
+ * Permits counted in process are not known to delegate after circuit closes.
+ * <p/>
+ * Calls that time out are cancelled and interrupted, they may still be counted by delegate.
+ * Number of calls in flight is bounded, calls over the bound are not made and are decided by {@link FailureMode},
+ * but they are not failures of delegate, so they don't open circuit.
+ * Threads making calls are stopped by {@link #close()}, checks after it are always decided by {@link FailureMode}.
+ * Delegate that is not {@link PermitRateChecker} is checked once for each permit.
+ * Executions with several windows or chain of keys go through circuit as single call when delegate checks them atomically,
+ * see {@link AbstractDelegatingRateChecker}.
+ *
+ * @author franjozilic
+ */
+public class ResilientRateChecker extends AbstractDelegatingRateChecker implements Closeable {
+
+  /**
+   * Decision for executions that can't be checked by delegate
+   */
+  public enum FailureMode {
+
+    /**
+     * Check against fair share of limit in process
+     */
+    LOCAL,
+
+    /**
+     * Fail open, allow all executions
+     */
+    ALLOW,
+
+    /**
+     * Fail closed, reject all executions
+     */
+    REJECT
+
+  }
+
+  private static final int CLOSED = 0;
+
+  private static final int OPEN = 1;
+
+  private static final int HALF_OPEN = 2;
+
+  private final RateChecker delegate;
+
+  private final FailureMode failureMode;
+
+  private final long nodes;
+
+  private final long timeout;
+
+  private final int failureThreshold;
+
+  private final long openDuration;
+
+  private final ExecutorService executor;
+
+  private final PermitRateChecker local = new SlidingWindowLocalRateChecker();
+
+  private final AtomicInteger state = new AtomicInteger(CLOSED);
+
+  private final AtomicInteger failures = new AtomicInteger();
+
+  private volatile long openUntil;
+
+  /**
+   * Falls back to in-process checking, calls time out after 100 milliseconds,
+   * circuit opens after 5 consecutive failures for 10 seconds, up to twice number of processors calls are in flight
+   *
+   * @param delegate shared checker
+   * @param nodes    number of nodes sharing limits of delegate
+   */
+  public ResilientRateChecker(final RateChecker delegate, final int nodes) {
+    this(delegate, FailureMode.LOCAL, nodes, 100L, 10000L, TimeUnit.MILLISECONDS, 5);
+  }
+
+  /**
+   * Up to twice number of processors calls are in flight
+   *
+   * @param delegate         shared checker
+   * @param failureMode      decision for executions delegate can't check
+   * @param nodes            number of nodes sharing limits of delegate, used with {@link FailureMode#LOCAL}
+   * @param timeout          maximum time to wait for delegate, {@code 0} to call it on calling thread without timeout
+   * @param openDuration     time delegate is not called after circuit opens
+   * @param unit             unit of timeout and open duration
+   * @param failureThreshold number of consecutive failures that opens circuit
+   */
+  public ResilientRateChecker(final RateChecker delegate, final FailureMode failureMode, final int nodes, final long timeout,
+                              final long openDuration, final TimeUnit unit, final int failureThreshold) {
+    this(delegate, failureMode, nodes, timeout, openDuration, unit, failureThreshold, 2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param delegate         shared checker
+   * @param failureMode      decision for executions delegate can't check
+   * @param nodes            number of nodes sharing limits of delegate, used with {@link FailureMode#LOCAL}
+   * @param timeout          maximum time to wait for delegate, {@code 0} to call it on calling thread without timeout
+   * @param openDuration     time delegate is not called after circuit opens
+   * @param unit             unit of timeout and open duration
+   * @param failureThreshold number of consecutive failures that opens circuit
+   * @param maxCalls         maximum number of calls to delegate in flight, including ones that timed out, not used without timeout
+   */
+  public ResilientRateChecker(final RateChecker delegate, final FailureMode failureMode, final int nodes, final long timeout,
+                              final long openDuration, final TimeUnit unit, final int failureThreshold, final int maxCalls) {
+    super(delegate);
+    this.delegate = delegate;
+    this.failureMode = failureMode;
+    this.nodes = Math.max(1, nodes);
+    this.timeout = unit.toNanos(timeout);
+    this.openDuration = unit.toNanos(openDuration);
+    this.failureThreshold = failureThreshold;
+    // no queue, call that can't start right away would only wait for its timeout
+    this.executor = timeout > 0L ? new ThreadPoolExecutor(0, Math.max(1, maxCalls), 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+        new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "rate-limit-resilient-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        }) : null;
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    return guarded(new Callable<AcquireResult>() {
+      @Override
+      public AcquireResult call() {
+        return delegated(key, permits, maxRequests, windowNanos);
+      }
+    }, new String[] {key}, permits, new long[] {maxRequests}, new long[] {windowNanos});
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    if (!(delegate instanceof MultiWindowRateChecker)) {
+      // each window is guarded on its own
+      return super.acquire(key, permits, maxRequests, windowsNanos);
+    }
+    return guarded(new Callable<AcquireResult>() {
+      @Override
+      public AcquireResult call() {
+        return ResilientRateChecker.super.acquire(key, permits, maxRequests, windowsNanos);
+      }
+    }, WindowKeys.keys(key, maxRequests.length), permits, maxRequests, windowsNanos);
+  }
+
+  @Override
+  public AcquireResult acquire(final String[] keys, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    if (!(delegate instanceof KeyChainRateChecker)) {
+      return super.acquire(keys, permits, maxRequests, windowsNanos);
+    }
+    return guarded(new Callable<AcquireResult>() {
+      @Override
+      public AcquireResult call() {
+        return ResilientRateChecker.super.acquire(keys, permits, maxRequests, windowsNanos);
+      }
+    }, windowKeys(keys), permits, maxRequests, windowsNanos);
+  }
+
+  /**
+   * Stops threads calling delegate, calls in flight are interrupted
+   */
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Whether delegate is currently bypassed
+   *
+   * @return true if circuit is open or probing, false otherwise
+   */
+  public boolean open() {
+    return state.get() != CLOSED;
+  }
+
+  /**
+   * Calls delegate through circuit, windows are needed only to decide execution when delegate can't
+   */
+  private AcquireResult guarded(final Callable<AcquireResult> delegated, final String[] keys, final long permits, final long[] maxRequests,
+                                final long[] windowsNanos) {
+    final long now = now();
+    final boolean probe;
+    final int current = state.get();
+    if (current == CLOSED) {
+      probe = false;
+    }
+    else if (current == OPEN && now - openUntil >= 0L && state.compareAndSet(OPEN, HALF_OPEN)) {
+      probe = true;
+    }
+    else {
+      return fallback(keys, permits, maxRequests, windowsNanos);
+    }
+
+    final AcquireResult result;
+    try {
+      result = call(delegated);
+    }
+    catch (final InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      if (probe) {
+        open(now);
+      }
+      return fallback(keys, permits, maxRequests, windowsNanos);
+    }
+    catch (final RejectedExecutionException exception) {
+      // too many calls in flight or closed, delegate wasn't called, probe is left for next execution
+      if (probe) {
+        state.set(OPEN);
+      }
+      return fallback(keys, permits, maxRequests, windowsNanos);
+    }
+    catch (final Exception exception) {
+      // includes timeouts
+      if (probe || failures.incrementAndGet() >= failureThreshold) {
+        open(now);
+      }
+      return fallback(keys, permits, maxRequests, windowsNanos);
+    }
+
+    failures.set(0);
+    if (probe) {
+      state.set(CLOSED);
+    }
+    return result;
+  }
+
+  private void open(final long now) {
+    openUntil = now + openDuration;
+    failures.set(0);
+    state.set(OPEN);
+  }
+
+  private AcquireResult call(final Callable<AcquireResult> delegated) throws Exception {
+    if (executor == null) {
+      return delegated.call();
+    }
+    final Future<AcquireResult> future = executor.submit(delegated);
+    try {
+      return future.get(timeout, TimeUnit.NANOSECONDS);
+    }
+    catch (final TimeoutException exception) {
+      // frees thread for other calls, unless delegate ignores interruption
+      future.cancel(true);
+      throw exception;
+    }
+  }
+
+  private AcquireResult delegated(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    if (delegate instanceof PermitRateChecker) {
+      return ((PermitRateChecker) delegate).acquire(key, permits, maxRequests, windowNanos);
+    }
+    return AcquireResult.of(checkEach(delegate, key, permits, maxRequests, windowNanos));
+  }
+
+  private AcquireResult fallback(final String[] keys, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    switch (failureMode) {
+      case ALLOW:
+        return AcquireResult.of(true);
+      case REJECT:
+        return AcquireResult.of(false);
+      default:
+        final List<AcquireResult> results = new ArrayList<>(keys.length);
+        for (int idx = 0; idx < keys.length; idx++) {
+          final AcquireResult result = local.acquire(keys[idx], permits, Math.max(1L, maxRequests[idx] / nodes), windowsNanos[idx]);
+          results.add(result);
+          if (!result.allowed()) {
+            break;
+          }
+        }
+        return AcquireResult.strictest(results);
+    }
+  }
+
+}
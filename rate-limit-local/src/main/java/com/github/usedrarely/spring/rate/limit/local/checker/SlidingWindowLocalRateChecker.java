@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process rate limit checker based on sliding window counter.
+ * <p/>
+ * Sliding window is approximated with two fixed windows, count of previous window is weighted by the part of it still covered by sliding window.
+ * <p/>
+ * State is window index and both counts packed in single value, {@code maxRequests} is limited to {@value #MAX_COUNT}.
+ *
+ * @author franjozilic
+ */
+public class SlidingWindowLocalRateChecker extends AbstractLocalRateChecker {
+
+  static final long MAX_COUNT = 0xFFFFFFL;
+
+  private static final long INDEX_MASK = 0x7FFFL;
+
+  public SlidingWindowLocalRateChecker() {
+    super();
+  }
+
+  public SlidingWindowLocalRateChecker(final long evictionInterval, final TimeUnit unit) {
+    super(evictionInterval, unit);
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    return acquire(key, permits, Math.min(maxRequests, MAX_COUNT), windowNanos, 2 * windowNanos);
+  }
+
+  @Override
+  protected long update(final long value, final long now, final long permits, final long limit, final long period) {
+    final long window = now / period;
+    final long index = window & INDEX_MASK;
+    final long stored = value >>> 48;
+
+    long previous = (value >>> 24) & MAX_COUNT;
+    long count = value & MAX_COUNT;
+
+    // roll windows, anything older then previous window doesn't count
+    if (stored != index) {
+      previous = stored == ((window - 1) & INDEX_MASK) ? count : 0L;
+      count = 0L;
+    }
+
+    final double weight = (double) (period - (now - window * period)) / period;
+    if (previous * weight + count + permits > limit) {
+      return REJECTED;
+    }
+    return index << 48 | previous << 24 | (count + permits);
+  }
+
+  @Override
+  protected AcquireResult result(final long value, final long now, final long permits, final long limit, final long period, final boolean allowed) {
+    final long window = now / period;
+    final long index = window & INDEX_MASK;
+    final long stored = value >>> 48;
+
+    long previous = (value >>> 24) & MAX_COUNT;
+    long count = value & MAX_COUNT;
+    if (stored != index) {
+      previous = stored == ((window - 1) & INDEX_MASK) ? count : 0L;
+      count = 0L;
+    }
+
+    final long elapsed = now - window * period;
+    final double weight = (double) (period - elapsed) / period;
+    final long remaining = Math.max(0L, (long) Math.floor(limit - previous * weight - count));
+    // all counted executions are out of sliding window once current window passes
+    final long reset = millis(2 * period - elapsed);
+
+    if (allowed) {
+      return AcquireResult.allowed(remaining, reset);
+    }
+    return AcquireResult.rejected(remaining, reset, retryAfter(previous, count, elapsed, permits, limit, period));
+  }
+
+  /**
+   * Time until weight of previous window drops enough to allow execution, possibly in next window
+   */
+  private static long retryAfter(final long previous, final long count, final long elapsed, final long permits, final long limit, final long period) {
+    if (permits > limit) {
+      return AcquireResult.NEVER;
+    }
+    if (count + permits <= limit) {
+      final double weight = (double) (limit - count - permits) / previous;
+      return Math.max(1L, millis((long) Math.ceil((1.0 - weight) * period) - elapsed));
+    }
+    // current window becomes previous
+    final double weight = count == 0L ? 1.0 : Math.min(1.0, (double) (limit - permits) / count);
+    return Math.max(1L, millis(period - elapsed + (long) Math.ceil((1.0 - weight) * period)));
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.BucketRateChecker;
+import com.github.usedrarely.spring.rate.limit.options.OptionsBucket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process rate limit checker based on token bucket.
+ * <p/>
+ * Bucket capacity limits burst size, while refill sets sustained rate, see {@link OptionsBucket}.
+ * Bucket is tracked as theoretical arrival time of next execution (as in generic cell rate algorithm),
+ * which is equivalent to token bucket but needs only single value.
+ * <p/>
+ * When checked without bucket configuration, bucket has capacity of {@code maxRequests} and is refilled with {@code maxRequests} tokens every {@code interval}.
+ *
+ * @author franjozilic
+ */
+public class TokenBucketLocalRateChecker extends AbstractLocalRateChecker implements BucketRateChecker {
+
+  public TokenBucketLocalRateChecker() {
+    super();
+  }
+
+  public TokenBucketLocalRateChecker(final long evictionInterval, final TimeUnit unit) {
+    super(evictionInterval, unit);
+  }
+
+  @Override
+  public boolean check(final String key, final OptionsBucket bucket) {
+    return acquire(key, bucket).allowed();
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final OptionsBucket bucket) {
+    return acquire(key, 1L, bucket);
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final OptionsBucket bucket) {
+    final long refill = bucket.refillInterval().unit().toNanos(bucket.refillInterval().interval());
+    return acquireTokens(key, permits, bucket.capacity(), Math.max(1L, refill / bucket.refillTokens()));
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    return acquireTokens(key, permits, maxRequests, Math.max(1L, windowNanos / maxRequests));
+  }
+
+  private AcquireResult acquireTokens(final String key, final long permits, final long capacity, final long emission) {
+    return acquire(key, permits, capacity, emission, capacity * emission);
+  }
+
+  /**
+   * @param value  theoretical arrival time of next execution
+   * @param limit  bucket capacity
+   * @param period emission interval, time needed to refill single token
+   */
+  @Override
+  protected long update(final long value, final long now, final long permits, final long limit, final long period) {
+    final long arrival = Math.max(value, now) + permits * period;
+
+    // after this execution bucket may be at most empty, arrival at most capacity tokens ahead of current time
+    if (arrival - limit * period > now) {
+      return REJECTED;
+    }
+    return arrival;
+  }
+
+  @Override
+  protected AcquireResult result(final long value, final long now, final long permits, final long limit, final long period, final boolean allowed) {
+    final long arrival = Math.max(value, now);
+    final long remaining = Math.max(0L, (now + limit * period - arrival) / period);
+    final long reset = millis(arrival - now);
+
+    if (allowed) {
+      return AcquireResult.allowed(remaining, reset);
+    }
+    if (permits > limit) {
+      return AcquireResult.rejected(remaining, reset, AcquireResult.NEVER);
+    }
+    return AcquireResult.rejected(remaining, reset, Math.max(1L, millis(arrival + (permits - limit) * period - now)));
+  }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.KeyChainRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.PermitReleasingRateChecker;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class BlockLeasingRateCheckerTest {
+
+  private static final long WINDOW = TimeUnit.SECONDS.toNanos(1L);
+
+  private long now = 0L;
+
+  private final PermitReleasingRateChecker delegate = mock(PermitReleasingRateChecker.class);
+
+  private final Executor releaseExecutor = new Executor() {
+    @Override
+    public void execute(final Runnable command) {
+      command.run();
+    }
+  };
+
+  private final BlockLeasingRateChecker rateChecker = new BlockLeasingRateChecker(delegate, 10L, 40L, 100L, TimeUnit.MILLISECONDS,
+      releaseExecutor) {
+    @Override
+    protected long now() {
+      return now;
+    }
+  };
+
+  @Test
+  public void shouldTakePermitsFromBlock() {
+    when(delegate.acquire(eq("test"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+
+    for (int idx = 0; idx < 10; idx++) {
+      assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    }
+    verify(delegate, times(1)).acquire(anyString(), anyLong(), anyLong(), anyLong());
+    verify(delegate).acquire("test", 10L, 1000L, WINDOW);
+
+    // block used up before it expired, next one is bigger
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    verify(delegate).acquire("test", 20L, 1000L, WINDOW);
+    verify(delegate, never()).release(anyString(), anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  public void shouldDoubleBlockUpToMaximum() {
+    when(delegate.acquire(eq("test"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+
+    for (int idx = 0; idx < 71; idx++) {
+      assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    }
+    verify(delegate).acquire("test", 10L, 1000L, WINDOW);
+    verify(delegate).acquire("test", 20L, 1000L, WINDOW);
+    verify(delegate, times(2)).acquire("test", 40L, 1000L, WINDOW);
+    verify(delegate, times(4)).acquire(anyString(), anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  public void shouldHalveBlockMostlyUnused() {
+    when(delegate.acquire(eq("test"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+
+    for (int idx = 0; idx < 30; idx++) {
+      assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    }
+    now = TimeUnit.MILLISECONDS.toNanos(60L);
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    verify(delegate).acquire("test", 40L, 1000L, WINDOW);
+    // sweeps idle keys, block of 40 is still used
+    now = TimeUnit.MILLISECONDS.toNanos(100L);
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+
+    // block of 40 expired with 38 unused, next one is smaller
+    now = TimeUnit.MILLISECONDS.toNanos(160L);
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    verify(delegate).release("test", 38L, 1000L, WINDOW);
+    verify(delegate, times(2)).acquire("test", 20L, 1000L, WINDOW);
+  }
+
+  @Test
+  public void shouldReturnUnusedPermitsOnReleaseExecutor() {
+    final Executor deferred = mock(Executor.class);
+    final BlockLeasingRateChecker deferring = new BlockLeasingRateChecker(delegate, 10L, 40L, 100L, TimeUnit.MILLISECONDS, deferred) {
+      @Override
+      protected long now() {
+        return now;
+      }
+    };
+    when(delegate.acquire(eq("test"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+    when(delegate.acquire(eq("other"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+
+    assertThat(deferring.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    now = TimeUnit.MILLISECONDS.toNanos(200L);
+    assertThat(deferring.tryAcquire("other", 1L, 1000L, WINDOW)).isTrue();
+
+    verify(deferred).execute(any(Runnable.class));
+    verify(delegate, never()).release(anyString(), anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  public void shouldForwardKeyChainToDelegate() {
+    final PermitReleasingRateChecker chainDelegate = mock(PermitReleasingRateChecker.class,
+        withSettings().extraInterfaces(KeyChainRateChecker.class));
+    final String[] keys = {"user", "tenant"};
+    final long[] maxRequests = {10L, 100L};
+    final long[] windowsNanos = {WINDOW, WINDOW};
+    final AcquireResult allowed = AcquireResult.allowed(9L, 1000L);
+    when(((KeyChainRateChecker) chainDelegate).acquire(keys, 1L, maxRequests, windowsNanos)).thenReturn(allowed);
+
+    final BlockLeasingRateChecker rateChecker = new BlockLeasingRateChecker(chainDelegate, 10L, 40L, 100L, TimeUnit.MILLISECONDS,
+        releaseExecutor);
+    assertThat(rateChecker.acquire(keys, 1L, maxRequests, windowsNanos)).isSameAs(allowed);
+    verify(chainDelegate, never()).acquire(anyString(), anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  public void shouldReportStateOfBlock() {
+    when(delegate.acquire(eq("test"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+
+    assertThat(rateChecker.acquire("test", 2L, 1000L, WINDOW).remaining()).isEqualTo(900L);
+    final AcquireResult result = rateChecker.acquire("test", 1L, 1000L, WINDOW);
+    assertThat(result.allowed()).isTrue();
+    assertThat(result.remaining()).isEqualTo(907L);
+    assertThat(result.resetAt()).isGreaterThan(0L);
+  }
+
+  @Test
+  public void shouldKeepSeparateBlocksForEachLimit() {
+    when(delegate.acquire(eq("test"), anyLong(), anyLong(), eq(WINDOW))).thenReturn(AcquireResult.allowed(0L, 1000L));
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 1L, 20L, WINDOW)).isTrue();
+    verify(delegate).acquire("test", 10L, 1000L, WINDOW);
+    verify(delegate).acquire("test", 10L, 20L, WINDOW);
+    assertThat(rateChecker.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotWaitForKeyAcquiringBlockWhileReleasing() throws Exception {
+    final CountDownLatch inFlight = new CountDownLatch(1);
+    final CountDownLatch respond = new CountDownLatch(1);
+    when(delegate.acquire(eq("test"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+    when(delegate.acquire(eq("slow"), anyLong(), eq(1000L), eq(WINDOW))).thenAnswer(new Answer<AcquireResult>() {
+      @Override
+      public AcquireResult answer(final InvocationOnMock invocation) throws InterruptedException {
+        inFlight.countDown();
+        respond.await();
+        return AcquireResult.allowed(900L, 1000L);
+      }
+    });
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+      final Future<Boolean> slow = executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return rateChecker.tryAcquire("slow", 1L, 1000L, WINDOW);
+        }
+      });
+      assertThat(inFlight.await(1L, TimeUnit.SECONDS)).isTrue();
+
+      // sweep skips key acquiring its block
+      now = TimeUnit.MILLISECONDS.toNanos(200L);
+      final Future<Boolean> other = executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return rateChecker.tryAcquire("test", 1L, 1000L, WINDOW);
+        }
+      });
+      assertThat(other.get(1L, TimeUnit.SECONDS)).isTrue();
+      verify(delegate).release("test", 9L, 1000L, WINDOW);
+
+      respond.countDown();
+      assertThat(slow.get(1L, TimeUnit.SECONDS)).isTrue();
+    }
+    finally {
+      respond.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldReleaseUnusedPermitsOfExpiredBlock() {
+    when(delegate.acquire(eq("test"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+
+    assertThat(rateChecker.tryAcquire("test", 3L, 1000L, WINDOW)).isTrue();
+    now = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    verify(delegate).release("test", 7L, 1000L, WINDOW);
+    verify(delegate, times(2)).acquire("test", 10L, 1000L, WINDOW);
+  }
+
+  @Test
+  public void shouldReleaseIdleKeys() {
+    when(delegate.acquire(eq("test"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+    when(delegate.acquire(eq("other"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(AcquireResult.allowed(900L, 1000L));
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    assertThat(rateChecker.size()).isEqualTo(1);
+
+    now = TimeUnit.MILLISECONDS.toNanos(200L);
+    assertThat(rateChecker.tryAcquire("other", 1L, 1000L, WINDOW)).isTrue();
+
+    verify(delegate).release("test", 9L, 1000L, WINDOW);
+    assertThat(rateChecker.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldTakeWhatIsLeftForBlock() {
+    when(delegate.acquire("test", 10L, 1000L, WINDOW)).thenReturn(AcquireResult.rejected(3L, 1000L, 100L));
+    when(delegate.acquire("test", 3L, 1000L, WINDOW)).thenReturn(AcquireResult.allowed(0L, 1000L));
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 1L, 1000L, WINDOW)).isTrue();
+    verify(delegate).acquire("test", 3L, 1000L, WINDOW);
+  }
+
+  @Test
+  public void shouldRejectWhenDelegateRejects() {
+    final AcquireResult rejected = AcquireResult.rejected(0L, 1000L, 100L);
+    when(delegate.acquire(eq("test"), anyLong(), eq(1000L), eq(WINDOW))).thenReturn(rejected);
+
+    assertThat(rateChecker.acquire("test", 1L, 1000L, WINDOW)).isSameAs(rejected);
+    verify(delegate).acquire("test", 10L, 1000L, WINDOW);
+    verify(delegate).acquire("test", 1L, 1000L, WINDOW);
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ChainedRateCheckerTest {
+
+  @Test
+  public void shouldStopOnFirstRejection() {
+    final RateChecker first = mock(RateChecker.class);
+    final RateChecker second = mock(RateChecker.class);
+    when(first.check(anyString(), anyLong(), any(OptionsInterval.class))).thenReturn(false);
+
+    assertThat(new ChainedRateChecker(first, second).check("test", 1L, mock(OptionsInterval.class))).isFalse();
+    verify(second, never()).check(anyString(), anyLong(), any(OptionsInterval.class));
+  }
+
+  @Test
+  public void shouldAllowWhenAllAllow() {
+    final RateChecker first = mock(RateChecker.class);
+    final RateChecker second = mock(RateChecker.class);
+    when(first.check(anyString(), anyLong(), any(OptionsInterval.class))).thenReturn(true);
+    when(second.check(anyString(), anyLong(), any(OptionsInterval.class))).thenReturn(true);
+
+    assertThat(new ChainedRateChecker(first, second).check("test", 1L, mock(OptionsInterval.class))).isTrue();
+  }
+
+  @Test
+  public void shouldCheckOncePerPermit() {
+    final RateChecker checker = mock(RateChecker.class);
+    when(checker.check(anyString(), anyLong(), any(OptionsInterval.class))).thenReturn(true);
+
+    assertThat(new ChainedRateChecker(checker).tryAcquire("test", 3L, 10L, TimeUnit.SECONDS.toNanos(1L))).isTrue();
+    verify(checker, times(3)).check(anyString(), anyLong(), any(OptionsInterval.class));
+  }
+
+}
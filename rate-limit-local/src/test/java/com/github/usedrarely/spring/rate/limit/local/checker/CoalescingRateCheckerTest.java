@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CoalescingRateCheckerTest {
+
+  private static final long WINDOW = TimeUnit.SECONDS.toNanos(1L);
+
+  private final PermitRateChecker delegate = mock(PermitRateChecker.class);
+
+  private final CoalescingRateChecker rateChecker = new CoalescingRateChecker(delegate);
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  private final CountDownLatch inFlight = new CountDownLatch(1);
+
+  private final CountDownLatch respond = new CountDownLatch(1);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private Answer<AcquireResult> blockingAnswer(final AcquireResult result) {
+    return new Answer<AcquireResult>() {
+      @Override
+      public AcquireResult answer(final InvocationOnMock invocation) throws InterruptedException {
+        inFlight.countDown();
+        respond.await();
+        return result;
+      }
+    };
+  }
+
+  private Future<AcquireResult> acquire(final long permits) {
+    return executor.submit(new Callable<AcquireResult>() {
+      @Override
+      public AcquireResult call() {
+        return rateChecker.acquire("test", permits, 10L, WINDOW);
+      }
+    });
+  }
+
+  private static void awaitWaiting(final int count) throws InterruptedException {
+    // executions joining acquisition in flight wait for it
+    for (int attempt = 0; attempt < 500; attempt++) {
+      int waiting = 0;
+      for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+        for (final StackTraceElement element : thread.getStackTrace()) {
+          if (element.getClassName().startsWith(CoalescingRateChecker.class.getName()) && element.getMethodName().equals("await")) {
+            waiting++;
+            break;
+          }
+        }
+      }
+      if (waiting >= count) {
+        return;
+      }
+      Thread.sleep(10L);
+    }
+  }
+
+  @Test
+  public void shouldMergeAcquisitionsWhileInFlight() throws Exception {
+    when(delegate.acquire("test", 1L, 10L, WINDOW)).thenAnswer(blockingAnswer(AcquireResult.allowed(9L, 1000L)));
+    when(delegate.acquire("test", 5L, 10L, WINDOW)).thenReturn(AcquireResult.allowed(4L, 1000L));
+
+    final Future<AcquireResult> first = acquire(1L);
+    inFlight.await(1L, TimeUnit.SECONDS);
+    final Future<AcquireResult> second = acquire(2L);
+    final Future<AcquireResult> third = acquire(3L);
+    awaitWaiting(2);
+    respond.countDown();
+
+    assertThat(first.get(1L, TimeUnit.SECONDS).remaining()).isEqualTo(9L);
+    assertThat(second.get(1L, TimeUnit.SECONDS).remaining()).isEqualTo(4L);
+    assertThat(third.get(1L, TimeUnit.SECONDS).remaining()).isEqualTo(4L);
+    verify(delegate, times(2)).acquire(anyString(), anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  public void shouldAdmitMergedAcquisitionsThatFit() throws Exception {
+    when(delegate.acquire("test", 1L, 10L, WINDOW)).thenAnswer(blockingAnswer(AcquireResult.allowed(2L, 1000L)));
+    when(delegate.acquire("test", 5L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(2L, 1000L, 100L));
+    when(delegate.acquire("test", 2L, 10L, WINDOW)).thenReturn(AcquireResult.allowed(0L, 1000L));
+
+    acquire(1L);
+    inFlight.await(1L, TimeUnit.SECONDS);
+    final Future<AcquireResult> second = acquire(2L);
+    awaitWaiting(1);
+    final Future<AcquireResult> third = acquire(3L);
+    awaitWaiting(2);
+    respond.countDown();
+
+    assertThat(second.get(1L, TimeUnit.SECONDS).allowed()).isTrue();
+    assertThat(third.get(1L, TimeUnit.SECONDS).allowed()).isFalse();
+  }
+
+  @Test
+  public void shouldFailMergedAcquisitionsWhenDelegateThrowsError() throws Exception {
+    final Error error = new NoClassDefFoundError("test");
+    when(delegate.acquire("test", 1L, 10L, WINDOW)).thenAnswer(blockingAnswer(AcquireResult.allowed(9L, 1000L)));
+    when(delegate.acquire("test", 5L, 10L, WINDOW)).thenThrow(error);
+
+    acquire(1L);
+    inFlight.await(1L, TimeUnit.SECONDS);
+    final Future<AcquireResult> second = acquire(2L);
+    final Future<AcquireResult> third = acquire(3L);
+    awaitWaiting(2);
+    respond.countDown();
+
+    try {
+      second.get(1L, TimeUnit.SECONDS);
+      fail("expected failure of leader");
+    }
+    catch (final ExecutionException exception) {
+      assertThat(exception.getCause()).isSameAs(error);
+    }
+    try {
+      third.get(1L, TimeUnit.SECONDS);
+      fail("expected failure of waiter");
+    }
+    catch (final ExecutionException exception) {
+      assertThat(exception.getCause()).isSameAs(error);
+    }
+  }
+
+  @Test
+  public void shouldAcquireAloneWithoutConcurrentExecutions() {
+    when(delegate.acquire("test", 1L, 10L, WINDOW)).thenReturn(AcquireResult.allowed(9L, 1000L));
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 10L, WINDOW)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 1L, 10L, WINDOW)).isTrue();
+    verify(delegate, times(2)).acquire("test", 1L, 10L, WINDOW);
+  }
+
+}
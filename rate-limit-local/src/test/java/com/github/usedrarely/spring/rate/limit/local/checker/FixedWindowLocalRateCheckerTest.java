@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FixedWindowLocalRateCheckerTest {
+
+  private long now = 0L;
+
+  private final FixedWindowLocalRateChecker rateChecker = new FixedWindowLocalRateChecker(1L, TimeUnit.SECONDS) {
+    @Override
+    protected long now() {
+      return now;
+    }
+  };
+
+  static OptionsInterval interval(final long interval, final TimeUnit unit) {
+    final OptionsInterval optionsInterval = mock(OptionsInterval.class);
+    when(optionsInterval.interval()).thenReturn(interval);
+    when(optionsInterval.unit()).thenReturn(unit);
+    return optionsInterval;
+  }
+
+  @Test
+  public void shouldAllowUnderLimitThenDeny() {
+    final OptionsInterval interval = interval(1L, TimeUnit.SECONDS);
+
+    for (int idx = 0; idx < 10; idx++) {
+      assertThat(rateChecker.check("test", 10L, interval)).isTrue();
+    }
+    assertThat(rateChecker.check("test", 10L, interval)).isFalse();
+    assertThat(rateChecker.check("other", 10L, interval)).isTrue();
+  }
+
+  @Test
+  public void shouldResetInNextWindow() {
+    final OptionsInterval interval = interval(1L, TimeUnit.SECONDS);
+
+    for (int idx = 0; idx < 5; idx++) {
+      assertThat(rateChecker.check("test", 5L, interval)).isTrue();
+    }
+    assertThat(rateChecker.check("test", 5L, interval)).isFalse();
+
+    now = TimeUnit.SECONDS.toNanos(1L);
+    assertThat(rateChecker.check("test", 5L, interval)).isTrue();
+  }
+
+  @Test
+  public void shouldAcquireMultiplePermits() {
+    final long window = TimeUnit.SECONDS.toNanos(1L);
+
+    assertThat(rateChecker.tryAcquire("test", 6L, 10L, window)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 6L, 10L, window)).isFalse();
+    assertThat(rateChecker.tryAcquire("test", 4L, 10L, window)).isTrue();
+  }
+
+  @Test
+  public void shouldEvictIdleKeys() {
+    final OptionsInterval interval = interval(1L, TimeUnit.SECONDS);
+
+    assertThat(rateChecker.check("test", 5L, interval)).isTrue();
+    assertThat(rateChecker.check("other", 5L, interval)).isTrue();
+    assertThat(rateChecker.size()).isEqualTo(2);
+
+    now = TimeUnit.SECONDS.toNanos(3L);
+    assertThat(rateChecker.check("other", 5L, interval)).isTrue();
+    assertThat(rateChecker.size()).isEqualTo(1);
+  }
+
+}
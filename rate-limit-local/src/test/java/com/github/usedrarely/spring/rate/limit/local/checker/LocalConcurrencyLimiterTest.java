@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLease;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class LocalConcurrencyLimiterTest {
+
+  private static final long LEASE = TimeUnit.MINUTES.toNanos(1L);
+
+  private final LocalConcurrencyLimiter limiter = new LocalConcurrencyLimiter();
+
+  @Test
+  public void shouldRejectWhenAllSlotsAreTaken() {
+    final ConcurrencyLease first = limiter.tryAcquire("test", 2L, LEASE);
+    final ConcurrencyLease second = limiter.tryAcquire("test", 2L, LEASE);
+
+    assertThat(first).isNotNull();
+    assertThat(second).isNotNull();
+    assertThat(limiter.tryAcquire("test", 2L, LEASE)).isNull();
+    assertThat(limiter.tryAcquire("other", 2L, LEASE)).isNotNull();
+  }
+
+  @Test
+  public void shouldFreeSlotOnRelease() {
+    final ConcurrencyLease lease = limiter.tryAcquire("test", 1L, LEASE);
+    assertThat(limiter.tryAcquire("test", 1L, LEASE)).isNull();
+
+    lease.release();
+    assertThat(limiter.tryAcquire("test", 1L, LEASE)).isNotNull();
+  }
+
+  @Test
+  public void shouldReleaseLeaseOnlyOnce() {
+    final ConcurrencyLease lease = limiter.tryAcquire("test", 2L, LEASE);
+    final ConcurrencyLease held = limiter.tryAcquire("test", 2L, LEASE);
+    lease.release();
+    lease.release();
+
+    assertThat(held).isNotNull();
+    assertThat(limiter.tryAcquire("test", 2L, LEASE)).isNotNull();
+    assertThat(limiter.tryAcquire("test", 2L, LEASE)).isNull();
+  }
+
+  @Test
+  public void shouldRemoveKeysWithoutRunningExecutions() {
+    final ConcurrencyLease first = limiter.tryAcquire("test", 2L, LEASE);
+    final ConcurrencyLease second = limiter.tryAcquire("test", 2L, LEASE);
+    assertThat(limiter.size()).isEqualTo(1);
+
+    first.release();
+    assertThat(limiter.size()).isEqualTo(1);
+    second.release();
+    assertThat(limiter.size()).isEqualTo(0);
+
+    assertThat(limiter.tryAcquire("test", 2L, LEASE)).isNotNull();
+    assertThat(limiter.size()).isEqualTo(1);
+  }
+
+}
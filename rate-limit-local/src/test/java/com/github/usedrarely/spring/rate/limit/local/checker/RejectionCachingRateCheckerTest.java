@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RejectionCachingRateCheckerTest {
+
+  private static final long WINDOW = TimeUnit.SECONDS.toNanos(10L);
+
+  private long now = 0L;
+
+  private final PermitRateChecker delegate = mock(PermitRateChecker.class);
+
+  private final RejectionCachingRateChecker rateChecker = new RejectionCachingRateChecker(delegate, 2) {
+    @Override
+    protected long now() {
+      return now;
+    }
+  };
+
+  @Test
+  public void shouldRejectExhaustedKeyUntilRetry() {
+    when(delegate.acquire("test", 1L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(0L, 5000L, 200L), AcquireResult.allowed(0L, 5000L));
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 10L, WINDOW)).isFalse();
+
+    now = TimeUnit.MILLISECONDS.toNanos(150L);
+    final AcquireResult cached = rateChecker.acquire("test", 1L, 10L, WINDOW);
+    assertThat(cached.allowed()).isFalse();
+    assertThat(cached.retryAfter()).isEqualTo(50L);
+    verify(delegate, times(1)).acquire("test", 1L, 10L, WINDOW);
+
+    now = TimeUnit.MILLISECONDS.toNanos(200L);
+    assertThat(rateChecker.tryAcquire("test", 1L, 10L, WINDOW)).isTrue();
+    verify(delegate, times(2)).acquire("test", 1L, 10L, WINDOW);
+  }
+
+  @Test
+  public void shouldAssumeSustainedRateWithoutRetry() {
+    when(delegate.acquire("test", 1L, 10L, WINDOW)).thenReturn(AcquireResult.of(false));
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 10L, WINDOW)).isFalse();
+    now = TimeUnit.MILLISECONDS.toNanos(999L);
+    assertThat(rateChecker.tryAcquire("test", 1L, 10L, WINDOW)).isFalse();
+    verify(delegate, times(1)).acquire("test", 1L, 10L, WINDOW);
+
+    now = TimeUnit.SECONDS.toNanos(1L);
+    assertThat(rateChecker.tryAcquire("test", 1L, 10L, WINDOW)).isFalse();
+    verify(delegate, times(2)).acquire("test", 1L, 10L, WINDOW);
+  }
+
+  @Test
+  public void shouldCheckExecutionsWithLessPermits() {
+    when(delegate.acquire("test", 5L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(2L, 5000L, 200L));
+    when(delegate.acquire("test", 1L, 10L, WINDOW)).thenReturn(AcquireResult.allowed(1L, 5000L));
+
+    assertThat(rateChecker.tryAcquire("test", 5L, 10L, WINDOW)).isFalse();
+    assertThat(rateChecker.tryAcquire("test", 6L, 10L, WINDOW)).isFalse();
+    assertThat(rateChecker.tryAcquire("test", 1L, 10L, WINDOW)).isTrue();
+  }
+
+  @Test
+  public void shouldNotRememberExecutionsThatCanNeverBeAllowed() {
+    when(delegate.acquire("test", 20L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(10L, 0L, AcquireResult.NEVER));
+
+    assertThat(rateChecker.tryAcquire("test", 20L, 10L, WINDOW)).isFalse();
+    assertThat(rateChecker.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldBoundNumberOfKeys() {
+    when(delegate.acquire("a", 1L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(0L, 5000L, 100L));
+    when(delegate.acquire("b", 1L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(0L, 5000L, 500L));
+    when(delegate.acquire("c", 1L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(0L, 5000L, 500L));
+
+    rateChecker.tryAcquire("a", 1L, 10L, WINDOW);
+    rateChecker.tryAcquire("b", 1L, 10L, WINDOW);
+    rateChecker.tryAcquire("c", 1L, 10L, WINDOW);
+    assertThat(rateChecker.size()).isEqualTo(2);
+
+    // expired key makes room for new one
+    now = TimeUnit.MILLISECONDS.toNanos(100L);
+    rateChecker.tryAcquire("c", 1L, 10L, WINDOW);
+    assertThat(rateChecker.size()).isEqualTo(2);
+    rateChecker.tryAcquire("c", 1L, 10L, WINDOW);
+    verify(delegate, times(2)).acquire("c", 1L, 10L, WINDOW);
+  }
+
+  @Test
+  public void shouldAcquireEachWindowWhenDelegateCantCheckThemAtOnce() {
+    when(delegate.acquire("test", 1L, 10L, WINDOW)).thenReturn(AcquireResult.allowed(9L, 5000L));
+    when(delegate.acquire("{test}:1", 1L, 100L, 2 * WINDOW)).thenReturn(AcquireResult.rejected(0L, 5000L, 500L));
+
+    assertThat(rateChecker.acquire("test", 1L, new long[] {10L, 100L}, new long[] {WINDOW, 2 * WINDOW}).allowed()).isFalse();
+    // rejected window is remembered
+    assertThat(rateChecker.tryAcquire("{test}:1", 1L, 100L, 2 * WINDOW)).isFalse();
+    verify(delegate, times(1)).acquire("{test}:1", 1L, 100L, 2 * WINDOW);
+  }
+
+  @Test
+  public void shouldThrottleRemovalOfExpiredKeys() {
+    when(delegate.acquire("a", 1L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(0L, 5000L, 5L));
+    when(delegate.acquire("b", 1L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(0L, 5000L, 500L));
+    when(delegate.acquire("c", 1L, 10L, WINDOW)).thenReturn(AcquireResult.rejected(0L, 5000L, 500L));
+
+    rateChecker.tryAcquire("a", 1L, 10L, WINDOW);
+    rateChecker.tryAcquire("b", 1L, 10L, WINDOW);
+    rateChecker.tryAcquire("c", 1L, 10L, WINDOW);
+
+    // key expired, but keys were scanned too recently
+    now = TimeUnit.MILLISECONDS.toNanos(6L);
+    rateChecker.tryAcquire("c", 1L, 10L, WINDOW);
+    assertThat(rateChecker.size()).isEqualTo(2);
+    verify(delegate, times(2)).acquire("c", 1L, 10L, WINDOW);
+
+    now = TimeUnit.MILLISECONDS.toNanos(10L);
+    rateChecker.tryAcquire("c", 1L, 10L, WINDOW);
+    rateChecker.tryAcquire("c", 1L, 10L, WINDOW);
+    verify(delegate, times(3)).acquire("c", 1L, 10L, WINDOW);
+  }
+
+}
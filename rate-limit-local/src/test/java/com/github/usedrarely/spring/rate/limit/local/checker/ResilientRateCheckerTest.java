@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.BucketRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.KeyChainRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.local.checker.ResilientRateChecker.FailureMode;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResilientRateCheckerTest {
+
+  private static final long WINDOW = TimeUnit.SECONDS.toNanos(10L);
+
+  private long now = 0L;
+
+  private final PermitRateChecker delegate = mock(PermitRateChecker.class);
+
+  private ResilientRateChecker rateChecker(final FailureMode failureMode, final long timeout) {
+    return new ResilientRateChecker(delegate, failureMode, 2, timeout, 1000L, TimeUnit.MILLISECONDS, 2) {
+      @Override
+      protected long now() {
+        return now;
+      }
+    };
+  }
+
+  @Test
+  public void shouldCheckFairShareLocallyWhileOpen() {
+    when(delegate.acquire("test", 1L, 4L, WINDOW)).thenThrow(new IllegalStateException("down"));
+    final ResilientRateChecker rateChecker = rateChecker(FailureMode.LOCAL, 0L);
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isTrue();
+    assertThat(rateChecker.open()).isFalse();
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isTrue();
+    assertThat(rateChecker.open()).isTrue();
+
+    // share of this node is 2 of 4, both already taken in process
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isFalse();
+    verify(delegate, times(2)).acquire("test", 1L, 4L, WINDOW);
+  }
+
+  @Test
+  public void shouldCloseAfterSuccessfulProbe() {
+    when(delegate.acquire("test", 1L, 4L, WINDOW)).thenThrow(new IllegalStateException("down"), new IllegalStateException("down"))
+        .thenReturn(AcquireResult.allowed(3L, 1000L));
+    final ResilientRateChecker rateChecker = rateChecker(FailureMode.REJECT, 0L);
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isFalse();
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isFalse();
+    assertThat(rateChecker.open()).isTrue();
+
+    now = TimeUnit.MILLISECONDS.toNanos(999L);
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isFalse();
+    verify(delegate, times(2)).acquire("test", 1L, 4L, WINDOW);
+
+    now = TimeUnit.MILLISECONDS.toNanos(1000L);
+    assertThat(rateChecker.acquire("test", 1L, 4L, WINDOW).remaining()).isEqualTo(3L);
+    assertThat(rateChecker.open()).isFalse();
+  }
+
+  @Test
+  public void shouldOpenAgainAfterFailedProbe() {
+    when(delegate.acquire("test", 1L, 4L, WINDOW)).thenThrow(new IllegalStateException("down"));
+    final ResilientRateChecker rateChecker = rateChecker(FailureMode.ALLOW, 0L);
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isTrue();
+
+    now = TimeUnit.MILLISECONDS.toNanos(1000L);
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isTrue();
+    verify(delegate, times(3)).acquire("test", 1L, 4L, WINDOW);
+
+    now = TimeUnit.MILLISECONDS.toNanos(1999L);
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isTrue();
+    assertThat(rateChecker.open()).isTrue();
+    verify(delegate, times(3)).acquire("test", 1L, 4L, WINDOW);
+  }
+
+  @Test
+  public void shouldTreatSlowCallAsFailure() {
+    when(delegate.acquire("test", 1L, 4L, WINDOW)).thenAnswer(new Answer<AcquireResult>() {
+      @Override
+      public AcquireResult answer(final InvocationOnMock invocation) throws Throwable {
+        Thread.sleep(1000L);
+        return AcquireResult.of(true);
+      }
+    });
+    final ResilientRateChecker rateChecker = rateChecker(FailureMode.REJECT, 50L);
+
+    final long start = System.nanoTime();
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isFalse();
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(500L));
+  }
+
+  @Test
+  public void shouldFallBackWhenTooManyCallsAreInFlight() {
+    final CountDownLatch respond = new CountDownLatch(1);
+    when(delegate.acquire("test", 1L, 4L, WINDOW)).thenAnswer(new Answer<AcquireResult>() {
+      @Override
+      public AcquireResult answer(final InvocationOnMock invocation) throws Throwable {
+        // ignores cancellation, keeps the only thread busy
+        while (true) {
+          try {
+            respond.await();
+            return AcquireResult.of(true);
+          }
+          catch (final InterruptedException exception) {
+            // retry
+          }
+        }
+      }
+    });
+    final ResilientRateChecker rateChecker = new ResilientRateChecker(delegate, FailureMode.REJECT, 2, 50L, 1000L, TimeUnit.MILLISECONDS,
+        10, 1);
+
+    try {
+      // timed out call still holds the only thread
+      assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isFalse();
+      final long start = System.nanoTime();
+      assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isFalse();
+      assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(50L));
+      assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isFalse();
+      verify(delegate, times(1)).acquire("test", 1L, 4L, WINDOW);
+      // only timed out call is failure of delegate
+      assertThat(rateChecker.open()).isFalse();
+    }
+    finally {
+      respond.countDown();
+      rateChecker.close();
+    }
+  }
+
+  @Test
+  public void shouldInterruptTimedOutCall() throws InterruptedException {
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    when(delegate.acquire("test", 1L, 4L, WINDOW)).thenAnswer(new Answer<AcquireResult>() {
+      @Override
+      public AcquireResult answer(final InvocationOnMock invocation) throws Throwable {
+        try {
+          new CountDownLatch(1).await();
+        }
+        catch (final InterruptedException exception) {
+          interrupted.countDown();
+        }
+        return AcquireResult.of(true);
+      }
+    });
+    final ResilientRateChecker rateChecker = rateChecker(FailureMode.REJECT, 50L);
+
+    try {
+      assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isFalse();
+      assertThat(interrupted.await(1L, TimeUnit.SECONDS)).isTrue();
+    }
+    finally {
+      rateChecker.close();
+    }
+  }
+
+  @Test
+  public void shouldFallBackAfterClose() {
+    final ResilientRateChecker rateChecker = rateChecker(FailureMode.ALLOW, 50L);
+    rateChecker.close();
+
+    assertThat(rateChecker.tryAcquire("test", 1L, 4L, WINDOW)).isTrue();
+    verify(delegate, never()).acquire("test", 1L, 4L, WINDOW);
+  }
+
+  @Test
+  public void shouldFallBackForEachWindowOfKeyChain() {
+    final KeyChainRateChecker chainDelegate = mock(KeyChainRateChecker.class);
+    final String[] keys = {"user", "user", "tenant"};
+    final long[] maxRequests = {2L, 10L, 4L};
+    final long[] windowsNanos = {WINDOW, 2 * WINDOW, WINDOW};
+    when(chainDelegate.acquire(keys, 1L, maxRequests, windowsNanos)).thenThrow(new IllegalStateException("down"));
+    final ResilientRateChecker rateChecker = new ResilientRateChecker(chainDelegate, FailureMode.LOCAL, 2, 0L, 1000L,
+        TimeUnit.MILLISECONDS, 10);
+
+    // share of this node of innermost window is 1 of 2
+    assertThat(rateChecker.acquire(keys, 1L, maxRequests, windowsNanos).allowed()).isTrue();
+    assertThat(rateChecker.acquire(keys, 1L, maxRequests, windowsNanos).allowed()).isFalse();
+    verify(chainDelegate, times(2)).acquire(keys, 1L, maxRequests, windowsNanos);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotWrapBucketChecker() {
+    new ResilientRateChecker(mock(BucketRateChecker.class), 2);
+  }
+
+  @Test
+  public void shouldCheckPlainDelegateOncePerPermit() {
+    final RateChecker plain = mock(RateChecker.class);
+    when(plain.check(eq("test"), eq(4L), any(OptionsInterval.class))).thenReturn(true, true, false);
+    final ResilientRateChecker rateChecker = new ResilientRateChecker(plain, FailureMode.REJECT, 2, 0L, 1000L, TimeUnit.MILLISECONDS, 2);
+
+    assertThat(rateChecker.tryAcquire("test", 2L, 4L, WINDOW)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 2L, 4L, WINDOW)).isFalse();
+    verify(plain, times(3)).check(eq("test"), eq(4L), any(OptionsInterval.class));
+  }
+
+}
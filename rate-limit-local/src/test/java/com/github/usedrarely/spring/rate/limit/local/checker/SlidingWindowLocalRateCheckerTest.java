@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.local.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static com.github.usedrarely.spring.rate.limit.local.checker.FixedWindowLocalRateCheckerTest.interval;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SlidingWindowLocalRateCheckerTest {
+
+  private long now = 0L;
+
+  private final SlidingWindowLocalRateChecker rateChecker = new SlidingWindowLocalRateChecker() {
+    @Override
+    protected long now() {
+      return now;
+    }
+  };
+
+  @Test
+  public void shouldAllowUnderLimitThenDeny() {
+    final OptionsInterval interval = interval(1L, TimeUnit.SECONDS);
+
+    for (int idx = 0; idx < 10; idx++) {
+      assertThat(rateChecker.check("test", 10L, interval)).isTrue();
+    }
+    assertThat(rateChecker.check("test", 10L, interval)).isFalse();
+  }
+
+  @Test
+  public void shouldWeightPreviousWindow() {
+    final OptionsInterval interval = interval(1L, TimeUnit.SECONDS);
+
+    for (int idx = 0; idx < 10; idx++) {
+      assertThat(rateChecker.check("test", 10L, interval)).isTrue();
+    }
+
+    // quarter into next window, previous window still counts as 7.5
+    now = TimeUnit.MILLISECONDS.toNanos(1250L);
+    for (int idx = 0; idx < 2; idx++) {
+      assertThat(rateChecker.check("test", 10L, interval)).isTrue();
+    }
+    assertThat(rateChecker.check("test", 10L, interval)).isFalse();
+  }
+
+  @Test
+  public void shouldReportRetryWhenPreviousWindowDecays() {
+    final long window = TimeUnit.SECONDS.toNanos(1L);
+
+    for (int idx = 0; idx < 10; idx++) {
+      assertThat(rateChecker.tryAcquire("test", 1L, 10L, window)).isTrue();
+    }
+
+    // previous window counts as 7.5, weight has to drop to 0.7
+    now = TimeUnit.MILLISECONDS.toNanos(1250L);
+    final AcquireResult result = rateChecker.acquire("test", 3L, 10L, window);
+    assertThat(result.allowed()).isFalse();
+    assertThat(result.remaining()).isEqualTo(2L);
+    assertThat(result.retryAfter()).isGreaterThanOrEqualTo(50L);
+    assertThat(result.retryAfter()).isLessThanOrEqualTo(51L);
+  }
+
+  @Test
+  public void shouldIgnoreOlderWindows() {
+    final OptionsInterval interval = interval(1L, TimeUnit.SECONDS);
+
+    for (int idx = 0; idx < 10; idx++) {
+      assertThat(rateChecker.check("test", 10L, interval)).isTrue();
+    }
+
+    now = TimeUnit.MILLISECONDS.toNanos(2500L);
+    for (int idx = 0; idx < 10; idx++) {
+      assertThat(rateChecker.check("test", 10L, interval)).isTrue();
+    }
+    assertThat(rateChecker.check("test", 10L, interval)).isFalse();
+  }
+
+}
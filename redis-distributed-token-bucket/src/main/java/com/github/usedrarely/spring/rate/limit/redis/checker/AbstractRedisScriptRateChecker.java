@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AbstractPermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireRequest;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Base for rate limit checkers that make limiting decision in single Lua script execution.
+ * <p/>
+ * Scripts are executed with {@code EVALSHA}, SHA1 digest is calculated once and cached by {@link DefaultRedisScript}.
+ * If script is not present in server script cache, execution falls back to {@code EVAL}, which loads the script for later calls.
+ * <p/>
+ * Arguments are always sent as strings, regardless of value serializer configured on {@link RedisOperations}.
+ * Scripts return decision together with remaining permits, reset time and retry time, see {@link AcquireResult}.
+ * <p/>
+ * Batches are executed in single pipeline on Jedis connections, one script execution per request.
+ * Keys of batch are serialized with key serializer of {@link RedisOperations}, the same as keys of single execution.
+ *
+ * @author franjozilic
+ */
+public abstract class AbstractRedisScriptRateChecker extends AbstractPermitRateChecker {
+
+  private static final RedisSerializer<String> ARGS_SERIALIZER = new StringRedisSerializer();
+
+  /**
+   * Scripts return only integers, which are not deserialized
+   */
+  @SuppressWarnings("rawtypes")
+  private static final RedisSerializer<List> RESULT_SERIALIZER = new GenericToStringSerializer<>(List.class);
+
+  private static final boolean JEDIS_PRESENT = ClassUtils.isPresent("redis.clients.jedis.Jedis", AbstractRedisScriptRateChecker.class.getClassLoader());
+
+  private final RedisOperations<String, String> redisOperations;
+
+  protected AbstractRedisScriptRateChecker(final RedisOperations<String, String> redisOperations) {
+    this.redisOperations = redisOperations;
+  }
+
+  /**
+   * Loads script from class path, relative to this package
+   *
+   * @param name script file name
+   * @return script returning array of integers
+   */
+  @SuppressWarnings("rawtypes")
+  protected static RedisScript<List> script(final String name) {
+    final DefaultRedisScript<List> script = new DefaultRedisScript<>();
+    script.setScriptSource(new ResourceScriptSource(new ClassPathResource(name, AbstractRedisScriptRateChecker.class)));
+    script.setResultType(List.class);
+    return script;
+  }
+
+  /**
+   * @return script making the decision
+   */
+  @SuppressWarnings("rawtypes")
+  protected abstract RedisScript<List> script();
+
+  /**
+   * @param permits     number of permits execution takes
+   * @param maxRequests maximum number of permits in window
+   * @param windowNanos window length in nanoseconds
+   * @return script arguments
+   */
+  protected abstract String[] arguments(long permits, long maxRequests, long windowNanos);
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    return execute(script(), key, arguments(permits, maxRequests, windowNanos));
+  }
+
+  /**
+   * Executes script once for every request in single pipeline, so whole batch takes one round trip.
+   * Pipeline is supported on Jedis connections, batch is executed one request at a time on other connections.
+   */
+  @Override
+  public List<AcquireResult> checkAll(final Collection<AcquireRequest> requests) {
+    if (requests.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final RedisSerializer<String> keySerializer = keySerializer();
+    final List<byte[][]> calls = new ArrayList<>(requests.size());
+    for (final AcquireRequest request : requests) {
+      final String[] args = arguments(request.permits(), request.maxRequests(), request.windowNanos());
+      final byte[][] call = new byte[args.length + 1][];
+      call[0] = keySerializer.serialize(request.key());
+      for (int idx = 0; idx < args.length; idx++) {
+        call[idx + 1] = ARGS_SERIALIZER.serialize(args[idx]);
+      }
+      calls.add(call);
+    }
+
+    @SuppressWarnings("rawtypes")
+    final RedisScript<List> script = script();
+    final List<AcquireResult> results = redisOperations.execute(new RedisCallback<List<AcquireResult>>() {
+      @Override
+      public List<AcquireResult> doInRedis(final RedisConnection connection) throws DataAccessException {
+        final Object nativeConnection = connection.getNativeConnection();
+        if (!JEDIS_PRESENT || !JedisScriptPipeline.supports(nativeConnection)) {
+          return null;
+        }
+        final List<Object> raw = JedisScriptPipeline.execute(nativeConnection, script.getSha1(), script.getScriptAsString(), calls);
+        final List<AcquireResult> results = new ArrayList<>(raw.size());
+        for (final Object result : raw) {
+          results.add(result instanceof List ? result((List<?>) result) : AcquireResult.of(false));
+        }
+        return results;
+      }
+    });
+    return results != null ? results : super.checkAll(requests);
+  }
+
+  @SuppressWarnings("unchecked")
+  private RedisSerializer<String> keySerializer() {
+    // template without key serializer uses keys as they are, strings are then sent as UTF-8
+    final RedisSerializer<?> keySerializer = redisOperations.getKeySerializer();
+    return keySerializer != null ? (RedisSerializer<String>) keySerializer : ARGS_SERIALIZER;
+  }
+
+  /**
+   * Executes script for single key
+   *
+   * @param script script to execute
+   * @param key    rate limiting key, passed as {@code KEYS[1]}
+   * @param args   script arguments
+   * @return script result, not allowed with unknown state when executed in pipeline or transaction
+   */
+  @SuppressWarnings("rawtypes")
+  protected AcquireResult execute(final RedisScript<List> script, final String key, final String... args) {
+    return execute(script, Collections.singletonList(key), args);
+  }
+
+  /**
+   * Executes script for several keys
+   *
+   * @param script script to execute
+   * @param keys   keys passed as {@code KEYS}
+   * @param args   script arguments
+   * @return script result, not allowed with unknown state when executed in pipeline or transaction
+   */
+  @SuppressWarnings("rawtypes")
+  protected AcquireResult execute(final RedisScript<List> script, final List<String> keys, final String... args) {
+    final List result = redisOperations.execute(script, ARGS_SERIALIZER, RESULT_SERIALIZER, keys, (Object[]) args);
+    return result(result);
+  }
+
+  /**
+   * Converts script result of {@code {allowed, remaining, reset after, retry after}}, also used by checkers of other Redis clients
+   *
+   * @param result script result
+   * @return acquire result, not allowed with unknown state for missing result
+   */
+  @SuppressWarnings("rawtypes")
+  public static AcquireResult result(final List result) {
+    if (result == null || result.size() < 4) {
+      return AcquireResult.of(false);
+    }
+
+    final long remaining = ((Number) result.get(1)).longValue();
+    final long reset = ((Number) result.get(2)).longValue();
+    if (((Number) result.get(0)).longValue() == 1L) {
+      return AcquireResult.allowed(remaining, reset);
+    }
+    // scripts return -1 for calls that can never be admitted
+    final long retry = ((Number) result.get(3)).longValue();
+    return AcquireResult.rejected(remaining, reset, retry < 0L ? AcquireResult.NEVER : retry);
+  }
+
+}
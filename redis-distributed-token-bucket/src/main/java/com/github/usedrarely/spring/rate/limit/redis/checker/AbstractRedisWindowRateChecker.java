@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.KeyChainRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.WindowKeys;
+import java.util.Arrays;
+import org.springframework.data.redis.core.RedisOperations;
+
+/**
+ * Base for script rate limit checkers with window limits, which check all windows of key in single script execution.
+ * <p/>
+ * Scripts take any number of windows, single window is checked the same way as several of them.
+ * Execution is admitted only when all windows admit it and rejected execution isn't counted in any window.
+ * The same scripts check chains of keys ({@link KeyChainRateChecker}), with all keys in Redis Cluster slot of outermost key.
+ *
+ * @author franjozilic
+ */
+public abstract class AbstractRedisWindowRateChecker extends AbstractRedisScriptRateChecker implements KeyChainRateChecker {
+
+  protected AbstractRedisWindowRateChecker(final RedisOperations<String, String> redisOperations) {
+    super(redisOperations);
+  }
+
+  /**
+   * @param permits      number of permits execution takes
+   * @param maxRequests  maximum number of permits in each window
+   * @param windowsNanos length of each window in nanoseconds
+   * @return script arguments
+   */
+  protected abstract String[] arguments(long permits, long[] maxRequests, long[] windowsNanos);
+
+  @Override
+  protected final String[] arguments(final long permits, final long maxRequests, final long windowNanos) {
+    return arguments(permits, new long[] {maxRequests}, new long[] {windowNanos});
+  }
+
+  /**
+   * @param key     rate limiting key
+   * @param windows number of windows
+   * @return script keys, by default one for each window, see {@link WindowKeys}
+   */
+  protected String[] keys(final String key, final int windows) {
+    return WindowKeys.keys(key, windows);
+  }
+
+  /**
+   * @param keys keys of chain, from innermost to outermost
+   * @return script keys, by default one for each window, see {@link WindowKeys#chainKeys(String[])}
+   */
+  protected String[] keys(final String[] keys) {
+    return WindowKeys.chainKeys(keys);
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    return execute(script(), Arrays.asList(keys(key, maxRequests.length)), arguments(permits, maxRequests, windowsNanos));
+  }
+
+  @Override
+  public AcquireResult acquire(final String[] keys, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    return execute(script(), Arrays.asList(keys(keys)), arguments(permits, maxRequests, windowsNanos));
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Rate limit checker implemented using Redis and Lua script, based on generic cell rate algorithm (GCRA).<br>
+ * Designed for use in distributed systems with no inter node synchronization.
+ * <p/>
+ * Calls are paced at sustained rate of one call every {@code interval / maxRequests} (emission interval),
+ * with burst of up to {@code maxRequests} calls allowed after idle period.
+ * Only state per key is theoretical arrival time of next call, stored as single string value.
+ * <p/>
+ * Rejected calls don't change state, so retrying with {@link com.github.usedrarely.spring.rate.limit.RateLimitedRetry} works as with other checkers.
+ * Time until permits are available is {@link AcquireResult#retryAfter()} of {@link #acquire(String, long, long, long)}.
+ *
+ * @author franjozilic
+ */
+public class GcraRedisRateChecker extends AbstractRedisWindowRateChecker {
+
+  @SuppressWarnings("rawtypes")
+  private static final RedisScript<List> SCRIPT = script("gcra.lua");
+
+  public GcraRedisRateChecker(final RedisOperations<String, String> redisOperations) {
+    super(redisOperations);
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  protected RedisScript<List> script() {
+    return SCRIPT;
+  }
+
+  @Override
+  protected String[] arguments(final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    final String[] args = new String[2 + maxRequests.length * 2];
+    args[0] = Long.toString(permits);
+    args[1] = Long.toString(System.currentTimeMillis());
+    for (int idx = 0; idx < maxRequests.length; idx++) {
+      final long period = TimeUnit.NANOSECONDS.toMicros(windowsNanos[idx]);
+      final long emission = Math.max(1L, period / maxRequests[idx]);
+      args[2 + idx * 2] = Long.toString(emission);
+      args[3 + idx * 2] = Long.toString(period - emission);
+    }
+    return args;
+  }
+
+}
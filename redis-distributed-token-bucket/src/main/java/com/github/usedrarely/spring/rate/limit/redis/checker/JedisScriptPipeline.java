@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.data.redis.connection.jedis.JedisConverters;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Executes script many times in single Jedis pipeline.
+ * <p/>
+ * Spring Data Redis doesn't pipeline scripts on Jedis connections, so native connection is used.
+ * Jedis exceptions are translated to {@link org.springframework.dao.DataAccessException}, as they are by Spring Data Redis.
+ * Loaded only when Jedis is on class path.
+ *
+ * @author franjozilic
+ */
+final class JedisScriptPipeline {
+
+  private JedisScriptPipeline() {
+  }
+
+  static boolean supports(final Object nativeConnection) {
+    return nativeConnection instanceof Jedis;
+  }
+
+  /**
+   * @param nativeConnection Jedis connection
+   * @param sha              script digest
+   * @param source           script source, loaded if script is not in server script cache
+   * @param calls            serialized key followed by serialized arguments, for each execution
+   * @return result of each execution
+   */
+  static List<Object> execute(final Object nativeConnection, final String sha, final String source, final List<byte[][]> calls) {
+    final Jedis jedis = (Jedis) nativeConnection;
+    try {
+      try {
+        return pipeline(jedis, sha, calls);
+      }
+      catch (final JedisDataException exception) {
+        if (exception.getMessage() == null || !exception.getMessage().startsWith("NOSCRIPT")) {
+          throw exception;
+        }
+        // script was not executed for any call, load it and repeat
+        jedis.scriptLoad(source);
+        return pipeline(jedis, sha, calls);
+      }
+    }
+    catch (final JedisException exception) {
+      throw JedisConverters.toDataAccessException(exception);
+    }
+  }
+
+  private static List<Object> pipeline(final Jedis jedis, final String sha, final List<byte[][]> calls) {
+    final byte[] digest = SafeEncoder.encode(sha);
+    final Pipeline pipeline = jedis.pipelined();
+    final List<Response<Object>> responses = new ArrayList<>(calls.size());
+    for (final byte[][] call : calls) {
+      // binary variant returns raw reply, string variant expects bulk reply
+      responses.add(pipeline.evalsha(digest, 1, call));
+    }
+    pipeline.sync();
+
+    final List<Object> results = new ArrayList<>(responses.size());
+    for (final Response<Object> response : responses) {
+      results.add(response.get());
+    }
+    return results;
+  }
+
+}
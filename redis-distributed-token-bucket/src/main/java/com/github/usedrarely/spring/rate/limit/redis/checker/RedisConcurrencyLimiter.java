@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLease;
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLimiter;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+/**
+ * Concurrency limiter implemented using Redis and Lua script.<br>
+ * Designed for use in distributed systems with no inter node synchronization.
+ * <p/>
+ * Leases of running executions of each key are kept in sorted set scored by time when lease expires.
+ * Expired leases are removed before slots are counted, so slots of nodes that crashed before releasing their leases are freed
+ * once leases expire. Lease is released by removing it from the set.
+ * <p/>
+ * Set of key is stored under {@code key + ":leases"}, so it never collides with state of rate checkers of the same key.
+ * <p/>
+ * Leases are not renewed, lease of execution running longer then lease interval expires and its slot can be taken by another execution.
+ * Failure to release lease is logged, slot is then freed when lease expires.
+ *
+ * @author franjozilic
+ */
+public class RedisConcurrencyLimiter implements ConcurrencyLimiter {
+
+  private static final Logger log = LoggerFactory.getLogger(RedisConcurrencyLimiter.class);
+
+  private static final RedisSerializer<String> ARGS_SERIALIZER = new StringRedisSerializer();
+
+  private static final RedisSerializer<Long> RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+  private static final RedisScript<Long> SCRIPT = script("concurrency.lua");
+
+  private final RedisOperations<String, String> redisOperations;
+
+  public RedisConcurrencyLimiter(final RedisOperations<String, String> redisOperations) {
+    this.redisOperations = redisOperations;
+  }
+
+  private static RedisScript<Long> script(final String name) {
+    final DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+    script.setScriptSource(new ResourceScriptSource(new ClassPathResource(name, RedisConcurrencyLimiter.class)));
+    script.setResultType(Long.class);
+    return script;
+  }
+
+  @Override
+  public ConcurrencyLease tryAcquire(final String key, final long maxConcurrent, final long leaseNanos) {
+    final String leasesKey = key + ":leases";
+    final String id = UUID.randomUUID().toString();
+    final long leaseMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(leaseNanos));
+
+    final Long taken = redisOperations.execute(SCRIPT, ARGS_SERIALIZER, RESULT_SERIALIZER, Collections.singletonList(leasesKey),
+        Long.toString(maxConcurrent), Long.toString(leaseMillis), id, Long.toString(System.currentTimeMillis()));
+    return taken != null && taken == 1L ? new Lease(leasesKey, id) : null;
+  }
+
+  private final class Lease implements ConcurrencyLease {
+
+    private final String leasesKey;
+
+    private final String id;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Lease(final String leasesKey, final String id) {
+      this.leasesKey = leasesKey;
+      this.id = id;
+    }
+
+    @Override
+    public void release() {
+      if (!released.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        redisOperations.execute(new RedisCallback<Object>() {
+          @Override
+          @SuppressWarnings("unchecked")
+          public Object doInRedis(final RedisConnection connection) throws DataAccessException {
+            final RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisOperations.getKeySerializer();
+            return connection.zRem(keySerializer.serialize(leasesKey), ARGS_SERIALIZER.serialize(id));
+          }
+        });
+      }
+      catch (final RuntimeException exception) {
+        // lease expires on its own, execution must not fail because of it
+        log.warn("Concurrency lease {} of {} was not released, slot is freed when lease expires", id, leasesKey, exception);
+      }
+    }
+
+  }
+
+}
@@ -17,14 +17,20 @@
 
 package com.github.usedrarely.spring.rate.limit.redis.checker;
 
-import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.AbstractPermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.NanosInterval;
 import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.util.CollectionUtils;
 
 /**
@@ -36,10 +42,13 @@ import org.springframework.util.CollectionUtils;
  * <p/>
  * There is a possible race condition, but only downside is that some executions will be blocked.
  * Use retrying strategy to mitigate.
+ * See {@link SlidingLogRedisRateChecker} for same algorithm executed atomically on server.
+ * <p/>
+ * Execution that takes more permits adds one log entry for each of them with single command, and removes all of them when rejected.
  *
  * @author franjozilic
  */
-public class RedisRateChecker implements RateChecker {
+public class RedisRateChecker extends AbstractPermitRateChecker {
 
   protected static class Callback implements SessionCallback<Boolean> {
 
@@ -51,36 +60,51 @@ public class RedisRateChecker implements RateChecker {
 
     private final String requestId;
 
+    private final long permits;
+
     public Callback(final String key, final Long maxRequests, final OptionsInterval interval) {
       this.key = key;
       this.maxRequests = maxRequests;
       this.interval = interval;
       this.requestId = UUID.randomUUID().toString();
+      this.permits = 1L;
     }
 
     public Callback(final String key, final String requestId, final Long maxRequests, final OptionsInterval interval) {
+      this(key, requestId, 1L, maxRequests, interval);
+    }
+
+    public Callback(final String key, final String requestId, final long permits, final Long maxRequests, final OptionsInterval interval) {
       this.key = key;
       this.maxRequests = maxRequests;
       this.interval = interval;
       this.requestId = requestId;
+      this.permits = permits;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <K, V> Boolean execute(final RedisOperations<K, V> redisOperations) throws DataAccessException {
-      return executeInternal((RedisOperations<String, String>) redisOperations);
+      return acquire((RedisOperations<String, String>) redisOperations).allowed();
     }
 
-    private Boolean executeInternal(final RedisOperations<String, String> redisOperations) {
+    private AcquireResult acquire(final RedisOperations<String, String> redisOperations) {
       redisOperations.multi();
       final long milliseconds = System.currentTimeMillis();
       final String callKey = requestId.concat("-").concat(Long.toString(milliseconds));
+      final long windowMillis = TimeUnit.MILLISECONDS.convert(interval.interval(), interval.unit());
 
       // remove any older then one interval
-      redisOperations.opsForZSet().removeRangeByScore(key, Double.MIN_VALUE, milliseconds - TimeUnit.MILLISECONDS.convert(interval.interval(), interval.unit()));
+      redisOperations.opsForZSet().removeRangeByScore(key, Double.MIN_VALUE, milliseconds - windowMillis);
 
-      // add current request (milliseconds should be sufficient, but add UUID)
-      redisOperations.opsForZSet().add(key, callKey, milliseconds);
+      // add current request (milliseconds should be sufficient, but add UUID), one entry for each permit in single command
+      final Object[] permitKeys = permitKeys(callKey);
+      if (permitKeys.length == 1) {
+        redisOperations.opsForZSet().add(key, (String) permitKeys[0], milliseconds);
+      }
+      else {
+        addAll(redisOperations, permitKeys, milliseconds);
+      }
 
       // set expire for entire set, save memory
       redisOperations.expire(key, interval.interval(), interval.unit());
@@ -92,22 +116,60 @@ public class RedisRateChecker implements RateChecker {
 
       // we made four calls during MULTI, expect that result size
       // last result hast be count and Long
-      if (CollectionUtils.isEmpty(result) || result.size() != 4 || !(result.get(3) instanceof Long)) {
-        return false;
+      final int size = 4;
+      if (CollectionUtils.isEmpty(result) || result.size() != size || !(result.get(size - 1) instanceof Long)) {
+        return AcquireResult.of(false);
       }
-      final Long count = (Long) result.get(3);
+      final Long count = (Long) result.get(size - 1);
 
       // more then we can handle, remove ours, call never happened
       // possible race condition here
       // another request might get blocked as well
       // this is better then blocking every other request if burst is too large
       if (count > maxRequests) {
-        redisOperations.opsForZSet().remove(key, callKey);
-        return false;
+        redisOperations.opsForZSet().remove(key, permitKeys);
+        // oldest entry is not known, so neither is time when enough of them expire
+        return AcquireResult.rejected(Math.max(0L, maxRequests - (count - permitKeys.length)), windowMillis, AcquireResult.UNKNOWN);
       }
 
-      // limit has not been reached
-      return true;
+      // limit has not been reached, window is fully reset when entry of this call expires
+      return AcquireResult.allowed(Math.max(0L, maxRequests - count), windowMillis);
+    }
+
+    /**
+     * Variadic ZADD, template only sends it outside of transaction
+     */
+    @SuppressWarnings("unchecked")
+    private void addAll(final RedisOperations<String, String> redisOperations, final Object[] permitKeys, final long milliseconds) {
+      final RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisOperations.getKeySerializer();
+      final RedisSerializer<String> valueSerializer = (RedisSerializer<String>) redisOperations.getValueSerializer();
+      final byte[] score = Long.toString(milliseconds).getBytes(StandardCharsets.UTF_8);
+      final byte[][] args = new byte[1 + 2 * permitKeys.length][];
+      args[0] = keySerializer.serialize(key);
+      for (int idx = 0; idx < permitKeys.length; idx++) {
+        args[1 + 2 * idx] = score;
+        args[2 + 2 * idx] = valueSerializer.serialize((String) permitKeys[idx]);
+      }
+      redisOperations.execute(new RedisCallback<Object>() {
+        @Override
+        public Object doInRedis(final RedisConnection connection) throws DataAccessException {
+          return connection.execute("ZADD", args);
+        }
+      });
+    }
+
+    /**
+     * Log entries of call, single permit is logged as call key
+     */
+    private Object[] permitKeys(final String callKey) {
+      if (permits == 1L) {
+        return new Object[] {callKey};
+      }
+      final Object[] permitKeys = new Object[(int) permits];
+      for (int permit = 0; permit < permitKeys.length; permit++) {
+        permitKeys[permit] = callKey.concat("-").concat(Integer.toString(permit));
+      }
+      return permitKeys;
     }
   }
 
@@ -119,7 +181,34 @@ public class RedisRateChecker implements RateChecker {
 
   @Override
   public boolean check(final String key, final Long maxRequests, final OptionsInterval interval) {
-    final Boolean execute = redisOperations.execute(new Callback(key, maxRequests, interval));
+    return execute(new Callback(key, maxRequests, interval));
+  }
+
+  /**
+   * Remaining permits are counted in the same transaction as execution, window is fully reset when its entries expire.
+   * Wait time of rejected execution is not known.
+   * <p/>
+   * Execution taking more permits then limit is rejected without calling Redis.
+   */
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    // log can't hold more entries for single call then array can
+    if (permits > maxRequests || permits > Integer.MAX_VALUE) {
+      return AcquireResult.rejected(AcquireResult.UNKNOWN, AcquireResult.UNKNOWN, AcquireResult.NEVER);
+    }
+    final Callback callback = new Callback(key, UUID.randomUUID().toString(), permits, maxRequests, NanosInterval.of(windowNanos));
+    final AcquireResult result = redisOperations.execute(new SessionCallback<AcquireResult>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <K, V> AcquireResult execute(final RedisOperations<K, V> operations) throws DataAccessException {
+        return callback.acquire((RedisOperations<String, String>) operations);
+      }
+    });
+    return result != null ? result : AcquireResult.of(false);
+  }
+
+  private boolean execute(final Callback callback) {
+    final Boolean execute = redisOperations.execute(callback);
     if (execute == null) {
       return false;
     }
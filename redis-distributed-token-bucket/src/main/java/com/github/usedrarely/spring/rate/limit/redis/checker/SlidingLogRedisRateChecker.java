@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.WindowKeys;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Rate limit checker implemented using Redis and Lua script.<br>
+ * Designed for use in distributed systems with no inter node synchronization.
+ * <p/>
+ * Uses the same sliding log algorithm as {@link RedisRateChecker}, but the whole decision is made on server in single script execution.
+ * Rejected calls are never written to the log, so there is no follow-up removal and no race between concurrent callers.
+ * <p/>
+ * Server time ({@code TIME} command) is used when server supports effects replication (Redis 3.2 and later),
+ * so clocks of application nodes don't have to be synchronized. Older servers use time of calling node.
+ * <p/>
+ * Log keeps one entry per admitted call in the longest interval, see {@link SlidingWindowRedisRateChecker} for constant memory alternative.
+ *
+ * @author franjozilic
+ */
+public class SlidingLogRedisRateChecker extends AbstractRedisWindowRateChecker {
+
+  @SuppressWarnings("rawtypes")
+  private static final RedisScript<List> SCRIPT = script("sliding-log.lua");
+
+  public SlidingLogRedisRateChecker(final RedisOperations<String, String> redisOperations) {
+    super(redisOperations);
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  protected RedisScript<List> script() {
+    return SCRIPT;
+  }
+
+  @Override
+  protected String[] arguments(final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    final String[] args = new String[3 + maxRequests.length * 2];
+    args[0] = Long.toString(permits);
+    args[1] = Long.toString(System.currentTimeMillis());
+    args[2] = UUID.randomUUID().toString();
+    for (int idx = 0; idx < maxRequests.length; idx++) {
+      args[3 + idx * 2] = Long.toString(maxRequests[idx]);
+      args[4 + idx * 2] = Long.toString(TimeUnit.NANOSECONDS.toMillis(windowsNanos[idx]));
+    }
+    return args;
+  }
+
+  /**
+   * All windows of key are counted in single log, kept for the longest window
+   */
+  @Override
+  protected String[] keys(final String key, final int windows) {
+    final String[] keys = new String[windows];
+    Arrays.fill(keys, key);
+    return keys;
+  }
+
+  /**
+   * Each key of chain has single log for all of its windows
+   */
+  @Override
+  protected String[] keys(final String[] keys) {
+    return WindowKeys.sameSlot(keys);
+  }
+
+}
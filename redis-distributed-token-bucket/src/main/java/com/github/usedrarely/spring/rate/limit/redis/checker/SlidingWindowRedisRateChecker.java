@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.PermitReleasingRateChecker;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Rate limit checker implemented using Redis and Lua script, based on sliding window counter.<br>
+ * Designed for use in distributed systems with no inter node synchronization.
+ * <p/>
+ * Sliding window is approximated with two fixed windows, count of previous window is weighted by the part of it still covered by sliding window.
+ * Each window is single hash with two counters and window index, so memory use doesn't depend on maximum number of requests.
+ * <p/>
+ * Approximation assumes calls in previous window were evenly distributed,
+ * use {@link SlidingLogRedisRateChecker} when exact limit is required.
+ * <p/>
+ * Unused permits can be returned to current window with {@link #release(String, long, long, long)}.
+ *
+ * @author franjozilic
+ */
+public class SlidingWindowRedisRateChecker extends AbstractRedisWindowRateChecker implements PermitReleasingRateChecker {
+
+  @SuppressWarnings("rawtypes")
+  private static final RedisScript<List> SCRIPT = script("sliding-window.lua");
+
+  @SuppressWarnings("rawtypes")
+  private static final RedisScript<List> RELEASE_SCRIPT = script("sliding-window-release.lua");
+
+  public SlidingWindowRedisRateChecker(final RedisOperations<String, String> redisOperations) {
+    super(redisOperations);
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  protected RedisScript<List> script() {
+    return SCRIPT;
+  }
+
+  @Override
+  protected String[] arguments(final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    final String[] args = new String[2 + maxRequests.length * 2];
+    args[0] = Long.toString(permits);
+    args[1] = Long.toString(System.currentTimeMillis());
+    for (int idx = 0; idx < maxRequests.length; idx++) {
+      args[2 + idx * 2] = Long.toString(maxRequests[idx]);
+      args[3 + idx * 2] = Long.toString(TimeUnit.NANOSECONDS.toMillis(windowsNanos[idx]));
+    }
+    return args;
+  }
+
+  @Override
+  public AcquireResult release(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    return execute(RELEASE_SCRIPT, key, arguments(permits, maxRequests, windowNanos));
+  }
+
+}
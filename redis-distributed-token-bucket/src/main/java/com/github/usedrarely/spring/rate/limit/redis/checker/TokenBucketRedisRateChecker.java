@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.BucketRateChecker;
+import com.github.usedrarely.spring.rate.limit.options.OptionsBucket;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Rate limit checker implemented using Redis and Lua script, based on token bucket.<br>
+ * Designed for use in distributed systems with no inter node synchronization.
+ * <p/>
+ * Bucket capacity limits burst size, while refill sets sustained rate, see {@link OptionsBucket}.
+ * Each key is single hash with number of tokens and time of last refill.
+ * Bucket is refilled lazily on each call, and expires once it would be full again.
+ * <p/>
+ * When checked without bucket configuration, bucket has capacity of {@code maxRequests} and is refilled with {@code maxRequests} tokens every {@code interval}.
+ *
+ * @author franjozilic
+ */
+public class TokenBucketRedisRateChecker extends AbstractRedisScriptRateChecker implements BucketRateChecker {
+
+  @SuppressWarnings("rawtypes")
+  private static final RedisScript<List> SCRIPT = script("token-bucket.lua");
+
+  public TokenBucketRedisRateChecker(final RedisOperations<String, String> redisOperations) {
+    super(redisOperations);
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  protected RedisScript<List> script() {
+    return SCRIPT;
+  }
+
+  @Override
+  protected String[] arguments(final long permits, final long maxRequests, final long windowNanos) {
+    return arguments(permits, maxRequests, maxRequests, TimeUnit.NANOSECONDS.toMillis(windowNanos));
+  }
+
+  @Override
+  public boolean check(final String key, final OptionsBucket bucket) {
+    return acquire(key, bucket).allowed();
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final OptionsBucket bucket) {
+    return acquire(key, 1L, bucket);
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final OptionsBucket bucket) {
+    final OptionsInterval refillInterval = bucket.refillInterval();
+    return execute(SCRIPT, key, arguments(permits, bucket.capacity(), bucket.refillTokens(), refillInterval.unit().toMillis(refillInterval.interval())));
+  }
+
+  private static String[] arguments(final long permits, final long capacity, final long refillTokens, final long refillIntervalMillis) {
+    return new String[] {
+        Long.toString(capacity),
+        Long.toString(refillTokens),
+        Long.toString(refillIntervalMillis),
+        Long.toString(permits),
+        Long.toString(System.currentTimeMillis())};
+  }
+
+}
@@ -0,0 +1,38 @@
+--
+-- Concurrency limiter.
+--
+-- Leases of running executions are kept in sorted set scored by time when they expire,
+-- so leases that are never released, for example by crashed node, free their slots once they expire.
+--
+-- KEYS[1] - sorted set of leases, member is lease id, score is expiry time in milliseconds
+-- ARGV[1] - maximum number of running executions
+-- ARGV[2] - lease length in milliseconds
+-- ARGV[3] - id of new lease
+-- ARGV[4] - caller time in milliseconds, used only when server time can't be used
+--
+-- Returns 1 if lease is taken, 0 if all slots are taken.
+--
+
+local limit = tonumber(ARGV[1])
+local lease = tonumber(ARGV[2])
+
+-- server time is only allowed before writes when effects are replicated (Redis 3.2+)
+local now
+if redis.replicate_commands ~= nil and redis.replicate_commands() then
+  local time = redis.call('TIME')
+  now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+else
+  now = tonumber(ARGV[4])
+end
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now)
+if redis.call('ZCARD', KEYS[1]) >= limit then
+  return 0
+end
+
+redis.call('ZADD', KEYS[1], now + lease, ARGV[3])
+-- set lives as long as its longest lease
+if redis.call('PTTL', KEYS[1]) < lease then
+  redis.call('PEXPIRE', KEYS[1], lease)
+end
+return 1
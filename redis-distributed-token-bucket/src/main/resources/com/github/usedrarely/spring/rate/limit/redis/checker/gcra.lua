@@ -0,0 +1,81 @@
+--
+-- Generic cell rate algorithm (GCRA) rate limiter.
+--
+-- Only state of each window is theoretical arrival time (TAT) of next call, stored as single value in microseconds.
+-- Call is admitted if it doesn't arrive earlier then TAT minus burst tolerance.
+--
+-- KEYS[i] - rate limiting key of i-th window, theoretical arrival time in microseconds
+-- ARGV[1] - number of permits call takes, TAT advances by emission interval for each
+-- ARGV[2] - caller time in milliseconds, used only when server time can't be used
+-- ARGV[2i + 1] - emission interval of i-th window in microseconds, time between two calls at sustained rate
+-- ARGV[2i + 2] - burst tolerance of i-th window in microseconds, how much earlier then TAT call may arrive
+--
+-- Call is admitted only if all windows admit it, rejected calls don't change any window.
+-- Returns array of: 1 if call is admitted, 0 otherwise; number of remaining permits;
+-- milliseconds until limit is fully available; milliseconds until call can be admitted (0 if admitted, -1 if never).
+-- With more windows, the lowest remaining and the longest reset and retry of all windows are returned.
+--
+
+local permits = tonumber(ARGV[1])
+
+-- server time is only allowed before writes when effects are replicated (Redis 3.2+)
+local now
+if redis.replicate_commands ~= nil and redis.replicate_commands() then
+  local time = redis.call('TIME')
+  now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+else
+  now = tonumber(ARGV[2]) * 1000
+end
+
+local admitted = true
+local remaining, reset, retry
+-- state after call, used only if all windows admit it
+local remainingAfter, resetAfter
+local tats = {}
+
+for idx, key in ipairs(KEYS) do
+  local emission = tonumber(ARGV[idx * 2 + 1])
+  local tolerance = tonumber(ARGV[idx * 2 + 2])
+
+  local tat = tonumber(redis.call('GET', key)) or now
+  if tat < now then
+    tat = now
+  end
+
+  local left = math.max(0, math.floor((now + tolerance - tat) / emission) + 1)
+  remaining = math.min(remaining or left, left)
+  reset = math.max(reset or 0, math.ceil((tat - now) / 1000))
+
+  -- single permit may arrive tolerance before TAT, each additional one emission interval later
+  local allowAt = tat + (permits - 1) * emission - tolerance
+  if now < allowAt then
+    admitted = false
+    local wait = math.max(1, math.ceil((allowAt - now) / 1000))
+    -- more permits then burst can never be admitted
+    if (permits - 1) * emission > tolerance then
+      wait = -1
+    end
+    if wait < 0 or (retry or 0) < 0 then
+      retry = -1
+    else
+      retry = math.max(retry or 0, wait)
+    end
+  else
+    tat = tat + permits * emission
+    tats[idx] = tat
+    left = math.max(0, math.floor((now + tolerance - tat) / emission) + 1)
+    remainingAfter = math.min(remainingAfter or left, left)
+    resetAfter = math.max(resetAfter or 0, math.ceil((tat - now) / 1000))
+  end
+end
+
+if not admitted then
+  return {0, remaining, reset, retry}
+end
+
+for idx, key in ipairs(KEYS) do
+  -- format, default number conversion is not precise enough for microseconds
+  redis.call('SET', key, string.format('%.0f', tats[idx]), 'PX', math.ceil((tats[idx] - now) / 1000))
+end
+
+return {1, remainingAfter, resetAfter, 0}
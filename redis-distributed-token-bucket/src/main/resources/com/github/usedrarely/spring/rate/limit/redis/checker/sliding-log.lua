@@ -0,0 +1,91 @@
+--
+-- Sliding log rate limiter.
+--
+-- KEYS[i] - log of i-th window, sorted set of admitted calls scored by call time in milliseconds
+-- ARGV[1] - number of permits call takes, one log entry each
+-- ARGV[2] - caller time in milliseconds, used only when server time can't be used
+-- ARGV[3] - unique request id, used as member prefix
+-- ARGV[2i + 2] - maximum number of requests in i-th window
+-- ARGV[2i + 3] - length of i-th window in milliseconds
+--
+-- Windows with the same key are counted in the same log, which keeps calls of the longest of them.
+-- Returns array of: 1 if call is admitted, 0 otherwise; number of remaining permits;
+-- milliseconds until limit is fully available; milliseconds until call can be admitted (0 if admitted, -1 if never).
+-- With more windows, the lowest remaining and the longest reset and retry of all windows are returned.
+-- Rejected calls are never recorded, so they don't consume the limit.
+--
+
+local permits = tonumber(ARGV[1])
+local windows = #KEYS
+
+-- server time is only allowed before writes when effects are replicated (Redis 3.2+)
+local now
+if redis.replicate_commands ~= nil and redis.replicate_commands() then
+  local time = redis.call('TIME')
+  now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+else
+  now = tonumber(ARGV[2])
+end
+
+local longest = {}
+local longestAll = 0
+for idx = 1, windows do
+  local window = tonumber(ARGV[idx * 2 + 3])
+  longest[KEYS[idx]] = math.max(longest[KEYS[idx]] or 0, window)
+  longestAll = math.max(longestAll, window)
+end
+
+-- remove any older then the longest window of each log
+local newest = {}
+for key, window in pairs(longest) do
+  redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+  newest[key] = tonumber(redis.call('ZRANGE', key, -1, -1, 'WITHSCORES')[2])
+end
+
+local admitted = true
+local available
+local reset = 0
+local retry = 0
+
+for idx = 1, windows do
+  local key = KEYS[idx]
+  local limit = tonumber(ARGV[idx * 2 + 2])
+  local window = tonumber(ARGV[idx * 2 + 3])
+  local start = '(' .. string.format('%.0f', now - window)
+
+  local count = redis.call('ZCOUNT', key, start, '+inf')
+  if available == nil or limit - count < available then
+    available = limit - count
+  end
+
+  if count + permits > limit then
+    admitted = false
+    local wait = -1
+    if permits <= limit then
+      -- call fits once enough oldest entries of window leave it
+      local entry = redis.call('ZRANGEBYSCORE', key, start, '+inf', 'WITHSCORES', 'LIMIT', count + permits - limit - 1, 1)
+      wait = math.max(1, tonumber(entry[2]) + window - now)
+    end
+    if wait < 0 or retry < 0 then
+      retry = -1
+    else
+      retry = math.max(retry, wait)
+    end
+  end
+  if count > 0 then
+    reset = math.max(reset, newest[key] + window - now)
+  end
+end
+
+if not admitted then
+  return {0, math.max(0, available), reset, retry}
+end
+
+for key, window in pairs(longest) do
+  for idx = 1, permits do
+    redis.call('ZADD', key, now, ARGV[3] .. '-' .. now .. '-' .. idx)
+  end
+  redis.call('PEXPIRE', key, window)
+end
+
+return {1, available - permits, longestAll, 0}
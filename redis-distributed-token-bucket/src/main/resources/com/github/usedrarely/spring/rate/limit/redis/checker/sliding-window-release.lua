@@ -0,0 +1,48 @@
+--
+-- Returns unused permits to sliding window counter, see sliding-window.lua.
+--
+-- Permits are taken off count of current window only, permits counted in window that already passed stay counted.
+--
+-- KEYS[1] - rate limiting key, hash with fields w (current window index), c (current window count) and p (previous window count)
+-- ARGV[1] - number of returned permits
+-- ARGV[2] - caller time in milliseconds, used only when server time can't be used
+-- ARGV[3] - maximum number of requests in window
+-- ARGV[4] - length of window in milliseconds
+--
+-- Returns array of: 1; number of remaining permits; milliseconds until limit is fully available; 0.
+--
+
+local permits = tonumber(ARGV[1])
+
+-- server time is only allowed before writes when effects are replicated (Redis 3.2+)
+local now
+if redis.replicate_commands ~= nil and redis.replicate_commands() then
+  local time = redis.call('TIME')
+  now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+else
+  now = tonumber(ARGV[2])
+end
+
+local limit = tonumber(ARGV[3])
+local window = tonumber(ARGV[4])
+local current = math.floor(now / window)
+
+local state = redis.call('HMGET', KEYS[1], 'w', 'c', 'p')
+local stored = tonumber(state[1])
+local count = tonumber(state[2]) or 0
+local previous = tonumber(state[3]) or 0
+
+if stored == current then
+  count = math.max(0, count - permits)
+  redis.call('HSET', KEYS[1], 'c', count)
+elseif stored == current - 1 then
+  previous = count
+  count = 0
+else
+  previous = 0
+  count = 0
+end
+
+local elapsed = now - current * window
+local weight = (window - elapsed) / window
+return {1, math.max(0, math.floor(limit - previous * weight - count)), window * 2 - elapsed, 0}
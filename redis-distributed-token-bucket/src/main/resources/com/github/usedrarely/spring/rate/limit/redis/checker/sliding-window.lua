@@ -0,0 +1,103 @@
+--
+-- Sliding window counter rate limiter.
+--
+-- Approximates sliding window with two fixed windows, previous window count is weighted by its overlap with sliding window.
+-- State of each window is kept in single hash, so memory use is constant regardless of limit.
+--
+-- KEYS[i] - rate limiting key of i-th window, hash with fields w (current window index), c (current window count) and p (previous window count)
+-- ARGV[1] - number of permits call takes
+-- ARGV[2] - caller time in milliseconds, used only when server time can't be used
+-- ARGV[2i + 1] - maximum number of requests in i-th window
+-- ARGV[2i + 2] - length of i-th window in milliseconds
+--
+-- Call is admitted only if all windows admit it, rejected calls are not counted in any window.
+-- Returns array of: 1 if call is admitted, 0 otherwise; number of remaining permits;
+-- milliseconds until limit is fully available; milliseconds until call can be admitted (0 if admitted, -1 if never).
+-- With more windows, the lowest remaining and the longest reset and retry of all windows are returned.
+--
+
+local permits = tonumber(ARGV[1])
+
+-- server time is only allowed before writes when effects are replicated (Redis 3.2+)
+local now
+if redis.replicate_commands ~= nil and redis.replicate_commands() then
+  local time = redis.call('TIME')
+  now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+else
+  now = tonumber(ARGV[2])
+end
+
+local admitted = true
+local available
+local reset = 0
+local retry = 0
+local updates = {}
+
+for idx, key in ipairs(KEYS) do
+  local limit = tonumber(ARGV[idx * 2 + 1])
+  local window = tonumber(ARGV[idx * 2 + 2])
+  local current = math.floor(now / window)
+
+  local state = redis.call('HMGET', key, 'w', 'c', 'p')
+  local stored = tonumber(state[1])
+  local count = tonumber(state[2]) or 0
+  local previous = tonumber(state[3]) or 0
+
+  -- roll windows, anything older then previous window doesn't count
+  if stored ~= current then
+    if stored == current - 1 then
+      previous = count
+    else
+      previous = 0
+    end
+    count = 0
+  end
+
+  local elapsed = now - current * window
+  local weight = (window - elapsed) / window
+  -- all counted calls are out of sliding window once current window passes
+  reset = math.max(reset, window * 2 - elapsed)
+
+  local left = math.floor(limit - previous * weight - count)
+  if available == nil or left < available then
+    available = left
+  end
+
+  if previous * weight + count + permits > limit then
+    admitted = false
+    local wait = -1
+    if permits <= limit then
+      if count + permits <= limit then
+        -- weight of previous window drops enough within current window
+        wait = math.ceil((1 - (limit - count - permits) / previous) * window) - elapsed
+      else
+        -- current window becomes previous one
+        local needed = 1
+        if count > 0 then
+          needed = math.min(1, (limit - permits) / count)
+        end
+        wait = window - elapsed + math.ceil((1 - needed) * window)
+      end
+      wait = math.max(1, wait)
+    end
+    if wait < 0 or retry < 0 then
+      retry = -1
+    else
+      retry = math.max(retry, wait)
+    end
+  else
+    updates[idx] = {current, count + permits, previous, window * 2}
+  end
+end
+
+if not admitted then
+  return {0, math.max(0, available), reset, retry}
+end
+
+for idx, key in ipairs(KEYS) do
+  local update = updates[idx]
+  redis.call('HMSET', key, 'w', update[1], 'c', update[2], 'p', update[3])
+  redis.call('PEXPIRE', key, update[4])
+end
+
+return {1, math.max(0, available - permits), reset, 0}
@@ -0,0 +1,63 @@
+--
+-- Token bucket rate limiter.
+--
+-- Bucket is refilled lazily, tokens added since last refill are calculated on each call.
+-- State is kept in single hash, so memory use is constant regardless of capacity.
+--
+-- KEYS[1] - rate limiting key, hash with fields t (tokens) and r (time of last refill in milliseconds)
+-- ARGV[1] - bucket capacity
+-- ARGV[2] - number of tokens added every refill interval
+-- ARGV[3] - refill interval in milliseconds
+-- ARGV[4] - number of tokens call takes
+-- ARGV[5] - caller time in milliseconds, used only when server time can't be used
+--
+-- Returns array of: 1 if call is admitted, 0 otherwise; number of remaining permits;
+-- milliseconds until limit is fully available; milliseconds until call can be admitted (0 if admitted, -1 if never).
+--
+
+local key = KEYS[1]
+local capacity = tonumber(ARGV[1])
+local refillTokens = tonumber(ARGV[2])
+local refillInterval = tonumber(ARGV[3])
+local permits = tonumber(ARGV[4])
+
+-- server time is only allowed before writes when effects are replicated (Redis 3.2+)
+local now
+if redis.replicate_commands ~= nil and redis.replicate_commands() then
+  local time = redis.call('TIME')
+  now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+else
+  now = tonumber(ARGV[5])
+end
+
+local state = redis.call('HMGET', key, 't', 'r')
+local tokens = tonumber(state[1])
+local refilled = tonumber(state[2])
+
+-- missing bucket is full
+if tokens == nil or refilled == nil then
+  tokens = capacity
+  refilled = now
+end
+
+tokens = math.min(capacity, tokens + math.max(0, now - refilled) * refillTokens / refillInterval)
+
+-- nothing is written, next call refills from the same state
+local reset = math.ceil((capacity - tokens) * refillInterval / refillTokens)
+
+if tokens < permits then
+  local retry = -1
+  if permits <= capacity then
+    retry = math.max(1, math.ceil((permits - tokens) * refillInterval / refillTokens))
+  end
+  return {0, math.floor(tokens), reset, retry}
+end
+
+tokens = tokens - permits
+reset = math.ceil((capacity - tokens) * refillInterval / refillTokens)
+
+redis.call('HMSET', key, 't', tokens, 'r', now)
+-- full bucket is the same as missing one
+redis.call('PEXPIRE', key, reset)
+
+return {1, math.floor(tokens), reset, 0}
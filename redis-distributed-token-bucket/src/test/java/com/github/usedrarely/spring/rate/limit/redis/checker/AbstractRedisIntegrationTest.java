@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static redis.embedded.RedisServer.builder;
+
+/**
+ * Starts embedded Redis server for all tests in class, database and script cache are flushed before each test.
+ */
+public abstract class AbstractRedisIntegrationTest {
+
+  private static Integer port;
+
+  private static RedisServer server;
+
+  protected RedisOperations<String, String> redisOperations;
+
+  @BeforeClass
+  public static void startRedisServer() throws IOException {
+    final ServerSocket serverSocket = new ServerSocket(0);
+    port = serverSocket.getLocalPort();
+    serverSocket.close();
+    server = builder().port(port).build();
+    server.start();
+    assertThat(server.isActive());
+  }
+
+  @AfterClass
+  public static void stopRedisServer() {
+    server.stop();
+  }
+
+  protected static OptionsInterval interval(final long interval, final TimeUnit unit) {
+    final OptionsInterval optionsInterval = mock(OptionsInterval.class);
+    when(optionsInterval.interval()).thenReturn(interval);
+    when(optionsInterval.unit()).thenReturn(unit);
+    return optionsInterval;
+  }
+
+  @Before
+  public void configureRedis() {
+    final JedisConnectionFactory connectionFactory = new JedisConnectionFactory();
+    connectionFactory.setPort(port);
+    connectionFactory.setHostName("localhost");
+    connectionFactory.setDatabase(0);
+    connectionFactory.afterPropertiesSet();
+    final RedisTemplate<String, String> redisTemplate = new RedisTemplate<>();
+    redisTemplate.setConnectionFactory(connectionFactory);
+    redisTemplate.setKeySerializer(new StringRedisSerializer());
+    redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+    redisTemplate.setDefaultSerializer(new GenericToStringSerializer<>(Object.class));
+    redisTemplate.setExposeConnection(true);
+    redisTemplate.afterPropertiesSet();
+
+    redisOperations = redisTemplate;
+    redisOperations.execute(
+        new RedisCallback<Object>() {
+          @Override
+          public Object doInRedis(final RedisConnection connection) throws DataAccessException {
+            connection.flushDb();
+            connection.scriptFlush();
+            return null;
+          }
+        }
+    );
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class GcraRedisRateCheckerIntegrationTest extends AbstractRedisIntegrationTest {
+
+  private static final long WINDOW = TimeUnit.SECONDS.toNanos(10L);
+
+  private final OptionsInterval interval = interval(10L, TimeUnit.SECONDS);
+
+  @Test
+  public void shouldAllowBurstThenDeny() {
+    final GcraRedisRateChecker rateChecker = new GcraRedisRateChecker(redisOperations);
+
+    for (int idx = 0; idx < 5; idx++) {
+      assertThat(rateChecker.check("test", 5L, interval)).isTrue();
+    }
+    assertThat(rateChecker.check("test", 5L, interval)).isFalse();
+
+    // one emission interval is two seconds
+    final AcquireResult result = rateChecker.acquire("test", 1L, 5L, WINDOW);
+    assertThat(result.allowed()).isFalse();
+    assertThat(result.remaining()).isEqualTo(0L);
+    assertThat(result.retryAfter()).isGreaterThan(0L);
+    assertThat(result.retryAfter()).isLessThanOrEqualTo(2000L);
+
+    assertThat(redisOperations.getExpire("test", TimeUnit.MILLISECONDS)).isGreaterThan(0L);
+  }
+
+  @Test
+  public void shouldAcquireMultiplePermits() {
+    final GcraRedisRateChecker rateChecker = new GcraRedisRateChecker(redisOperations);
+
+    assertThat(rateChecker.tryAcquire("test", 3L, 5L, WINDOW)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 3L, 5L, WINDOW)).isFalse();
+    assertThat(rateChecker.tryAcquire("test", 2L, 5L, WINDOW)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 1L, 5L, WINDOW)).isFalse();
+  }
+
+  @Test
+  public void shouldNotChangeStateWhenDenied() {
+    final GcraRedisRateChecker rateChecker = new GcraRedisRateChecker(redisOperations);
+
+    assertThat(rateChecker.acquire("test", 1L, 1L, WINDOW).allowed()).isTrue();
+    final String tat = redisOperations.opsForValue().get("test");
+
+    assertThat(rateChecker.acquire("test", 1L, 1L, WINDOW).retryAfter()).isGreaterThan(0L);
+    assertThat(redisOperations.opsForValue().get("test")).isEqualTo(tat);
+  }
+
+  @Test
+  public void shouldAllowAfterTheoreticalArrivalTime() {
+    final long past = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis() - 1000);
+    redisOperations.opsForValue().set("test", Long.toString(past));
+
+    final GcraRedisRateChecker rateChecker = new GcraRedisRateChecker(redisOperations);
+
+    assertThat(rateChecker.acquire("test", 1L, 1L, WINDOW).allowed()).isTrue();
+    assertThat(Long.parseLong(redisOperations.opsForValue().get("test"))).isGreaterThan(past + TimeUnit.SECONDS.toMicros(10));
+  }
+
+  @Test
+  public void shouldCheckAllWindowsAtomically() {
+    final GcraRedisRateChecker rateChecker = new GcraRedisRateChecker(redisOperations);
+    final long[] maxRequests = {5L, 3L};
+    final long[] windows = {WINDOW, TimeUnit.MINUTES.toNanos(1L)};
+
+    for (int idx = 0; idx < 3; idx++) {
+      assertThat(rateChecker.acquire("test", 1L, maxRequests, windows).allowed()).isTrue();
+    }
+    final String tat = redisOperations.opsForValue().get("test");
+
+    // second window rejects, first one is left as it was
+    final AcquireResult result = rateChecker.acquire("test", 1L, maxRequests, windows);
+    assertThat(result.allowed()).isFalse();
+    assertThat(result.remaining()).isEqualTo(0L);
+    assertThat(result.retryAfter()).isGreaterThan(2000L);
+    assertThat(redisOperations.opsForValue().get("test")).isEqualTo(tat);
+    assertThat(redisOperations.opsForValue().get("{test}:1")).isNotNull();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.ConcurrencyLease;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RedisConcurrencyLimiterIntegrationTest extends AbstractRedisIntegrationTest {
+
+  private static final long LEASE = TimeUnit.MINUTES.toNanos(1L);
+
+  @Test
+  public void shouldRejectWhenAllSlotsAreTaken() {
+    final RedisConcurrencyLimiter limiter = new RedisConcurrencyLimiter(redisOperations);
+
+    assertThat(limiter.tryAcquire("test", 2L, LEASE)).isNotNull();
+    assertThat(limiter.tryAcquire("test", 2L, LEASE)).isNotNull();
+    assertThat(limiter.tryAcquire("test", 2L, LEASE)).isNull();
+    assertThat(limiter.tryAcquire("other", 2L, LEASE)).isNotNull();
+
+    assertThat(redisOperations.opsForZSet().zCard("test:leases")).isEqualTo(2L);
+    assertThat(redisOperations.getExpire("test:leases", TimeUnit.MILLISECONDS)).isGreaterThan(0L);
+  }
+
+  @Test
+  public void shouldFreeSlotOnRelease() {
+    final RedisConcurrencyLimiter limiter = new RedisConcurrencyLimiter(redisOperations);
+
+    final ConcurrencyLease lease = limiter.tryAcquire("test", 1L, LEASE);
+    assertThat(limiter.tryAcquire("test", 1L, LEASE)).isNull();
+
+    lease.release();
+    assertThat(redisOperations.opsForZSet().zCard("test:leases")).isEqualTo(0L);
+    assertThat(limiter.tryAcquire("test", 1L, LEASE)).isNotNull();
+  }
+
+  @Test
+  public void shouldFreeSlotOfExpiredLease() throws InterruptedException {
+    final RedisConcurrencyLimiter limiter = new RedisConcurrencyLimiter(redisOperations);
+
+    // never released, as if node holding it crashed
+    assertThat(limiter.tryAcquire("test", 1L, TimeUnit.MILLISECONDS.toNanos(100L))).isNotNull();
+    assertThat(limiter.tryAcquire("test", 1L, LEASE)).isNull();
+
+    Thread.sleep(150L);
+    assertThat(limiter.tryAcquire("test", 1L, LEASE)).isNotNull();
+  }
+
+}
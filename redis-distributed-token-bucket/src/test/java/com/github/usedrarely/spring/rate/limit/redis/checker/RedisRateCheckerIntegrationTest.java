@@ -17,6 +17,7 @@
 
 package com.github.usedrarely.spring.rate.limit.redis.checker;
 
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
 import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
 import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
 import java.io.IOException;
@@ -228,4 +229,45 @@ public class RedisRateCheckerIntegrationTest {
     PowerMockito.verifyNoMoreInteractions(interval);
   }
 
+  @Test
+  public void shouldTakeAllPermitsOrNone() {
+    final RedisRateChecker rateChecker = new RedisRateChecker(redisOperations);
+    final long window = TimeUnit.MINUTES.toNanos(1L);
+
+    assertThat(rateChecker.tryAcquire("test", 6L, 10L, window)).isTrue();
+    assertThat(redisOperations.opsForZSet().zCard("test")).isEqualTo(6L);
+
+    assertThat(rateChecker.tryAcquire("test", 5L, 10L, window)).isFalse();
+    assertThat(redisOperations.opsForZSet().zCard("test")).isEqualTo(6L);
+
+    assertThat(rateChecker.tryAcquire("test", 4L, 10L, window)).isTrue();
+    assertThat(redisOperations.opsForZSet().zCard("test")).isEqualTo(10L);
+  }
+
+  @Test
+  public void shouldReportRemainingPermits() {
+    final RedisRateChecker rateChecker = new RedisRateChecker(redisOperations);
+    final long window = TimeUnit.MINUTES.toNanos(1L);
+
+    final AcquireResult allowed = rateChecker.acquire("test", 6L, 10L, window);
+    assertThat(allowed.allowed()).isTrue();
+    assertThat(allowed.remaining()).isEqualTo(4L);
+    assertThat(allowed.resetAt()).isGreaterThan(System.currentTimeMillis());
+
+    final AcquireResult rejected = rateChecker.acquire("test", 5L, 10L, window);
+    assertThat(rejected.allowed()).isFalse();
+    assertThat(rejected.remaining()).isEqualTo(4L);
+    assertThat(rejected.retryAfter()).isEqualTo(AcquireResult.UNKNOWN);
+  }
+
+  @Test
+  public void shouldRejectMorePermitsThenLimitWithoutRedis() {
+    final RedisRateChecker rateChecker = new RedisRateChecker(redisOperations);
+
+    final AcquireResult result = rateChecker.acquire("test", 11L, 10L, TimeUnit.MINUTES.toNanos(1L));
+    assertThat(result.allowed()).isFalse();
+    assertThat(result.retryAfter()).isEqualTo(AcquireResult.NEVER);
+    assertThat(redisOperations.hasKey("test")).isFalse();
+  }
+
 }
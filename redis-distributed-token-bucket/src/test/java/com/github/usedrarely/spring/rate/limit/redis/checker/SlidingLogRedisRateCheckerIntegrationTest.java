@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SlidingLogRedisRateCheckerIntegrationTest extends AbstractRedisIntegrationTest {
+
+  private final OptionsInterval interval = interval(10L, TimeUnit.SECONDS);
+
+  @Test
+  public void shouldAllowThenDeny() {
+    final RateChecker rateChecker = new SlidingLogRedisRateChecker(redisOperations);
+
+    for (int idx = 0; idx < 5; idx++) {
+      assertThat(rateChecker.check("test", 5L, interval)).isTrue();
+    }
+    assertThat(rateChecker.check("test", 5L, interval)).isFalse();
+    assertThat(rateChecker.check("test", 5L, interval)).isFalse();
+
+    // rejected calls are not recorded
+    assertThat(redisOperations.opsForZSet().zCard("test")).isEqualTo(5L);
+    assertThat(redisOperations.getExpire("test", TimeUnit.MILLISECONDS)).isGreaterThan(0L);
+  }
+
+  @Test
+  public void shouldReportRetryWhenOldestExpires() {
+    final long now = System.currentTimeMillis();
+    for (int idx = 0; idx < 5; idx++) {
+      final long value = now - 9000 + idx * 1000;
+      redisOperations.opsForZSet().add("test", UUID.randomUUID().toString().concat("-").concat(Long.toString(value)), value);
+    }
+
+    final SlidingLogRedisRateChecker rateChecker = new SlidingLogRedisRateChecker(redisOperations);
+
+    // two oldest entries expire in one and two seconds
+    final AcquireResult result = rateChecker.acquire("test", 2L, 5L, TimeUnit.SECONDS.toNanos(10L));
+    assertThat(result.allowed()).isFalse();
+    assertThat(result.remaining()).isEqualTo(0L);
+    assertThat(result.retryAfter()).isGreaterThan(1000L);
+    assertThat(result.retryAfter()).isLessThanOrEqualTo(2000L);
+  }
+
+  @Test
+  public void shouldRemoveExpired() {
+    final long now = System.currentTimeMillis();
+    for (int idx = 0; idx < 10; idx++) {
+      final long value = now - 20000 - idx * 1000;
+      redisOperations.opsForZSet().add("test", UUID.randomUUID().toString().concat("-").concat(Long.toString(value)), value);
+    }
+
+    final RateChecker rateChecker = new SlidingLogRedisRateChecker(redisOperations);
+
+    assertThat(rateChecker.check("test", 5L, interval)).isTrue();
+    assertThat(redisOperations.opsForZSet().zCard("test")).isEqualTo(1L);
+  }
+
+  @Test
+  public void shouldDenyWhenFull() {
+    final long now = System.currentTimeMillis();
+    for (int idx = 0; idx < 5; idx++) {
+      final long value = now - idx * 1000;
+      redisOperations.opsForZSet().add("test", UUID.randomUUID().toString().concat("-").concat(Long.toString(value)), value);
+    }
+
+    final RateChecker rateChecker = new SlidingLogRedisRateChecker(redisOperations);
+
+    assertThat(rateChecker.check("test", 5L, interval)).isFalse();
+    assertThat(rateChecker.check("other", 5L, interval)).isTrue();
+    assertThat(redisOperations.opsForZSet().zCard("test")).isEqualTo(5L);
+  }
+
+  @Test
+  public void shouldCountAllWindowsInSingleLog() {
+    final long now = System.currentTimeMillis();
+    for (int idx = 0; idx < 3; idx++) {
+      final long value = now - 30000 - idx * 1000;
+      redisOperations.opsForZSet().add("test", UUID.randomUUID().toString().concat("-").concat(Long.toString(value)), value);
+    }
+
+    final SlidingLogRedisRateChecker rateChecker = new SlidingLogRedisRateChecker(redisOperations);
+    final long[] maxRequests = {2L, 4L};
+    final long[] windows = {TimeUnit.SECONDS.toNanos(10L), TimeUnit.MINUTES.toNanos(1L)};
+
+    // older entries count only in minute window
+    final AcquireResult allowed = rateChecker.acquire("test", 1L, maxRequests, windows);
+    assertThat(allowed.allowed()).isTrue();
+    assertThat(allowed.remaining()).isEqualTo(0L);
+
+    final AcquireResult rejected = rateChecker.acquire("test", 1L, maxRequests, windows);
+    assertThat(rejected.allowed()).isFalse();
+    assertThat(rejected.retryAfter()).isGreaterThan(25000L);
+    assertThat(redisOperations.opsForZSet().zCard("test")).isEqualTo(4L);
+    assertThat(redisOperations.hasKey("{test}:1")).isFalse();
+  }
+
+  @Test
+  public void shouldCountKeyChainInLogOfEachKey() {
+    final SlidingLogRedisRateChecker rateChecker = new SlidingLogRedisRateChecker(redisOperations);
+    final String[] keys = {"user", "user", "all"};
+    final long[] maxRequests = {5L, 10L, 1L};
+    final long[] windows = {TimeUnit.SECONDS.toNanos(10L), TimeUnit.MINUTES.toNanos(1L), TimeUnit.MINUTES.toNanos(1L)};
+
+    assertThat(rateChecker.acquire(keys, 1L, maxRequests, windows).allowed()).isTrue();
+
+    // outermost key rejects, log of user keeps only admitted call
+    assertThat(rateChecker.acquire(keys, 1L, maxRequests, windows).allowed()).isFalse();
+    assertThat(redisOperations.opsForZSet().zCard("{all}:user")).isEqualTo(1L);
+    assertThat(redisOperations.opsForZSet().zCard("all")).isEqualTo(1L);
+    assertThat(redisOperations.hasKey("user")).isFalse();
+  }
+}
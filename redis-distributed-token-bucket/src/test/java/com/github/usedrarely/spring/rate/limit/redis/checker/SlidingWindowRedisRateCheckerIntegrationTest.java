@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireRequest;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.RateChecker;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SlidingWindowRedisRateCheckerIntegrationTest extends AbstractRedisIntegrationTest {
+
+  private final OptionsInterval interval = interval(1L, TimeUnit.HOURS);
+
+  private long currentWindow() {
+    return System.currentTimeMillis() / TimeUnit.HOURS.toMillis(1);
+  }
+
+  @Test
+  public void shouldAllowThenDeny() {
+    final RateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+
+    for (int idx = 0; idx < 100; idx++) {
+      assertThat(rateChecker.check("test", 100L, interval)).isTrue();
+    }
+    assertThat(rateChecker.check("test", 100L, interval)).isFalse();
+
+    // two counters and window index, no matter the limit
+    assertThat(redisOperations.opsForHash().size("test")).isEqualTo(3L);
+    assertThat(redisOperations.<String, String>opsForHash().get("test", "c")).isEqualTo("100");
+    assertThat(redisOperations.getExpire("test", TimeUnit.MILLISECONDS)).isGreaterThan(0L);
+  }
+
+  @Test
+  public void shouldWeightPreviousWindow() {
+    // previous window was full, current window is empty, weighted previous count is between 0 and limit
+    redisOperations.opsForHash().put("test", "w", Long.toString(currentWindow() - 1));
+    redisOperations.opsForHash().put("test", "c", "100");
+    redisOperations.opsForHash().put("test", "p", "0");
+
+    final RateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+
+    int allowed = 0;
+    while (rateChecker.check("test", 100L, interval)) {
+      allowed++;
+    }
+
+    assertThat(allowed).isLessThan(100);
+    assertThat(redisOperations.<String, String>opsForHash().get("test", "p")).isEqualTo("100");
+    assertThat(redisOperations.<String, String>opsForHash().get("test", "c")).isEqualTo(Integer.toString(allowed));
+  }
+
+  @Test
+  public void shouldIgnoreOldWindows() {
+    redisOperations.opsForHash().put("test", "w", Long.toString(currentWindow() - 2));
+    redisOperations.opsForHash().put("test", "c", "100");
+    redisOperations.opsForHash().put("test", "p", "100");
+
+    final RateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+
+    assertThat(rateChecker.check("test", 100L, interval)).isTrue();
+    assertThat(redisOperations.<String, String>opsForHash().get("test", "p")).isEqualTo("0");
+    assertThat(redisOperations.<String, String>opsForHash().get("test", "c")).isEqualTo("1");
+  }
+
+  @Test
+  public void shouldReleaseUnusedPermits() {
+    final SlidingWindowRedisRateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+    final long window = TimeUnit.HOURS.toNanos(1L);
+
+    assertThat(rateChecker.tryAcquire("test", 60L, 100L, window)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 60L, 100L, window)).isFalse();
+
+    final AcquireResult result = rateChecker.release("test", 40L, 100L, window);
+    assertThat(result.remaining()).isEqualTo(80L);
+    assertThat(redisOperations.<String, String>opsForHash().get("test", "c")).isEqualTo("20");
+    assertThat(rateChecker.tryAcquire("test", 80L, 100L, window)).isTrue();
+  }
+
+  @Test
+  public void shouldCheckBatchInOrder() {
+    final SlidingWindowRedisRateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+    final long window = TimeUnit.HOURS.toNanos(1L);
+
+    final List<AcquireResult> results = rateChecker.checkAll(Arrays.asList(
+        AcquireRequest.of("a", 1L, 2L, window),
+        AcquireRequest.of("a", 1L, 2L, window),
+        AcquireRequest.of("a", 1L, 2L, window),
+        AcquireRequest.of("b", 3L, 5L, window)));
+
+    assertThat(results).hasSize(4);
+    assertThat(results.get(0).allowed()).isTrue();
+    assertThat(results.get(1).allowed()).isTrue();
+    assertThat(results.get(2).allowed()).isFalse();
+    assertThat(results.get(3).allowed()).isTrue();
+    assertThat(results.get(3).remaining()).isEqualTo(2L);
+    assertThat(redisOperations.<String, String>opsForHash().get("a", "c")).isEqualTo("2");
+  }
+
+  @Test
+  public void shouldLoadScriptForBatch() {
+    final SlidingWindowRedisRateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+    final long window = TimeUnit.HOURS.toNanos(1L);
+
+    // script cache is flushed before each test
+    final List<AcquireResult> results = rateChecker.checkAll(Arrays.asList(
+        AcquireRequest.of("a", 1L, 2L, window),
+        AcquireRequest.of("b", 1L, 2L, window)));
+
+    assertThat(results.get(0).allowed()).isTrue();
+    assertThat(results.get(1).allowed()).isTrue();
+    assertThat(redisOperations.<String, String>opsForHash().get("a", "c")).isEqualTo("1");
+    assertThat(rateChecker.checkAll(Collections.<AcquireRequest>emptyList())).isEmpty();
+  }
+
+  @Test
+  public void shouldSerializeBatchKeysLikeSingleKey() {
+    final RedisTemplate<String, String> prefixed = new RedisTemplate<>();
+    prefixed.setConnectionFactory(((RedisTemplate<?, ?>) redisOperations).getConnectionFactory());
+    prefixed.setKeySerializer(new StringRedisSerializer() {
+      @Override
+      public byte[] serialize(final String key) {
+        return super.serialize("prefix:" + key);
+      }
+    });
+    prefixed.setDefaultSerializer(new GenericToStringSerializer<>(Object.class));
+    prefixed.afterPropertiesSet();
+    final SlidingWindowRedisRateChecker rateChecker = new SlidingWindowRedisRateChecker(prefixed);
+    final long window = TimeUnit.HOURS.toNanos(1L);
+
+    assertThat(rateChecker.checkAll(Collections.singletonList(AcquireRequest.of("a", 1L, 2L, window))).get(0).allowed()).isTrue();
+    assertThat(rateChecker.tryAcquire("a", 1L, 2L, window)).isTrue();
+    assertThat(redisOperations.<String, String>opsForHash().get("prefix:a", "c")).isEqualTo("2");
+    assertThat(redisOperations.hasKey("a")).isFalse();
+  }
+
+  @Test(expected = DataAccessException.class)
+  public void shouldTranslateBatchFailure() {
+    final SlidingWindowRedisRateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+    redisOperations.opsForValue().set("a", "not a hash");
+
+    rateChecker.checkAll(Arrays.asList(
+        AcquireRequest.of("a", 1L, 2L, TimeUnit.HOURS.toNanos(1L)),
+        AcquireRequest.of("b", 1L, 2L, TimeUnit.HOURS.toNanos(1L))));
+  }
+
+  @Test
+  public void shouldCheckAllWindowsAtomically() {
+    final SlidingWindowRedisRateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+    final long[] maxRequests = {5L, 7L};
+    final long[] windows = {TimeUnit.HOURS.toNanos(1L), TimeUnit.DAYS.toNanos(1L)};
+
+    for (int idx = 0; idx < 5; idx++) {
+      assertThat(rateChecker.acquire("test", 1L, maxRequests, windows).allowed()).isTrue();
+    }
+
+    // hourly window rejects, daily window must not count rejected call
+    final AcquireResult rejected = rateChecker.acquire("test", 1L, maxRequests, windows);
+    assertThat(rejected.allowed()).isFalse();
+    assertThat(rejected.remaining()).isEqualTo(0L);
+    assertThat(redisOperations.<String, String>opsForHash().get("test", "c")).isEqualTo("5");
+    assertThat(redisOperations.<String, String>opsForHash().get("{test}:1", "c")).isEqualTo("5");
+
+    // daily window rejects alone
+    assertThat(rateChecker.acquire("other", 3L, new long[] {5L, 7L}, windows).allowed()).isTrue();
+    final AcquireResult daily = rateChecker.acquire("other", 2L, new long[] {10L, 4L}, windows);
+    assertThat(daily.allowed()).isFalse();
+    assertThat(daily.remaining()).isEqualTo(1L);
+    assertThat(redisOperations.<String, String>opsForHash().get("other", "c")).isEqualTo("3");
+  }
+
+  @Test
+  public void shouldCheckKeyChainAtomically() {
+    final SlidingWindowRedisRateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+    final long window = TimeUnit.HOURS.toNanos(1L);
+    final long[] maxRequests = {5L, 2L, 10L};
+    final long[] windows = {window, window, window};
+
+    assertThat(rateChecker.acquire(new String[] {"first", "tenant", "all"}, 1L, maxRequests, windows).allowed()).isTrue();
+    assertThat(rateChecker.acquire(new String[] {"second", "tenant", "all"}, 1L, maxRequests, windows).allowed()).isTrue();
+
+    // tenant rejects, user and outermost keys must not count rejected call
+    final AcquireResult rejected = rateChecker.acquire(new String[] {"first", "tenant", "all"}, 1L, maxRequests, windows);
+    assertThat(rejected.allowed()).isFalse();
+    assertThat(rejected.remaining()).isEqualTo(0L);
+    assertThat(redisOperations.<String, String>opsForHash().get("{all}:first", "c")).isEqualTo("1");
+    assertThat(redisOperations.<String, String>opsForHash().get("{all}:tenant", "c")).isEqualTo("2");
+    assertThat(redisOperations.<String, String>opsForHash().get("all", "c")).isEqualTo("2");
+  }
+
+  @Test
+  public void shouldShareStateOfKeyInChainOnlyWithHashTagOfOutermostKey() {
+    final SlidingWindowRedisRateChecker rateChecker = new SlidingWindowRedisRateChecker(redisOperations);
+    final long window = TimeUnit.HOURS.toNanos(1L);
+    final long[] maxRequests = {2L, 10L};
+    final long[] windows = {window, window};
+
+    assertThat(rateChecker.acquire("{tenant}:first", 1L, 2L, window).allowed()).isTrue();
+    assertThat(rateChecker.acquire("second", 1L, 2L, window).allowed()).isTrue();
+
+    // tagged key keeps its counter in chain, untagged key is renamed into slot of outermost key and starts from scratch
+    assertThat(rateChecker.acquire(new String[] {"{tenant}:first", "{tenant}"}, 1L, maxRequests, windows).allowed()).isTrue();
+    assertThat(rateChecker.acquire(new String[] {"second", "{tenant}"}, 1L, maxRequests, windows).allowed()).isTrue();
+    assertThat(redisOperations.<String, String>opsForHash().get("{tenant}:first", "c")).isEqualTo("2");
+    assertThat(redisOperations.<String, String>opsForHash().get("second", "c")).isEqualTo("1");
+    assertThat(redisOperations.<String, String>opsForHash().get("{tenant}:second", "c")).isEqualTo("1");
+
+    assertThat(rateChecker.acquire(new String[] {"{tenant}:first", "{tenant}"}, 1L, maxRequests, windows).allowed()).isFalse();
+    assertThat(rateChecker.acquire("second", 1L, 2L, window).allowed()).isTrue();
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.checker;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.options.OptionsBucket;
+import com.github.usedrarely.spring.rate.limit.options.OptionsInterval;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TokenBucketRedisRateCheckerIntegrationTest extends AbstractRedisIntegrationTest {
+
+  private static OptionsBucket bucket(final long capacity, final long refillTokens, final long refillInterval, final TimeUnit unit) {
+    final OptionsInterval interval = interval(refillInterval, unit);
+    final OptionsBucket bucket = mock(OptionsBucket.class);
+    when(bucket.capacity()).thenReturn(capacity);
+    when(bucket.refillTokens()).thenReturn(refillTokens);
+    when(bucket.refillInterval()).thenReturn(interval);
+    return bucket;
+  }
+
+  @Test
+  public void shouldAllowBurstThenDeny() {
+    final TokenBucketRedisRateChecker rateChecker = new TokenBucketRedisRateChecker(redisOperations);
+    final OptionsBucket bucket = bucket(20L, 1L, 1L, TimeUnit.HOURS);
+
+    for (int idx = 0; idx < 20; idx++) {
+      assertThat(rateChecker.check("test", bucket)).isTrue();
+    }
+    assertThat(rateChecker.check("test", bucket)).isFalse();
+
+    assertThat(redisOperations.opsForHash().size("test")).isEqualTo(2L);
+    assertThat(redisOperations.getExpire("test", TimeUnit.MILLISECONDS)).isGreaterThan(0L);
+  }
+
+  @Test
+  public void shouldTakeMultipleTokensFromBucket() {
+    final TokenBucketRedisRateChecker rateChecker = new TokenBucketRedisRateChecker(redisOperations);
+    final OptionsBucket bucket = bucket(20L, 1L, 1L, TimeUnit.HOURS);
+
+    assertThat(rateChecker.acquire("test", 15L, bucket).allowed()).isTrue();
+    final AcquireResult rejected = rateChecker.acquire("test", 6L, bucket);
+    assertThat(rejected.allowed()).isFalse();
+    assertThat(rejected.remaining()).isEqualTo(5L);
+    assertThat(rateChecker.acquire("test", 5L, bucket).allowed()).isTrue();
+  }
+
+  @Test
+  public void shouldTakeMultipleTokens() {
+    final TokenBucketRedisRateChecker rateChecker = new TokenBucketRedisRateChecker(redisOperations);
+    final long window = TimeUnit.HOURS.toNanos(1L);
+
+    assertThat(rateChecker.tryAcquire("test", 4L, 10L, window)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 4L, 10L, window)).isTrue();
+    assertThat(rateChecker.tryAcquire("test", 4L, 10L, window)).isFalse();
+    assertThat(rateChecker.tryAcquire("test", 2L, 10L, window)).isTrue();
+  }
+
+  @Test
+  public void shouldReportRemainingAndRetry() {
+    final TokenBucketRedisRateChecker rateChecker = new TokenBucketRedisRateChecker(redisOperations);
+    final long window = TimeUnit.SECONDS.toNanos(10L);
+
+    final AcquireResult allowed = rateChecker.acquire("test", 4L, 5L, window);
+    assertThat(allowed.allowed()).isTrue();
+    assertThat(allowed.remaining()).isEqualTo(1L);
+    assertThat(allowed.resetAt()).isGreaterThan(System.currentTimeMillis());
+
+    // one token every two seconds, one missing
+    final AcquireResult rejected = rateChecker.acquire("test", 2L, 5L, window);
+    assertThat(rejected.allowed()).isFalse();
+    assertThat(rejected.remaining()).isEqualTo(1L);
+    assertThat(rejected.retryAfter()).isGreaterThan(0L);
+    assertThat(rejected.retryAfter()).isLessThanOrEqualTo(2000L);
+
+    assertThat(rateChecker.acquire("test", 6L, 5L, window).retryAfter()).isEqualTo(AcquireResult.NEVER);
+  }
+
+  @Test
+  public void shouldRefill() {
+    // empty bucket, last refilled three seconds ago
+    redisOperations.opsForHash().put("test", "t", "0");
+    redisOperations.opsForHash().put("test", "r", Long.toString(System.currentTimeMillis() - 3000));
+
+    final TokenBucketRedisRateChecker rateChecker = new TokenBucketRedisRateChecker(redisOperations);
+    final OptionsBucket bucket = bucket(10L, 1L, 1L, TimeUnit.SECONDS);
+
+    for (int idx = 0; idx < 3; idx++) {
+      assertThat(rateChecker.check("test", bucket)).isTrue();
+    }
+    assertThat(rateChecker.check("test", bucket)).isFalse();
+  }
+
+  @Test
+  public void shouldNotRefillOverCapacity() {
+    redisOperations.opsForHash().put("test", "t", "0");
+    redisOperations.opsForHash().put("test", "r", Long.toString(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+
+    final TokenBucketRedisRateChecker rateChecker = new TokenBucketRedisRateChecker(redisOperations);
+    final OptionsInterval interval = interval(1L, TimeUnit.MINUTES);
+
+    for (int idx = 0; idx < 5; idx++) {
+      assertThat(rateChecker.check("test", 5L, interval)).isTrue();
+    }
+    assertThat(rateChecker.check("test", 5L, interval)).isFalse();
+  }
+
+}
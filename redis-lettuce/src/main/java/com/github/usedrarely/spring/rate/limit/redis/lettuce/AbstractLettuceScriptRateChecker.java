@@ -0,0 +1,148 @@
+package com.github.usedrarely.spring.rate.limit.redis.lettuce;
+
+import com.github.usedrarely.spring.rate.limit.checker.AbstractPermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireRequest;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import com.github.usedrarely.spring.rate.limit.checker.KeyChainRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.ReactiveRateChecker;
+import com.github.usedrarely.spring.rate.limit.checker.WindowKeys;
+import com.github.usedrarely.spring.rate.limit.redis.checker.AbstractRedisScriptRateChecker;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import reactor.core.publisher.Mono;
+
+/**
+ * Base for rate limit checkers executing the same Lua scripts as Redis checkers, using Lettuce client.
+ * <p/>
+ * Lettuce connection is thread safe and multiplexed, single connection is shared by all callers, blocking and reactive.
+ * Commands are written as soon as they are issued, without waiting for replies of earlier commands,
+ * so concurrent checks are pipelined on one TCP connection instead of taking pooled connection each.
+ * <p/>
+ * Scripts are executed with {@code EVALSHA}, falling back to {@code EVAL} when script is not in server script cache.
+ *
+ * @author franjozilic
+ */
+public abstract class AbstractLettuceScriptRateChecker extends AbstractPermitRateChecker implements KeyChainRateChecker, ReactiveRateChecker {
+
+  private final StatefulRedisConnection<String, String> connection;
+
+  protected AbstractLettuceScriptRateChecker(final StatefulRedisConnection<String, String> connection) {
+    this.connection = connection;
+  }
+
+  /**
+   * @return script making the decision
+   */
+  protected abstract LettuceScript script();
+
+  /**
+   * @param permits      number of permits execution takes
+   * @param maxRequests  maximum number of permits in each window
+   * @param windowsNanos length of each window in nanoseconds
+   * @return script arguments
+   */
+  protected abstract String[] arguments(long permits, long[] maxRequests, long[] windowsNanos);
+
+  private String[] arguments(final long permits, final long maxRequests, final long windowNanos) {
+    return arguments(permits, new long[] {maxRequests}, new long[] {windowNanos});
+  }
+
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    return execute(new String[] {key}, arguments(permits, maxRequests, windowNanos));
+  }
+
+  /**
+   * All windows are checked in single script execution, see {@link WindowKeys} for keys of windows
+   */
+  @Override
+  public AcquireResult acquire(final String key, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    return execute(WindowKeys.keys(key, maxRequests.length), arguments(permits, maxRequests, windowsNanos));
+  }
+
+  /**
+   * Whole chain is checked in single script execution, see {@link WindowKeys#chainKeys(String[])} for keys
+   */
+  @Override
+  public AcquireResult acquire(final String[] keys, final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    return execute(WindowKeys.chainKeys(keys), arguments(permits, maxRequests, windowsNanos));
+  }
+
+  private AcquireResult execute(final String[] keys, final String[] args) {
+    final LettuceScript script = script();
+    List<Object> result;
+    try {
+      result = connection.sync().evalsha(script.sha(), ScriptOutputType.MULTI, keys, args);
+    }
+    catch (final RedisCommandExecutionException exception) {
+      if (!isNoScript(exception)) {
+        throw exception;
+      }
+      result = connection.sync().eval(script.source(), ScriptOutputType.MULTI, keys, args);
+    }
+    return AbstractRedisScriptRateChecker.result(result);
+  }
+
+  /**
+   * Issues all script executions before waiting for any reply, so batch is pipelined on shared connection
+   */
+  @Override
+  public List<AcquireResult> checkAll(final Collection<AcquireRequest> requests) {
+    final LettuceScript script = script();
+    final List<RedisFuture<List<Object>>> futures = new ArrayList<>(requests.size());
+    for (final AcquireRequest request : requests) {
+      final String[] keys = {request.key()};
+      futures.add(connection.async().evalsha(script.sha(), ScriptOutputType.MULTI, keys,
+          arguments(request.permits(), request.maxRequests(), request.windowNanos())));
+    }
+
+    // whole batch is bounded by one timeout, each call waits only for what is left of it
+    final long deadline = System.nanoTime() + connection.getTimeout().toNanos();
+    final List<AcquireResult> results = new ArrayList<>(futures.size());
+    int idx = 0;
+    for (final AcquireRequest request : requests) {
+      AcquireResult result;
+      try {
+        final long remaining = Math.max(0L, deadline - System.nanoTime());
+        result = AbstractRedisScriptRateChecker.result(LettuceFutures.awaitOrCancel(futures.get(idx++), remaining, TimeUnit.NANOSECONDS));
+      }
+      catch (final RedisCommandExecutionException exception) {
+        if (!isNoScript(exception)) {
+          throw exception;
+        }
+        // call was not executed, single acquisition loads the script
+        result = acquire(request.key(), request.permits(), request.maxRequests(), request.windowNanos());
+      }
+      results.add(result);
+    }
+    return results;
+  }
+
+  @Override
+  public Mono<AcquireResult> acquireReactive(final String key, final long permits, final long maxRequests, final long windowNanos) {
+    final LettuceScript script = script();
+    final String[] keys = {key};
+    return Mono.defer(() -> {
+      final String[] args = arguments(permits, maxRequests, windowNanos);
+      return connection.reactive().<List<Object>>evalsha(script.sha(), ScriptOutputType.MULTI, keys, args)
+          .onErrorResume(AbstractLettuceScriptRateChecker::isNoScript,
+              exception -> connection.reactive().eval(script.source(), ScriptOutputType.MULTI, keys, args))
+          .next();
+    })
+        .map(AbstractRedisScriptRateChecker::result)
+        .defaultIfEmpty(AcquireResult.of(false));
+  }
+
+  static boolean isNoScript(final Throwable throwable) {
+    return throwable instanceof RedisCommandExecutionException && throwable.getMessage() != null
+        && throwable.getMessage().startsWith("NOSCRIPT");
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.lettuce;
+
+import com.github.usedrarely.spring.rate.limit.redis.checker.GcraRedisRateChecker;
+import io.lettuce.core.api.StatefulRedisConnection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generic cell rate algorithm rate limit checker using Lettuce client, see {@link GcraRedisRateChecker} for algorithm.
+ *
+ * @author franjozilic
+ */
+public class GcraLettuceRateChecker extends AbstractLettuceScriptRateChecker {
+
+  private static final LettuceScript SCRIPT = LettuceScript.load("gcra.lua");
+
+  public GcraLettuceRateChecker(final StatefulRedisConnection<String, String> connection) {
+    super(connection);
+  }
+
+  @Override
+  protected LettuceScript script() {
+    return SCRIPT;
+  }
+
+  @Override
+  protected String[] arguments(final long permits, final long[] maxRequests, final long[] windowsNanos) {
+    final String[] args = new String[2 + maxRequests.length * 2];
+    args[0] = Long.toString(permits);
+    args[1] = Long.toString(System.currentTimeMillis());
+    for (int idx = 0; idx < maxRequests.length; idx++) {
+      final long period = TimeUnit.NANOSECONDS.toMicros(windowsNanos[idx]);
+      final long emission = Math.max(1L, period / maxRequests[idx]);
+      args[2 + idx * 2] = Long.toString(emission);
+      args[3 + idx * 2] = Long.toString(period - emission);
+    }
+    return args;
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.lettuce;
+
+import com.github.usedrarely.spring.rate.limit.redis.checker.AbstractRedisScriptRateChecker;
+import io.lettuce.core.LettuceStrings;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Lua script of Redis checkers, with SHA1 digest calculated once.
+ *
+ * @author franjozilic
+ */
+public final class LettuceScript {
+
+  private final String source;
+
+  private final String sha;
+
+  private LettuceScript(final String source) {
+    this.source = source;
+    this.sha = LettuceStrings.digest(source.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Loads script from class path, relative to package of {@link AbstractRedisScriptRateChecker}
+   *
+   * @param name script file name
+   * @return loaded script
+   */
+  public static LettuceScript load(final String name) {
+    try (InputStream stream = new ClassPathResource(name, AbstractRedisScriptRateChecker.class).getInputStream()) {
+      return new LettuceScript(StreamUtils.copyToString(stream, StandardCharsets.UTF_8));
+    }
+    catch (final IOException exception) {
+      throw new IllegalStateException("Unable to load script " + name, exception);
+    }
+  }
+
+  String source() {
+    return source;
+  }
+
+  String sha() {
+    return sha;
+  }
+
+}
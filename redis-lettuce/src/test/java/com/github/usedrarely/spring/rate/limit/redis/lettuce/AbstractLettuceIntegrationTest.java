@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.lettuce;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import java.io.IOException;
+import java.net.ServerSocket;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import redis.embedded.RedisServer;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static redis.embedded.RedisServer.builder;
+
+/**
+ * Starts embedded Redis server for all tests in class, database and script cache are flushed before each test.
+ */
+public abstract class AbstractLettuceIntegrationTest {
+
+  private static RedisServer server;
+
+  private static RedisClient client;
+
+  protected StatefulRedisConnection<String, String> connection;
+
+  @BeforeClass
+  public static void startRedisServer() throws IOException {
+    final ServerSocket serverSocket = new ServerSocket(0);
+    final int port = serverSocket.getLocalPort();
+    serverSocket.close();
+    server = builder().port(port).build();
+    server.start();
+    assertThat(server.isActive());
+    client = RedisClient.create(RedisURI.create("localhost", port));
+  }
+
+  @AfterClass
+  public static void stopRedisServer() {
+    client.shutdown();
+    server.stop();
+  }
+
+  @Before
+  public void configureRedis() {
+    connection = client.connect();
+    connection.sync().flushdb();
+    connection.sync().scriptFlush();
+  }
+
+  @After
+  public void closeConnection() {
+    connection.close();
+  }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.lettuce;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class GcraLettuceRateCheckerIntegrationTest extends AbstractLettuceIntegrationTest {
+
+  private static final long WINDOW = TimeUnit.MINUTES.toNanos(1L);
+
+  @Test
+  public void shouldAllowBurstUpToLimit() {
+    final GcraLettuceRateChecker checker = new GcraLettuceRateChecker(connection);
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(checker.acquireReactive("key", 1L, 10L, WINDOW).block().allowed()).isTrue();
+    }
+
+    final AcquireResult rejected = checker.acquireReactive("key", 1L, 10L, WINDOW).block();
+    assertThat(rejected.allowed()).isFalse();
+    assertThat(rejected.retryAfter()).isGreaterThan(0L).isLessThanOrEqualTo(TimeUnit.SECONDS.toMillis(6L));
+  }
+
+  @Test
+  public void shouldNeverAllowMorePermitsThenLimit() {
+    final GcraLettuceRateChecker checker = new GcraLettuceRateChecker(connection);
+
+    final AcquireResult rejected = checker.acquireReactive("key", 11L, 10L, WINDOW).block();
+
+    assertThat(rejected.allowed()).isFalse();
+    assertThat(rejected.retryAfter()).isEqualTo(AcquireResult.NEVER);
+  }
+
+}
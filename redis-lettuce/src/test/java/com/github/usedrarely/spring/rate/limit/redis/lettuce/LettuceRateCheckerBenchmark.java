@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.lettuce;
+
+import com.github.usedrarely.spring.rate.limit.checker.PermitRateChecker;
+import com.github.usedrarely.spring.rate.limit.redis.checker.SlidingWindowRedisRateChecker;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.embedded.RedisServer;
+
+/**
+ * Throughput of the same sliding window script executed through pooled Jedis connections and single Lettuce connection.
+ * <p/>
+ * All threads check the same key against embedded Redis, limit is never reached.
+ * Jedis pool is large enough that threads never wait for connection.
+ * <p/>
+ * Not run as part of build, run with {@link #main(String[])} from test classpath, once for 1, 16 and 256 threads.
+ *
+ * @author franjozilic
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LettuceRateCheckerBenchmark {
+
+  private static final long LIMIT = Long.MAX_VALUE / 2;
+
+  private static final long WINDOW = TimeUnit.MINUTES.toNanos(1L);
+
+  private RedisServer server;
+
+  private JedisConnectionFactory connectionFactory;
+
+  private RedisClient client;
+
+  private StatefulRedisConnection<String, String> connection;
+
+  private PermitRateChecker jedis;
+
+  private PermitRateChecker lettuce;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    final ServerSocket serverSocket = new ServerSocket(0);
+    final int port = serverSocket.getLocalPort();
+    serverSocket.close();
+    server = RedisServer.builder().port(port).setting("maxclients 1024").build();
+    server.start();
+
+    final JedisPoolConfig poolConfig = new JedisPoolConfig();
+    poolConfig.setMaxTotal(512);
+    poolConfig.setMaxIdle(512);
+    connectionFactory = new JedisConnectionFactory(poolConfig);
+    connectionFactory.setPort(port);
+    connectionFactory.setHostName("localhost");
+    connectionFactory.afterPropertiesSet();
+    final RedisTemplate<String, String> redisTemplate = new RedisTemplate<>();
+    redisTemplate.setConnectionFactory(connectionFactory);
+    redisTemplate.setKeySerializer(new StringRedisSerializer());
+    redisTemplate.setDefaultSerializer(new GenericToStringSerializer<>(Object.class));
+    redisTemplate.afterPropertiesSet();
+    jedis = new SlidingWindowRedisRateChecker(redisTemplate);
+
+    client = RedisClient.create(RedisURI.create("localhost", port));
+    connection = client.connect();
+    lettuce = new SlidingWindowLettuceRateChecker(connection);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    connection.close();
+    client.shutdown();
+    connectionFactory.destroy();
+    server.stop();
+  }
+
+  @Benchmark
+  public boolean jedis() {
+    return jedis.tryAcquire("benchmark-jedis", 1L, LIMIT, WINDOW);
+  }
+
+  @Benchmark
+  public boolean lettuce() {
+    return lettuce.tryAcquire("benchmark-lettuce", 1L, LIMIT, WINDOW);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    for (final int threads : new int[] {1, 16, 256}) {
+      new Runner(new OptionsBuilder()
+          .include(LettuceRateCheckerBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build()).run();
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017 Franjo Žilić <frenky666@gmail.com>
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.usedrarely.spring.rate.limit.redis.lettuce;
+
+import com.github.usedrarely.spring.rate.limit.checker.AcquireRequest;
+import com.github.usedrarely.spring.rate.limit.checker.AcquireResult;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SlidingWindowLettuceRateCheckerIntegrationTest extends AbstractLettuceIntegrationTest {
+
+  private static final long WINDOW = TimeUnit.MINUTES.toNanos(1L);
+
+  @Test
+  public void shouldAllowUpToLimit() {
+    final SlidingWindowLettuceRateChecker checker = new SlidingWindowLettuceRateChecker(connection);
+
+    for (int i = 0; i < 5; i++) {
+      final AcquireResult result = checker.acquireReactive("key", 1L, 5L, WINDOW).block();
+      assertThat(result.allowed()).isTrue();
+      assertThat(result.remaining()).isEqualTo(4L - i);
+    }
+
+    final AcquireResult rejected = checker.acquireReactive("key", 1L, 5L, WINDOW).block();
+    assertThat(rejected.allowed()).isFalse();
+    assertThat(rejected.remaining()).isEqualTo(0L);
+    assertThat(rejected.retryAfter()).isGreaterThan(0L);
+  }
+
+  @Test
+  public void shouldShareLimitBetweenBlockingAndReactive() {
+    final SlidingWindowLettuceRateChecker checker = new SlidingWindowLettuceRateChecker(connection);
+
+    assertThat(checker.acquire("key", 3L, 5L, WINDOW).allowed()).isTrue();
+    assertThat(checker.acquireReactive("key", 2L, 5L, WINDOW).block().allowed()).isTrue();
+    assertThat(checker.tryAcquire("key", 1L, 5L, WINDOW)).isFalse();
+  }
+
+  @Test
+  public void shouldReloadFlushedScriptWhenBlocking() {
+    final SlidingWindowLettuceRateChecker checker = new SlidingWindowLettuceRateChecker(connection);
+
+    assertThat(checker.acquire("key", 1L, 5L, WINDOW).allowed()).isTrue();
+    connection.sync().scriptFlush();
+    assertThat(checker.acquire("key", 1L, 5L, WINDOW).remaining()).isEqualTo(3L);
+  }
+
+  @Test
+  public void shouldReloadFlushedScript() {
+    final SlidingWindowLettuceRateChecker checker = new SlidingWindowLettuceRateChecker(connection);
+
+    assertThat(checker.acquireReactive("key", 1L, 5L, WINDOW).block().allowed()).isTrue();
+    connection.sync().scriptFlush();
+    assertThat(checker.acquireReactive("key", 1L, 5L, WINDOW).block().allowed()).isTrue();
+  }
+
+  @Test
+  public void shouldNotExecuteBeforeSubscription() {
+    final SlidingWindowLettuceRateChecker checker = new SlidingWindowLettuceRateChecker(connection);
+
+    checker.acquireReactive("key", 5L, 5L, WINDOW);
+
+    assertThat(checker.acquireReactive("key", 5L, 5L, WINDOW).block().allowed()).isTrue();
+  }
+
+  @Test
+  public void shouldCheckBatch() {
+    final SlidingWindowLettuceRateChecker checker = new SlidingWindowLettuceRateChecker(connection);
+
+    // script cache is flushed before each test
+    final List<AcquireResult> results = checker.checkAll(Arrays.asList(
+        AcquireRequest.of("a", 1L, 2L, WINDOW),
+        AcquireRequest.of("a", 1L, 2L, WINDOW),
+        AcquireRequest.of("a", 1L, 2L, WINDOW),
+        AcquireRequest.of("b", 3L, 5L, WINDOW)));
+
+    assertThat(results).hasSize(4);
+    assertThat(results.get(0).allowed()).isTrue();
+    assertThat(results.get(1).allowed()).isTrue();
+    assertThat(results.get(2).allowed()).isFalse();
+    assertThat(results.get(3).remaining()).isEqualTo(2L);
+
+    assertThat(checker.checkAll(Collections.singletonList(AcquireRequest.of("b", 2L, 5L, WINDOW))).get(0).remaining()).isEqualTo(0L);
+  }
+
+  @Test
+  public void shouldCheckAllWindowsAtomically() {
+    final SlidingWindowLettuceRateChecker checker = new SlidingWindowLettuceRateChecker(connection);
+    final long[] maxRequests = {2L, 3L};
+    final long[] windows = {WINDOW, TimeUnit.HOURS.toNanos(1L)};
+
+    assertThat(checker.acquire("key", 1L, maxRequests, windows).allowed()).isTrue();
+    assertThat(checker.acquire("key", 1L, maxRequests, windows).allowed()).isTrue();
+    assertThat(checker.acquire("key", 1L, maxRequests, windows).allowed()).isFalse();
+    assertThat(connection.sync().hget("{key}:1", "c")).isEqualTo("2");
+  }
+}